@@ -0,0 +1,786 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import jvx.rad.io.IFileHandle;
+import jvx.rad.model.reference.ReferenceDefinition;
+
+import com.sibvisions.apps.persist.DropboxStorage.FileType;
+import com.sibvisions.rad.persist.StorageDataBook;
+
+/**
+ * The <code>DropboxLoadTest</code> simulates many concurrent user sessions against the fake Dropbox server.
+ * Every session has its own storages and a master/detail pair of {@link StorageDataBook}s: all folders as
+ * master and the files of the selected folder as detail. The sessions run a random mix of fetches,
+ * navigation, content reads and saves until the test is over.
+ * <p>
+ * The result contains throughput, median and 99th percentile latency per action, the number of API
+ * requests and the heap growth, for sizing servers and for verifying scaling changes. Start the test with
+ * the <code>start.loadtest</code> target, or directly:
+ * </p>
+ * <pre>
+ * java com.sibvisions.apps.persist.DropboxLoadTest -sessions 200 -duration 60 -latency 20 -errors 0.01
+ * </pre>
+ * 
+ * @author René Jahn
+ */
+public final class DropboxLoadTest
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the access token of the fake server. */
+    private static final String ACCESS_TOKEN = "loadtest";
+    
+    /** the available actions of a session. */
+    private enum Action
+    {
+        /** reloads all folders. */
+        Fetch,
+        /** selects a folder and fetches its files. */
+        Navigate,
+        /** reads the content of a file. */
+        Read,
+        /** saves the content of a file. */
+        Save
+    }
+    
+    /** the fake server. */
+    private FakeDropboxRequestor requestor;
+    
+    /** the sessions. */
+    private Session[] sessions;
+    
+    /** the content for saves. */
+    private byte[] byContent;
+    
+    /** the weight of every action. */
+    private int[] iaMix = {10, 40, 40, 10};
+    
+    /** the tree shape: depth x folders per folder x files per folder. */
+    private String sShape = "2x5x20";
+    
+    /** the number of sessions. */
+    private int iSessions = 100;
+    
+    /** the measured duration (s). */
+    private int iDuration = 60;
+    
+    /** the warmup duration (s). */
+    private int iWarmup = 10;
+    
+    /** the file size (bytes). */
+    private int iFileSize = 4096;
+    
+    /** the latency per request (ms). */
+    private long lLatency = 20;
+    
+    /** the average think time between two actions of a session (ms). */
+    private long lThinkTime;
+    
+    /** the share of failing requests. */
+    private double dErrorRate;
+    
+    /** whether the actions should be measured. */
+    private volatile boolean bMeasure;
+    
+    /** whether the sessions should stop. */
+    private volatile boolean bStopped;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Invisible constructor because <code>DropboxLoadTest</code> will be started with {@link #main(String[])}.
+     */
+    private DropboxLoadTest()
+    {
+    }
+    
+    /**
+     * Starts the load test.
+     * 
+     * @param pArgs the options: <code>-sessions</code>, <code>-duration</code> (s), <code>-warmup</code> (s),
+     *              <code>-latency</code> (ms), <code>-errors</code> (share of failing requests),
+     *              <code>-think</code> (ms), <code>-shape</code> (depth x folders x files),
+     *              <code>-fileSize</code> (bytes) and <code>-mix</code> (fetch:navigate:read:save)
+     * @throws Exception if the test fails
+     */
+    public static void main(String[] pArgs) throws Exception
+    {
+        DropboxLoadTest test = new DropboxLoadTest();
+        
+        try
+        {
+            test.parse(pArgs);
+        }
+        catch (IllegalArgumentException iae)
+        {
+            System.err.println(iae.getMessage());
+            System.err.println("Usage: DropboxLoadTest [-sessions n] [-duration s] [-warmup s] [-latency ms] [-errors share] "
+                               + "[-think ms] [-shape depth x folders x files] [-fileSize bytes] [-mix fetch:navigate:read:save]");
+            
+            System.exit(1);
+        }
+        
+        test.run();
+        
+        //the object cache and the connection pools have non-daemon threads
+        System.exit(0);
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Parses the command line options.
+     * 
+     * @param pArgs the options
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    private void parse(String[] pArgs)
+    {
+        for (int i = 0; i < pArgs.length; i += 2)
+        {
+            if (i + 1 >= pArgs.length)
+            {
+                throw new IllegalArgumentException("Missing value for option " + pArgs[i]);
+            }
+            
+            String sOption = pArgs[i];
+            String sValue = pArgs[i + 1];
+            
+            try
+            {
+                if ("-sessions".equals(sOption))
+                {
+                    iSessions = Integer.parseInt(sValue);
+                }
+                else if ("-duration".equals(sOption))
+                {
+                    iDuration = Integer.parseInt(sValue);
+                }
+                else if ("-warmup".equals(sOption))
+                {
+                    iWarmup = Integer.parseInt(sValue);
+                }
+                else if ("-latency".equals(sOption))
+                {
+                    lLatency = Long.parseLong(sValue);
+                }
+                else if ("-errors".equals(sOption))
+                {
+                    dErrorRate = Double.parseDouble(sValue);
+                }
+                else if ("-think".equals(sOption))
+                {
+                    lThinkTime = Long.parseLong(sValue);
+                }
+                else if ("-shape".equals(sOption))
+                {
+                    sShape = sValue;
+                    
+                    parseShape();
+                }
+                else if ("-fileSize".equals(sOption))
+                {
+                    iFileSize = Integer.parseInt(sValue);
+                }
+                else if ("-mix".equals(sOption))
+                {
+                    String[] saMix = sValue.split(":");
+                    
+                    if (saMix.length != iaMix.length)
+                    {
+                        throw new IllegalArgumentException("Invalid mix: " + sValue);
+                    }
+                    
+                    for (int j = 0; j < saMix.length; j++)
+                    {
+                        iaMix[j] = Integer.parseInt(saMix[j]);
+                    }
+                }
+                else
+                {
+                    throw new IllegalArgumentException("Unknown option " + sOption);
+                }
+            }
+            catch (NumberFormatException nfe)
+            {
+                throw new IllegalArgumentException("Invalid value for option " + sOption + ": " + sValue);
+            }
+        }
+    }
+    
+    /**
+     * Parses the tree shape.
+     * 
+     * @return depth, folders per folder and files per folder
+     * @throws IllegalArgumentException if the shape is invalid
+     */
+    private int[] parseShape()
+    {
+        String[] saShape = sShape.split("x");
+        
+        if (saShape.length != 3)
+        {
+            throw new IllegalArgumentException("Invalid shape: " + sShape);
+        }
+        
+        return new int[] {Integer.parseInt(saShape[0]), Integer.parseInt(saShape[1]), Integer.parseInt(saShape[2])};
+    }
+    
+    /**
+     * Runs the load test and prints the result.
+     * 
+     * @throws Exception if opening the sessions fails
+     */
+    private void run() throws Exception
+    {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        
+        int[] iaShape = parseShape();
+        
+        requestor = new FakeDropboxRequestor(lLatency);
+        
+        int iNodes = requestor.createTree(iaShape[0], iaShape[1], iaShape[2], iFileSize);
+        
+        byContent = new byte[iFileSize];
+        
+        System.out.println("Opening " + iSessions + " sessions (" + iNodes + " files and folders)...");
+        
+        long lHeapBase = getUsedHeap(memory);
+        
+        sessions = new Session[iSessions];
+        
+        for (int i = 0; i < iSessions; i++)
+        {
+            sessions[i] = new Session(i);
+        }
+        
+        long lHeapSessions = getUsedHeap(memory);
+        
+        //errors only after opening, otherwise some sessions would have no folders
+        requestor.setErrorRate(dErrorRate);
+        
+        Thread[] threads = new Thread[iSessions];
+        
+        for (int i = 0; i < iSessions; i++)
+        {
+            threads[i] = new Thread(sessions[i], "LoadTest-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        
+        System.out.println("Warmup " + iWarmup + " s...");
+        
+        Thread.sleep(iWarmup * 1000L);
+        
+        long lHeapStart = getUsedHeap(memory);
+        long lRequestsStart = requestor.getRequestCount();
+        long lErrorsStart = requestor.getErrorCount();
+        
+        System.out.println("Measuring " + iDuration + " s...");
+        
+        bMeasure = true;
+        
+        long lStart = System.nanoTime();
+        
+        Thread.sleep(iDuration * 1000L);
+        
+        bMeasure = false;
+        
+        double dSeconds = (System.nanoTime() - lStart) / 1e9;
+        
+        long lRequests = requestor.getRequestCount() - lRequestsStart;
+        long lErrors = requestor.getErrorCount() - lErrorsStart;
+        
+        bStopped = true;
+        
+        for (int i = 0; i < iSessions; i++)
+        {
+            threads[i].join();
+        }
+        
+        long lHeapEnd = getUsedHeap(memory);
+        
+        print(dSeconds, lRequests, lErrors, lHeapBase, lHeapSessions, lHeapStart, lHeapEnd);
+        
+        for (int i = 0; i < iSessions; i++)
+        {
+            sessions[i].close();
+        }
+    }
+    
+    /**
+     * Prints the result.
+     * 
+     * @param pSeconds the measured duration (s)
+     * @param pRequests the number of API requests
+     * @param pErrors the number of injected errors
+     * @param pHeapBase the used heap before opening the sessions
+     * @param pHeapSessions the used heap after opening the sessions
+     * @param pHeapStart the used heap at the start of the measurement
+     * @param pHeapEnd the used heap at the end of the measurement
+     */
+    private void print(double pSeconds, long pRequests, long pErrors, long pHeapBase, long pHeapSessions, long pHeapStart, long pHeapEnd)
+    {
+        System.out.println();
+        System.out.println(String.format(Locale.ENGLISH, "%d sessions, %d ms latency, %.3f error rate, %d ms think time, shape %s",
+                                         Integer.valueOf(iSessions), Long.valueOf(lLatency), Double.valueOf(dErrorRate),
+                                         Long.valueOf(lThinkTime), sShape));
+        System.out.println();
+        System.out.println(String.format(Locale.ENGLISH, "%-10s %10s %10s %8s %10s %10s %10s",
+                                         "Action", "Count", "Ops/s", "Errors", "p50 (ms)", "p99 (ms)", "Max (ms)"));
+        
+        Action[] actions = Action.values();
+        
+        long[] laAll = new long[0];
+        long lAllErrors = 0;
+        
+        for (int i = 0; i < actions.length; i++)
+        {
+            long[] laLatencies = new long[0];
+            long lActionErrors = 0;
+            
+            for (int j = 0; j < sessions.length; j++)
+            {
+                laLatencies = sessions[j].statistics[i].appendTo(laLatencies);
+                lActionErrors += sessions[j].statistics[i].lErrors;
+            }
+            
+            printLine(actions[i].name(), laLatencies, lActionErrors, pSeconds);
+            
+            laAll = concat(laAll, laLatencies);
+            lAllErrors += lActionErrors;
+        }
+        
+        printLine("Total", laAll, lAllErrors, pSeconds);
+        
+        System.out.println();
+        System.out.println(String.format(Locale.ENGLISH, "API requests: %d (%.1f/s, %.2f per action), injected errors: %d",
+                                         Long.valueOf(pRequests), Double.valueOf(pRequests / pSeconds),
+                                         Double.valueOf(laAll.length == 0 ? 0 : (double)pRequests / laAll.length), Long.valueOf(pErrors)));
+        System.out.println(String.format(Locale.ENGLISH, "Heap: %.1f MB base, %.1f MB for sessions (%.1f KB per session), %.1f MB growth while measuring",
+                                         Double.valueOf(pHeapBase / 1048576d), Double.valueOf((pHeapSessions - pHeapBase) / 1048576d),
+                                         Double.valueOf((pHeapSessions - pHeapBase) / 1024d / iSessions),
+                                         Double.valueOf((pHeapEnd - pHeapStart) / 1048576d)));
+    }
+    
+    /**
+     * Prints the result of an action.
+     * 
+     * @param pName the action name
+     * @param pLatencies the latencies (ns)
+     * @param pErrors the number of failed actions
+     * @param pSeconds the measured duration (s)
+     */
+    private static void printLine(String pName, long[] pLatencies, long pErrors, double pSeconds)
+    {
+        Arrays.sort(pLatencies);
+        
+        System.out.println(String.format(Locale.ENGLISH, "%-10s %10d %10.1f %8d %10.1f %10.1f %10.1f",
+                                         pName, Integer.valueOf(pLatencies.length), Double.valueOf(pLatencies.length / pSeconds),
+                                         Long.valueOf(pErrors), Double.valueOf(getPercentile(pLatencies, 0.5) / 1e6),
+                                         Double.valueOf(getPercentile(pLatencies, 0.99) / 1e6),
+                                         Double.valueOf(getPercentile(pLatencies, 1) / 1e6)));
+    }
+    
+    /**
+     * Gets a percentile.
+     * 
+     * @param pSorted the sorted values
+     * @param pPercentile the percentile between <code>0</code> and <code>1</code>
+     * @return the value or <code>0</code> if there are no values
+     */
+    private static long getPercentile(long[] pSorted, double pPercentile)
+    {
+        if (pSorted.length == 0)
+        {
+            return 0;
+        }
+        
+        int iIndex = (int)Math.ceil(pPercentile * pSorted.length) - 1;
+        
+        return pSorted[Math.max(0, Math.min(pSorted.length - 1, iIndex))];
+    }
+    
+    /**
+     * Concatenates two arrays.
+     * 
+     * @param pFirst the first array
+     * @param pSecond the second array
+     * @return the concatenated array
+     */
+    private static long[] concat(long[] pFirst, long[] pSecond)
+    {
+        long[] laResult = Arrays.copyOf(pFirst, pFirst.length + pSecond.length);
+        
+        System.arraycopy(pSecond, 0, laResult, pFirst.length, pSecond.length);
+        
+        return laResult;
+    }
+    
+    /**
+     * Gets the used heap after a garbage collection.
+     * 
+     * @param pMemory the memory bean
+     * @return the used heap (bytes)
+     */
+    private static long getUsedHeap(MemoryMXBean pMemory)
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            pMemory.gc();
+        }
+        
+        return pMemory.getHeapMemoryUsage().getUsed();
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Session</code> is a simulated user with a master/detail pair of data books.
+     * 
+     * @author René Jahn
+     */
+    private final class Session implements Runnable
+    {
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        // Class members
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        
+        /** the statistics per action. */
+        private Statistics[] statistics = new Statistics[Action.values().length];
+        
+        /** the read buffer. */
+        private byte[] byBuffer = new byte[8192];
+        
+        /** the random generator. */
+        private Random random;
+        
+        /** the folder storage. */
+        private DropboxStorage dsFolders;
+        
+        /** the file storage. */
+        private DropboxStorage dsFiles;
+        
+        /** the folders. */
+        private StorageDataBook sdbFolders;
+        
+        /** the files of the selected folder. */
+        private StorageDataBook sdbFiles;
+        
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        // Initialization
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        
+        /**
+         * Creates a new instance of <code>Session</code> and fetches all folders.
+         * 
+         * @param pNumber the session number
+         * @throws Exception if opening fails
+         */
+        private Session(int pNumber) throws Exception
+        {
+            random = new Random(pNumber);
+            
+            for (int i = 0; i < statistics.length; i++)
+            {
+                statistics[i] = new Statistics();
+            }
+            
+            dsFolders = createStorage(FileType.Folder);
+            dsFolders.setRecursive(true);
+            dsFolders.open();
+            
+            dsFiles = createStorage(FileType.File);
+            dsFiles.open();
+            
+            sdbFolders = new StorageDataBook(dsFolders);
+            sdbFolders.open();
+            
+            sdbFiles = new StorageDataBook(dsFiles);
+            sdbFiles.setMasterReference(new ReferenceDefinition(new String[] {"FOLDER"}, sdbFolders, new String[] {"PATH"}));
+            sdbFiles.open();
+            
+            sdbFolders.fetchAll();
+        }
+        
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        // Interface implementation
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        
+        /**
+         * Runs random actions until the test is stopped.
+         */
+        public void run()
+        {
+            Action[] actions = Action.values();
+            
+            int iTotal = 0;
+            
+            for (int i = 0; i < iaMix.length; i++)
+            {
+                iTotal += iaMix[i];
+            }
+            
+            while (!bStopped)
+            {
+                int iRandom = random.nextInt(iTotal);
+                int iAction = 0;
+                
+                while (iRandom >= iaMix[iAction])
+                {
+                    iRandom -= iaMix[iAction++];
+                }
+                
+                long lStart = System.nanoTime();
+                
+                boolean bSuccess = false;
+                
+                try
+                {
+                    execute(actions[iAction]);
+                    
+                    bSuccess = true;
+                }
+                catch (Exception ex)
+                {
+                    restore();
+                }
+                
+                if (bMeasure)
+                {
+                    statistics[iAction].add(System.nanoTime() - lStart, bSuccess);
+                }
+                
+                if (lThinkTime > 0)
+                {
+                    try
+                    {
+                        Thread.sleep((long)(random.nextDouble() * 2 * lThinkTime));
+                    }
+                    catch (InterruptedException ie)
+                    {
+                        return;
+                    }
+                }
+            }
+        }
+        
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        // User-defined methods
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        
+        /**
+         * Creates a storage for the fake server.
+         * 
+         * @param pType the file type
+         * @return the storage
+         */
+        private DropboxStorage createStorage(FileType pType)
+        {
+            DropboxStorage storage = new DropboxStorage();
+            storage.setAccessToken(ACCESS_TOKEN);
+            storage.setHttpRequestor(requestor);
+            storage.setFileType(pType);
+            
+            return storage;
+        }
+        
+        /**
+         * Executes an action.
+         * 
+         * @param pAction the action
+         * @throws Exception if the action fails
+         */
+        private void execute(Action pAction) throws Exception
+        {
+            switch (pAction)
+            {
+                case Fetch:
+                    sdbFolders.reload();
+                    sdbFolders.fetchAll();
+                    break;
+                
+                case Navigate:
+                    int iFolders = sdbFolders.getRowCount();
+                    
+                    if (iFolders > 0)
+                    {
+                        sdbFolders.setSelectedRow(random.nextInt(iFolders));
+                        sdbFiles.fetchAll();
+                    }
+                    break;
+                
+                case Read:
+                    if (selectFile())
+                    {
+                        InputStream in = ((IFileHandle)sdbFiles.getValue("CONTENT")).getInputStream();
+                        
+                        try
+                        {
+                            while (in.read(byBuffer) >= 0)
+                            {
+                                //read the whole content
+                            }
+                        }
+                        finally
+                        {
+                            in.close();
+                        }
+                    }
+                    break;
+                
+                case Save:
+                    if (selectFile())
+                    {
+                        sdbFiles.setValue("CONTENT", byContent);
+                        sdbFiles.saveSelectedRow();
+                    }
+                    break;
+                
+                default:
+                    throw new IllegalArgumentException("Unsupported action: " + pAction);
+            }
+        }
+        
+        /**
+         * Selects a random file of the selected folder.
+         * 
+         * @return <code>true</code> if a file was selected, <code>false</code> if the folder is empty
+         * @throws Exception if fetching the files fails
+         */
+        private boolean selectFile() throws Exception
+        {
+            int iFiles = sdbFiles.getRowCount();
+            
+            if (iFiles == 0)
+            {
+                return false;
+            }
+            
+            sdbFiles.setSelectedRow(random.nextInt(iFiles));
+            
+            return true;
+        }
+        
+        /**
+         * Restores the changes of a failed action.
+         */
+        private void restore()
+        {
+            try
+            {
+                sdbFiles.restoreAllRows();
+            }
+            catch (Exception ex)
+            {
+                //the next action will reload the data
+            }
+        }
+        
+        /**
+         * Closes the data books and storages.
+         */
+        private void close()
+        {
+            sdbFiles.close();
+            sdbFolders.close();
+            
+            dsFiles.close();
+            dsFolders.close();
+        }
+    
+    }   // Session
+    
+    /**
+     * The <code>Statistics</code> collects the latencies of an action.
+     * 
+     * @author René Jahn
+     */
+    private static final class Statistics
+    {
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        // Class members
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        
+        /** the latencies (ns). */
+        private long[] laLatencies = new long[1024];
+        
+        /** the number of latencies. */
+        private int iCount;
+        
+        /** the number of failed actions. */
+        private long lErrors;
+        
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        // User-defined methods
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        
+        /**
+         * Adds the latency of an action.
+         * 
+         * @param pLatency the latency (ns)
+         * @param pSuccess <code>true</code> if the action was successful
+         */
+        private void add(long pLatency, boolean pSuccess)
+        {
+            if (iCount == laLatencies.length)
+            {
+                laLatencies = Arrays.copyOf(laLatencies, iCount * 2);
+            }
+            
+            laLatencies[iCount++] = pLatency;
+            
+            if (!pSuccess)
+            {
+                lErrors++;
+            }
+        }
+        
+        /**
+         * Appends the latencies to an array.
+         * 
+         * @param pArray the array
+         * @return the new array with the latencies
+         */
+        private long[] appendTo(long[] pArray)
+        {
+            return concat(pArray, Arrays.copyOf(laLatencies, iCount));
+        }
+    
+    }   // Statistics
+
+}   // DropboxLoadTest
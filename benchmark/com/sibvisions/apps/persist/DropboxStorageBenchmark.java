@@ -0,0 +1,463 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import jvx.rad.io.FileHandle;
+import jvx.rad.model.condition.LikeIgnoreCase;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.dropbox.core.DbxClient;
+import com.dropbox.core.DbxRequestConfig;
+import com.sibvisions.apps.persist.DropboxStorage.FileType;
+
+/**
+ * The <code>DropboxStorageBenchmark</code> measures the {@link DropboxStorage} against the
+ * {@link FakeDropboxRequestor}, without network access. Throughput and latency percentiles are measured
+ * with every run. The allocation per row is the <code>gc.alloc.rate.norm</code> of the gc profiler, divided
+ * by the <code>rows</code> counter.
+ * 
+ * @author René Jahn
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DropboxStorageBenchmark
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the access token of the fake server. */
+    private static final String ACCESS_TOKEN = "benchmark";
+    
+    /** the tree shape: depth x folders per folder x files per folder. */
+    @Param({"1x10x100", "3x5x20"})
+    public String shape;
+    
+    /** the latency per request (ms). */
+    @Param({"0", "5"})
+    public long latency;
+    
+    /** the file size (bytes). */
+    @Param({"4096"})
+    public int fileSize;
+    
+    /** the fake server. */
+    private FakeDropboxRequestor requestor;
+    
+    /** the storage for the root folder. */
+    private DropboxStorage dsFlat;
+    
+    /** the recursive storage. */
+    private DropboxStorage dsRecursive;
+    
+    /** the recursive storage with server-side search. */
+    private DropboxStorage dsSearch;
+    
+    /** the recursive storage without server-side search. */
+    private DropboxStorage dsTraversal;
+    
+    /** the client for downloads. */
+    private DbxClient client;
+    
+    /** the content for uploads. */
+    private byte[] byContent;
+    
+    /** the file with the content for uploads. */
+    private File fiContent;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates the fake tree and opens the storages.
+     * 
+     * @throws Exception if opening fails
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        String[] saShape = shape.split("x");
+        
+        requestor = new FakeDropboxRequestor(latency);
+        requestor.createTree(Integer.parseInt(saShape[0]), Integer.parseInt(saShape[1]), Integer.parseInt(saShape[2]), fileSize);
+        
+        dsFlat = createStorage(false);
+        
+        dsRecursive = createStorage(true);
+        
+        dsSearch = createStorage(true);
+        dsSearch.setSearchPushdown(true);
+        
+        dsTraversal = createStorage(true);
+        
+        client = new DbxClient(new DbxRequestConfig("JVx", Locale.getDefault().toString(), requestor), ACCESS_TOKEN);
+        
+        byContent = new byte[fileSize];
+        
+        fiContent = File.createTempFile("benchmark", ".txt");
+        fiContent.deleteOnExit();
+        
+        FileOutputStream fos = new FileOutputStream(fiContent);
+        
+        try
+        {
+            fos.write(byContent);
+        }
+        finally
+        {
+            fos.close();
+        }
+    }
+    
+    /**
+     * Closes the storages.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        dsFlat.close();
+        dsRecursive.close();
+        dsSearch.close();
+        dsTraversal.close();
+        
+        fiContent.delete();
+    }
+    
+    /**
+     * Creates an open storage for the fake server.
+     * 
+     * @param pRecursive <code>true</code> to fetch recursive
+     * @return the storage
+     * @throws Exception if opening fails
+     */
+    private DropboxStorage createStorage(boolean pRecursive) throws Exception
+    {
+        DropboxStorage storage = new DropboxStorage();
+        storage.setAccessToken(ACCESS_TOKEN);
+        storage.setHttpRequestor(requestor);
+        storage.setFileType(FileType.All);
+        storage.setRecursive(pRecursive);
+        storage.open();
+        
+        return storage;
+    }
+    
+    /**
+     * Fetches the root folder.
+     * 
+     * @param pRows the row counter
+     * @return the records
+     * @throws Exception if fetching fails
+     */
+    @Benchmark
+    public List<Object[]> fetchFlat(Rows pRows) throws Exception
+    {
+        return pRows.count(dsFlat.fetch(null, null, 0, -1));
+    }
+    
+    /**
+     * Fetches all folders.
+     * 
+     * @param pRows the row counter
+     * @return the records
+     * @throws Exception if fetching fails
+     */
+    @Benchmark
+    public List<Object[]> fetchRecursive(Rows pRows) throws Exception
+    {
+        return pRows.count(dsRecursive.fetch(null, null, 0, -1));
+    }
+    
+    /**
+     * Searches files by name with server-side search.
+     * 
+     * @param pRows the row counter
+     * @return the records
+     * @throws Exception if searching fails
+     */
+    @Benchmark
+    public List<Object[]> searchPushdown(Rows pRows) throws Exception
+    {
+        return pRows.count(dsSearch.fetch(new LikeIgnoreCase("NAME", "*file1*"), null, 0, -1));
+    }
+    
+    /**
+     * Searches files by name with folder traversal.
+     * 
+     * @param pRows the row counter
+     * @return the records
+     * @throws Exception if searching fails
+     */
+    @Benchmark
+    public List<Object[]> searchTraversal(Rows pRows) throws Exception
+    {
+        return pRows.count(dsTraversal.fetch(new LikeIgnoreCase("NAME", "*file1*"), null, 0, -1));
+    }
+    
+    /**
+     * Exports all folders as CSV.
+     * 
+     * @param pRows the row counter
+     * @return the size of the CSV (bytes)
+     * @throws Exception if exporting fails
+     */
+    @Benchmark
+    public long writeCSV(Rows pRows) throws Exception
+    {
+        CountingOutputStream cos = new CountingOutputStream();
+        
+        dsRecursive.writeCSV(cos, null, null, null, null, null);
+        
+        pRows.rows += cos.lLines - 1;
+        
+        return cos.lBytes;
+    }
+    
+    /**
+     * Saves a file from a byte array.
+     * 
+     * @return the saved record
+     * @throws Exception if saving fails
+     */
+    @Benchmark
+    public Object[] saveBytes() throws Exception
+    {
+        return save(byContent);
+    }
+    
+    /**
+     * Saves a file from a file handle.
+     * 
+     * @return the saved record
+     * @throws Exception if saving fails
+     */
+    @Benchmark
+    public Object[] saveFileHandle() throws Exception
+    {
+        return save(new FileHandle("save.txt", byContent));
+    }
+    
+    /**
+     * Saves a file from a file.
+     * 
+     * @return the saved record
+     * @throws Exception if saving fails
+     */
+    @Benchmark
+    public Object[] saveFile() throws Exception
+    {
+        return save(fiContent);
+    }
+    
+    /**
+     * Saves a file from a stream with unknown length.
+     * 
+     * @return the saved record
+     * @throws Exception if saving fails
+     */
+    @Benchmark
+    public Object[] saveStream() throws Exception
+    {
+        return save(new ByteArrayInputStream(byContent));
+    }
+    
+    /**
+     * Saves a file.
+     * 
+     * @param pContent the content
+     * @return the saved record
+     * @throws Exception if saving fails
+     */
+    private Object[] save(Object pContent) throws Exception
+    {
+        return dsFlat.insert(new Object[] {null, null, "/", "save.txt", null, pContent});
+    }
+    
+    /**
+     * Downloads a file with a temp file.
+     * 
+     * @param pBlackhole the blackhole
+     * @throws Exception if downloading fails
+     */
+    @Benchmark
+    public void downloadTempFile(Blackhole pBlackhole) throws Exception
+    {
+        download(false, pBlackhole);
+    }
+    
+    /**
+     * Downloads a file as stream.
+     * 
+     * @param pBlackhole the blackhole
+     * @throws Exception if downloading fails
+     */
+    @Benchmark
+    public void downloadStreaming(Blackhole pBlackhole) throws Exception
+    {
+        download(true, pBlackhole);
+    }
+    
+    /**
+     * Downloads a file with a new file handle.
+     * 
+     * @param pStreaming <code>true</code> to download without temp file
+     * @param pBlackhole the blackhole
+     * @throws Exception if downloading fails
+     */
+    private void download(boolean pStreaming, Blackhole pBlackhole) throws Exception
+    {
+        DropboxFileHandle handle = new DropboxFileHandle(client, "/file0.txt");
+        handle.setStreaming(pStreaming);
+        
+        byte[] byBuffer = new byte[8192];
+        
+        InputStream in = handle.getInputStream();
+        
+        try
+        {
+            int iLen;
+            
+            while ((iLen = in.read(byBuffer)) >= 0)
+            {
+                pBlackhole.consume(iLen);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Rows</code> counts the rows of all operations, as secondary result.
+     * 
+     * @author René Jahn
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Rows
+    {
+        /** the number of rows. */
+        public long rows;
+        
+        /**
+         * Counts the rows of a result.
+         * 
+         * @param pRecords the records
+         * @return the records
+         */
+        private List<Object[]> count(List<Object[]> pRecords)
+        {
+            int iSize = pRecords.size();
+            
+            //the last record is null, if all records were fetched
+            if (iSize > 0 && pRecords.get(iSize - 1) == null)
+            {
+                iSize--;
+            }
+            
+            rows += iSize;
+            
+            return pRecords;
+        }
+    
+    }   // Rows
+    
+    /**
+     * The <code>CountingOutputStream</code> counts the written bytes and lines.
+     * 
+     * @author René Jahn
+     */
+    private static final class CountingOutputStream extends OutputStream
+    {
+        /** the number of bytes. */
+        private long lBytes;
+        
+        /** the number of lines. */
+        private long lLines;
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(int pByte)
+        {
+            lBytes++;
+            
+            if (pByte == '\n')
+            {
+                lLines++;
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(byte[] pBytes, int pOffset, int pLength)
+        {
+            lBytes += pLength;
+            
+            for (int i = pOffset, iEnd = pOffset + pLength; i < iEnd; i++)
+            {
+                if (pBytes[i] == '\n')
+                {
+                    lLines++;
+                }
+            }
+        }
+    
+    }   // CountingOutputStream
+
+}   // DropboxStorageBenchmark
@@ -0,0 +1,1002 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dropbox.core.http.HttpRequestor;
+
+/**
+ * The <code>FakeDropboxRequestor</code> is an in-process stand-in for the Dropbox v1 API. It answers the
+ * requests of the SDK from an in-memory tree, without network access. Every request can be delayed to
+ * simulate the latency of the real API, and a share of the requests can fail with <code>503</code> to
+ * simulate an overloaded server.
+ * <p>
+ * Supported are metadata, files, files_put, chunked_upload, commit_chunked_upload, search, delta and the
+ * fileops create_folder, delete and move.
+ * </p>
+ * 
+ * @author René Jahn
+ */
+public class FakeDropboxRequestor extends HttpRequestor
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the modification date of all entries. */
+    private static final String MODIFIED = "Sat, 17 Oct 2026 12:00:00 +0000";
+    
+    /** the nodes, mapped by lower-case path. */
+    private TreeMap<String, Node> tmpNodes = new TreeMap<String, Node>();
+    
+    /** the chunked upload sessions. */
+    private HashMap<String, ByteArrayOutputStream> hmpUploads = new HashMap<String, ByteArrayOutputStream>();
+    
+    /** the number of requests. */
+    private AtomicLong alRequests = new AtomicLong();
+    
+    /** the number of injected errors. */
+    private AtomicLong alErrors = new AtomicLong();
+    
+    /** the random generator for error injection. */
+    private Random random = new Random();
+    
+    /** the latency of every request (ms). */
+    private long lLatency;
+    
+    /** the share of failing requests. */
+    private volatile double dErrorRate;
+    
+    /** the current revision. */
+    private long lRevision;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates a new instance of <code>FakeDropboxRequestor</code> with an empty root folder.
+     * 
+     * @param pLatency the latency of every request (ms)
+     */
+    public FakeDropboxRequestor(long pLatency)
+    {
+        lLatency = pLatency;
+        
+        tmpNodes.put("/", new Node("/", null));
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Abstract methods implementation
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Response doGet(String pUrl, Iterable<Header> pHeaders) throws IOException
+    {
+        return handle("GET", pUrl, null);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Uploader startPost(String pUrl, Iterable<Header> pHeaders) throws IOException
+    {
+        return new FakeUploader("POST", pUrl);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Uploader startPut(String pUrl, Iterable<Header> pHeaders) throws IOException
+    {
+        return new FakeUploader("PUT", pUrl);
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates a tree of folders and files below the root folder. Every folder contains the same number of
+     * files and sub folders, up to the given depth.
+     * 
+     * @param pDepth the number of folder levels below the root folder
+     * @param pFolders the number of sub folders per folder
+     * @param pFiles the number of files per folder
+     * @param pFileSize the size of every file (bytes)
+     * @return the number of created files and folders
+     */
+    public synchronized int createTree(int pDepth, int pFolders, int pFiles, int pFileSize)
+    {
+        byte[] byContent = new byte[pFileSize];
+        
+        for (int i = 0; i < byContent.length; i++)
+        {
+            byContent[i] = (byte)('a' + i % 26);
+        }
+        
+        return createTree("", pDepth, pFolders, pFiles, byContent);
+    }
+    
+    /**
+     * Creates the files and sub folders of a folder.
+     * 
+     * @param pFolder the folder path, an empty string for the root folder
+     * @param pDepth the number of folder levels below the folder
+     * @param pFolders the number of sub folders per folder
+     * @param pFiles the number of files per folder
+     * @param pContent the content of every file
+     * @return the number of created files and folders
+     */
+    private int createTree(String pFolder, int pDepth, int pFolders, int pFiles, byte[] pContent)
+    {
+        int iCount = 0;
+        
+        for (int i = 0; i < pFiles; i++)
+        {
+            put(new Node(pFolder + "/file" + i + ".txt", pContent));
+            
+            iCount++;
+        }
+        
+        if (pDepth > 0)
+        {
+            for (int i = 0; i < pFolders; i++)
+            {
+                String sPath = pFolder + "/folder" + i;
+                
+                put(new Node(sPath, null));
+                
+                iCount += 1 + createTree(sPath, pDepth - 1, pFolders, pFiles, pContent);
+            }
+        }
+        
+        return iCount;
+    }
+    
+    /**
+     * Gets the number of handled requests.
+     * 
+     * @return the number of requests
+     */
+    public long getRequestCount()
+    {
+        return alRequests.get();
+    }
+    
+    /**
+     * Gets the number of requests which failed because of error injection.
+     * 
+     * @return the number of injected errors
+     */
+    public long getErrorCount()
+    {
+        return alErrors.get();
+    }
+    
+    /**
+     * Sets the share of requests which should fail with <code>503 Service Unavailable</code>.
+     * 
+     * @param pErrorRate the share between <code>0</code> (no errors) and <code>1</code> (all requests fail)
+     * @see #getErrorRate()
+     */
+    public void setErrorRate(double pErrorRate)
+    {
+        dErrorRate = pErrorRate;
+    }
+    
+    /**
+     * Gets the share of requests which should fail.
+     * 
+     * @return the share of failing requests
+     * @see #setErrorRate(double)
+     */
+    public double getErrorRate()
+    {
+        return dErrorRate;
+    }
+    
+    /**
+     * Handles a request.
+     * 
+     * @param pMethod the request method
+     * @param pUrl the url
+     * @param pBody the request body or <code>null</code>
+     * @return the response
+     * @throws IOException if the request was interrupted
+     */
+    private Response handle(String pMethod, String pUrl, byte[] pBody) throws IOException
+    {
+        alRequests.incrementAndGet();
+        
+        if (lLatency > 0)
+        {
+            try
+            {
+                Thread.sleep(lLatency);
+            }
+            catch (InterruptedException ie)
+            {
+                throw new InterruptedIOException("Request was interrupted!");
+            }
+        }
+        
+        if (dErrorRate > 0 && random.nextDouble() < dErrorRate)
+        {
+            alErrors.incrementAndGet();
+            
+            return error(503, "Service unavailable");
+        }
+        
+        URI uri;
+        
+        try
+        {
+            uri = new URI(pUrl);
+        }
+        catch (URISyntaxException use)
+        {
+            return error(400, "Invalid url: " + pUrl);
+        }
+        
+        String sApi = uri.getPath();
+        
+        Map<String, String> params = parseParams(uri.getRawQuery());
+        
+        if ("POST".equals(pMethod) && pBody != null)
+        {
+            params.putAll(parseParams(new String(pBody, "UTF-8")));
+        }
+        
+        synchronized (this)
+        {
+            if (sApi.startsWith("/1/metadata/auto"))
+            {
+                return metadata(getPath(sApi, "/1/metadata/auto"), "true".equals(params.get("list")), params.get("hash"));
+            }
+            else if (sApi.startsWith("/1/files/auto"))
+            {
+                return download(getPath(sApi, "/1/files/auto"), params.get("rev"));
+            }
+            else if (sApi.startsWith("/1/thumbnails/auto"))
+            {
+                return thumbnail(getPath(sApi, "/1/thumbnails/auto"));
+            }
+            else if (sApi.startsWith("/1/files_put/auto"))
+            {
+                return upload(getPath(sApi, "/1/files_put/auto"), pBody);
+            }
+            else if (sApi.equals("/1/chunked_upload"))
+            {
+                return appendChunk(params.get("upload_id"), pBody);
+            }
+            else if (sApi.startsWith("/1/commit_chunked_upload/auto"))
+            {
+                ByteArrayOutputStream baos = hmpUploads.remove(params.get("upload_id"));
+                
+                if (baos == null)
+                {
+                    return error(404, "Upload not found");
+                }
+                
+                return upload(getPath(sApi, "/1/commit_chunked_upload/auto"), baos.toByteArray());
+            }
+            else if (sApi.startsWith("/1/search/auto"))
+            {
+                return search(getPath(sApi, "/1/search/auto"), params.get("query"));
+            }
+            else if (sApi.equals("/1/delta"))
+            {
+                return delta(params.get("cursor"), params.get("path_prefix"));
+            }
+            else if (sApi.equals("/1/fileops/create_folder"))
+            {
+                return createFolder(params.get("path"));
+            }
+            else if (sApi.equals("/1/fileops/delete"))
+            {
+                return delete(params.get("path"));
+            }
+            else if (sApi.equals("/1/fileops/move"))
+            {
+                return move(params.get("from_path"), params.get("to_path"));
+            }
+        }
+        
+        return error(400, "Unsupported request: " + pMethod + " " + sApi);
+    }
+    
+    /**
+     * Answers a metadata request.
+     * 
+     * @param pPath the path
+     * @param pList <code>true</code> to list the children of a folder
+     * @param pHash the hash of the last listing or <code>null</code>
+     * @return the response
+     */
+    private Response metadata(String pPath, boolean pList, String pHash)
+    {
+        Node node = tmpNodes.get(toLowerCase(pPath));
+        
+        if (node == null)
+        {
+            return error(404, "Path '" + pPath + "' not found");
+        }
+        
+        //the hash is the revision of the whole tree
+        if (pList && Long.toString(lRevision).equals(pHash))
+        {
+            return new Response(304, new ByteArrayInputStream(new byte[0]), new HashMap<String, List<String>>());
+        }
+        
+        StringBuilder sbJson = new StringBuilder();
+        
+        if (pList && node.byContent == null)
+        {
+            sbJson.append(node.toJson(false));
+            sbJson.setLength(sbJson.length() - 1);
+            sbJson.append(", \"hash\": \"");
+            sbJson.append(lRevision);
+            sbJson.append("\", \"contents\": [");
+            
+            boolean bFirst = true;
+            
+            for (Node child : getChildren(node.sLcPath, false))
+            {
+                if (!bFirst)
+                {
+                    sbJson.append(", ");
+                }
+                
+                sbJson.append(child.toJson(false));
+                
+                bFirst = false;
+            }
+            
+            sbJson.append("]}");
+        }
+        else
+        {
+            sbJson.append(node.toJson(false));
+        }
+        
+        return json(sbJson);
+    }
+    
+    /**
+     * Answers a download request. Only the current revision is available.
+     * 
+     * @param pPath the path
+     * @param pRev the requested revision or <code>null</code> for the current revision
+     * @return the response with the content and the metadata header
+     */
+    private Response download(String pPath, String pRev)
+    {
+        Node node = tmpNodes.get(toLowerCase(pPath));
+        
+        if (node == null || node.byContent == null)
+        {
+            return error(404, "File '" + pPath + "' not found");
+        }
+        
+        if (pRev != null && !pRev.equals(Long.toHexString(node.lRevision)))
+        {
+            return error(404, "Revision '" + pRev + "' of '" + pPath + "' not found");
+        }
+        
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put("x-dropbox-metadata", Collections.singletonList(node.toJson(false)));
+        headers.put("Content-Length", Collections.singletonList(Integer.toString(node.byContent.length)));
+        
+        return new Response(200, new ByteArrayInputStream(node.byContent), headers);
+    }
+    
+    /**
+     * Answers a thumbnail request. The thumbnail is the beginning of the content, at most 1 KB.
+     * 
+     * @param pPath the path
+     * @return the response with the thumbnail and the metadata header
+     */
+    private Response thumbnail(String pPath)
+    {
+        Node node = tmpNodes.get(toLowerCase(pPath));
+        
+        if (node == null || !node.hasThumbnail())
+        {
+            return error(404, "No thumbnail for '" + pPath + "'");
+        }
+        
+        byte[] byThumbnail = new byte[Math.min(node.byContent.length, 1024)];
+        
+        System.arraycopy(node.byContent, 0, byThumbnail, 0, byThumbnail.length);
+        
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put("x-dropbox-metadata", Collections.singletonList(node.toJson(false)));
+        headers.put("Content-Length", Collections.singletonList(Integer.toString(byThumbnail.length)));
+        
+        return new Response(200, new ByteArrayInputStream(byThumbnail), headers);
+    }
+    
+    /**
+     * Saves the content of a file.
+     * 
+     * @param pPath the path
+     * @param pContent the content
+     * @return the response with the file metadata
+     */
+    private Response upload(String pPath, byte[] pContent)
+    {
+        Node node = new Node(pPath, pContent != null ? pContent : new byte[0]);
+        
+        put(node);
+        
+        return json(node.toJson(false));
+    }
+    
+    /**
+     * Appends a chunk to an upload session.
+     * 
+     * @param pUploadId the upload id or <code>null</code> to start a new session
+     * @param pChunk the chunk
+     * @return the response with the upload state
+     */
+    private Response appendChunk(String pUploadId, byte[] pChunk)
+    {
+        String sUploadId = pUploadId;
+        
+        if (sUploadId == null)
+        {
+            sUploadId = "upload" + (++lRevision);
+            
+            hmpUploads.put(sUploadId, new ByteArrayOutputStream());
+        }
+        
+        ByteArrayOutputStream baos = hmpUploads.get(sUploadId);
+        
+        if (baos == null)
+        {
+            return error(404, "Upload not found");
+        }
+        
+        if (pChunk != null)
+        {
+            baos.write(pChunk, 0, pChunk.length);
+        }
+        
+        return json("{\"upload_id\": \"" + sUploadId + "\", \"offset\": " + baos.size() + ", \"expires\": \"" + MODIFIED + "\"}");
+    }
+    
+    /**
+     * Answers a search request. All words of the query have to be part of the name.
+     * 
+     * @param pPath the base path
+     * @param pQuery the query
+     * @return the response with the found entries
+     */
+    private Response search(String pPath, String pQuery)
+    {
+        String[] saWords = toLowerCase(pQuery != null ? pQuery : "").trim().split(" +");
+        
+        StringBuilder sbJson = new StringBuilder("[");
+        
+        int iCount = 0;
+        
+        for (Node node : getChildren(toLowerCase(pPath), true))
+        {
+            String sName = node.sLcPath.substring(node.sLcPath.lastIndexOf('/') + 1);
+            
+            boolean bMatch = true;
+            
+            for (int i = 0; i < saWords.length && bMatch; i++)
+            {
+                bMatch = sName.contains(saWords[i]);
+            }
+            
+            //the API limits the number of results
+            if (bMatch && iCount < 1000)
+            {
+                if (iCount > 0)
+                {
+                    sbJson.append(", ");
+                }
+                
+                sbJson.append(node.toJson(false));
+                
+                iCount++;
+            }
+        }
+        
+        sbJson.append("]");
+        
+        return json(sbJson);
+    }
+    
+    /**
+     * Answers a delta request. Changes aren't tracked, so every changed revision resets the client state.
+     * 
+     * @param pCursor the cursor of the last delta or <code>null</code>
+     * @param pPathPrefix the path prefix or <code>null</code>
+     * @return the response with all entries or without entries if nothing was changed
+     */
+    private Response delta(String pCursor, String pPathPrefix)
+    {
+        String sCursor = Long.toString(lRevision);
+        
+        boolean bReset = !sCursor.equals(pCursor);
+        
+        StringBuilder sbJson = new StringBuilder("{\"reset\": ");
+        sbJson.append(bReset);
+        sbJson.append(", \"cursor\": \"");
+        sbJson.append(sCursor);
+        sbJson.append("\", \"has_more\": false, \"entries\": [");
+        
+        if (bReset)
+        {
+            boolean bFirst = true;
+            
+            for (Node node : getChildren(toLowerCase(pPathPrefix != null ? pPathPrefix : "/"), true))
+            {
+                if (!bFirst)
+                {
+                    sbJson.append(", ");
+                }
+                
+                sbJson.append("[");
+                sbJson.append(quote(node.sLcPath));
+                sbJson.append(", ");
+                sbJson.append(node.toJson(false));
+                sbJson.append("]");
+                
+                bFirst = false;
+            }
+        }
+        
+        sbJson.append("]}");
+        
+        return json(sbJson);
+    }
+    
+    /**
+     * Creates a folder.
+     * 
+     * @param pPath the path
+     * @return the response with the folder metadata
+     */
+    private Response createFolder(String pPath)
+    {
+        if (tmpNodes.containsKey(toLowerCase(pPath)))
+        {
+            return error(403, "Path '" + pPath + "' already exists");
+        }
+        
+        Node node = new Node(pPath, null);
+        
+        put(node);
+        
+        return json(node.toJson(false));
+    }
+    
+    /**
+     * Deletes a file or a folder with all children.
+     * 
+     * @param pPath the path
+     * @return the response with the deleted metadata
+     */
+    private Response delete(String pPath)
+    {
+        Node node = tmpNodes.get(toLowerCase(pPath));
+        
+        if (node == null)
+        {
+            return error(404, "Path '" + pPath + "' not found");
+        }
+        
+        for (Node child : getChildren(node.sLcPath, true))
+        {
+            tmpNodes.remove(child.sLcPath);
+        }
+        
+        tmpNodes.remove(node.sLcPath);
+        
+        lRevision++;
+        
+        return json(node.toJson(true));
+    }
+    
+    /**
+     * Moves a file or a folder with all children.
+     * 
+     * @param pFromPath the current path
+     * @param pToPath the new path
+     * @return the response with the moved metadata
+     */
+    private Response move(String pFromPath, String pToPath)
+    {
+        Node node = tmpNodes.get(toLowerCase(pFromPath));
+        
+        if (node == null)
+        {
+            return error(404, "Path '" + pFromPath + "' not found");
+        }
+        
+        if (tmpNodes.containsKey(toLowerCase(pToPath)))
+        {
+            return error(403, "Path '" + pToPath + "' already exists");
+        }
+        
+        List<Node> liMoved = getChildren(node.sLcPath, true);
+        liMoved.add(node);
+        
+        for (Node moved : liMoved)
+        {
+            tmpNodes.remove(moved.sLcPath);
+        }
+        
+        Node nodeResult = null;
+        
+        for (Node moved : liMoved)
+        {
+            Node nodeNew = new Node(pToPath + moved.sPath.substring(node.sPath.length()), moved.byContent);
+            
+            put(nodeNew);
+            
+            if (moved == node)
+            {
+                nodeResult = nodeNew;
+            }
+        }
+        
+        return json(nodeResult.toJson(false));
+    }
+    
+    /**
+     * Adds or replaces a node.
+     * 
+     * @param pNode the node
+     */
+    private void put(Node pNode)
+    {
+        pNode.lRevision = ++lRevision;
+        
+        tmpNodes.put(pNode.sLcPath, pNode);
+    }
+    
+    /**
+     * Gets the children of a folder, ordered by path.
+     * 
+     * @param pLcFolder the lower-case folder path
+     * @param pDeep <code>true</code> to get the children of all sub folders as well
+     * @return the children
+     */
+    private List<Node> getChildren(String pLcFolder, boolean pDeep)
+    {
+        String sPrefix = "/".equals(pLcFolder) ? "/" : pLcFolder + "/";
+        
+        List<Node> liChildren = new ArrayList<Node>();
+        
+        //'0' follows '/', so the sub map contains all paths with the prefix
+        for (Node node : tmpNodes.subMap(sPrefix, sPrefix.substring(0, sPrefix.length() - 1) + "0").values())
+        {
+            if (node.sLcPath.length() > sPrefix.length() && (pDeep || node.sLcPath.indexOf('/', sPrefix.length()) < 0))
+            {
+                liChildren.add(node);
+            }
+        }
+        
+        return liChildren;
+    }
+    
+    /**
+     * Gets the decoded path of an API url.
+     * 
+     * @param pApi the API path of the url
+     * @param pPrefix the API prefix
+     * @return the path, <code>/</code> for the root folder
+     */
+    private static String getPath(String pApi, String pPrefix)
+    {
+        String sPath = pApi.substring(pPrefix.length());
+        
+        return sPath.length() == 0 ? "/" : sPath;
+    }
+    
+    /**
+     * Parses url encoded parameters.
+     * 
+     * @param pQuery the encoded parameters or <code>null</code>
+     * @return the parameters
+     * @throws UnsupportedEncodingException if UTF-8 isn't supported
+     */
+    private static Map<String, String> parseParams(String pQuery) throws UnsupportedEncodingException
+    {
+        Map<String, String> params = new HashMap<String, String>();
+        
+        if (pQuery != null && pQuery.length() > 0)
+        {
+            for (String sParam : pQuery.split("&"))
+            {
+                int iPos = sParam.indexOf('=');
+                
+                if (iPos > 0)
+                {
+                    params.put(URLDecoder.decode(sParam.substring(0, iPos), "UTF-8"), URLDecoder.decode(sParam.substring(iPos + 1), "UTF-8"));
+                }
+            }
+        }
+        
+        return params;
+    }
+    
+    /**
+     * Creates a JSON response.
+     * 
+     * @param pJson the JSON content
+     * @return the response
+     */
+    private static Response json(CharSequence pJson)
+    {
+        byte[] byJson;
+        
+        try
+        {
+            byJson = pJson.toString().getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException uee)
+        {
+            throw new IllegalStateException(uee);
+        }
+        
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put("Content-Type", Arrays.asList("application/json"));
+        
+        return new Response(200, new ByteArrayInputStream(byJson), headers);
+    }
+    
+    /**
+     * Creates an error response.
+     * 
+     * @param pStatus the status code
+     * @param pMessage the error message
+     * @return the response
+     */
+    private static Response error(int pStatus, String pMessage)
+    {
+        Response response = json("{\"error\": " + quote(pMessage) + "}");
+        
+        return new Response(pStatus, response.body, response.headers);
+    }
+    
+    /**
+     * Quotes a JSON string.
+     * 
+     * @param pValue the value
+     * @return the quoted value
+     */
+    private static String quote(String pValue)
+    {
+        StringBuilder sbValue = new StringBuilder("\"");
+        
+        for (int i = 0; i < pValue.length(); i++)
+        {
+            char ch = pValue.charAt(i);
+            
+            if (ch == '"' || ch == '\\')
+            {
+                sbValue.append('\\');
+                sbValue.append(ch);
+            }
+            else if (ch < 0x20)
+            {
+                sbValue.append(String.format("\\u%04x", Integer.valueOf(ch)));
+            }
+            else
+            {
+                sbValue.append(ch);
+            }
+        }
+        
+        sbValue.append('"');
+        
+        return sbValue.toString();
+    }
+    
+    /**
+     * Gets the lower-case path.
+     * 
+     * @param pPath the path
+     * @return the lower-case path
+     */
+    private static String toLowerCase(String pPath)
+    {
+        return pPath.toLowerCase(Locale.ROOT);
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Node</code> is a file or folder of the fake tree.
+     * 
+     * @author René Jahn
+     */
+    private static final class Node
+    {
+        /** the path. */
+        private String sPath;
+        
+        /** the lower-case path. */
+        private String sLcPath;
+        
+        /** the content, <code>null</code> for a folder. */
+        private byte[] byContent;
+        
+        /** the revision. */
+        private long lRevision;
+        
+        /**
+         * Creates a new instance of <code>Node</code>.
+         * 
+         * @param pPath the path
+         * @param pContent the content, <code>null</code> for a folder
+         */
+        private Node(String pPath, byte[] pContent)
+        {
+            sPath = pPath;
+            sLcPath = toLowerCase(pPath);
+            byContent = pContent;
+        }
+        
+        /**
+         * Gets the metadata as JSON object.
+         * 
+         * @param pDeleted <code>true</code> to mark the entry as deleted
+         * @return the JSON object
+         */
+        private String toJson(boolean pDeleted)
+        {
+            StringBuilder sbJson = new StringBuilder("{\"path\": ");
+            sbJson.append(quote(sPath));
+            sbJson.append(", \"is_dir\": ");
+            sbJson.append(byContent == null);
+            
+            if (pDeleted)
+            {
+                sbJson.append(", \"is_deleted\": true");
+            }
+            
+            if (byContent == null)
+            {
+                sbJson.append(", \"icon\": \"folder\", \"bytes\": 0, \"size\": \"0 bytes\"");
+            }
+            else
+            {
+                sbJson.append(", \"icon\": \"page_white_text\", \"bytes\": ");
+                sbJson.append(byContent.length);
+                sbJson.append(", \"size\": \"");
+                sbJson.append(byContent.length);
+                sbJson.append(" bytes\", \"rev\": \"");
+                sbJson.append(Long.toHexString(lRevision));
+                sbJson.append("\", \"modified\": \"");
+                sbJson.append(MODIFIED);
+                sbJson.append("\", \"client_mtime\": \"");
+                sbJson.append(MODIFIED);
+                sbJson.append("\"");
+            }
+            
+            sbJson.append(", \"thumb_exists\": ");
+            sbJson.append(hasThumbnail());
+            sbJson.append(", \"root\": \"dropbox\"}");
+            
+            return sbJson.toString();
+        }
+        
+        /**
+         * Gets whether the node is an image file with thumbnail.
+         * 
+         * @return <code>true</code> for jpg, png and gif files
+         */
+        private boolean hasThumbnail()
+        {
+            return byContent != null 
+                   && (sLcPath.endsWith(".jpg") || sLcPath.endsWith(".png") || sLcPath.endsWith(".gif"));
+        }
+    
+    }   // Node
+    
+    /**
+     * The <code>FakeUploader</code> collects the request body and handles the request with finish.
+     * 
+     * @author René Jahn
+     */
+    private final class FakeUploader extends Uploader
+    {
+        /** the request method. */
+        private String sMethod;
+        
+        /** the url. */
+        private String sUrl;
+        
+        /**
+         * Creates a new instance of <code>FakeUploader</code>.
+         * 
+         * @param pMethod the request method
+         * @param pUrl the url
+         */
+        private FakeUploader(String pMethod, String pUrl)
+        {
+            super(new ByteArrayOutputStream());
+            
+            sMethod = pMethod;
+            sUrl = pUrl;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Response finish() throws IOException
+        {
+            return handle(sMethod, sUrl, ((ByteArrayOutputStream)body).toByteArray());
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void abort()
+        {
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close()
+        {
+        }
+    
+    }   // FakeUploader
+
+}   // FakeDropboxRequestor
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import jvx.rad.persist.DataSourceException;
+
+/**
+ * The <code>DropboxBatch</code> collects inserts, updates and deletes and executes them concurrently. Operations
+ * which access the same path, or a path within a changed folder, will be executed in the order they were added.
+ * Every operation has its own result or error, as if it was executed with the storage directly.
+ * 
+ * @author René Jahn
+ * @see DropboxStorage#createBatch()
+ */
+public class DropboxBatch
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the storage. */
+    private DropboxStorage storage;
+    
+    /** the operations. */
+    private List<Operation> liOperations = new ArrayList<Operation>();
+    
+    /** the maximum number of concurrent operations. */
+    private int iParallelism;
+    
+    /** the running executor. */
+    private ExecutorService executor;
+    
+    /** the number of unfinished operations. */
+    private CountDownLatch latch;
+    
+    /** whether the batch was executed. */
+    private boolean bExecuted;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates a new instance of <code>DropboxBatch</code>.
+     * 
+     * @param pStorage the storage
+     * @param pParallelism the maximum number of concurrent operations
+     */
+    DropboxBatch(DropboxStorage pStorage, int pParallelism)
+    {
+        storage = pStorage;
+        iParallelism = Math.max(1, pParallelism);
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Adds an insert.
+     * 
+     * @param pNewDataRow the new row
+     * @return the index of the operation
+     */
+    public int insert(Object[] pNewDataRow)
+    {
+        return add(new Operation(null, pNewDataRow, storage.buildPath(pNewDataRow)));
+    }
+    
+    /**
+     * Adds an update.
+     * 
+     * @param pOldDataRow the old row
+     * @param pNewDataRow the new row
+     * @return the index of the operation
+     */
+    public int update(Object[] pOldDataRow, Object[] pNewDataRow)
+    {
+        return add(new Operation(pOldDataRow, pNewDataRow, storage.buildPath(pOldDataRow), storage.buildPath(pNewDataRow)));
+    }
+    
+    /**
+     * Adds a delete.
+     * 
+     * @param pDeleteDataRow the row to delete
+     * @return the index of the operation
+     */
+    public int delete(Object[] pDeleteDataRow)
+    {
+        return add(new Operation(pDeleteDataRow, null, (String)pDeleteDataRow[0]));
+    }
+    
+    /**
+     * Gets the number of operations.
+     * 
+     * @return the number of operations
+     */
+    public int size()
+    {
+        return liOperations.size();
+    }
+    
+    /**
+     * Executes all operations and waits until all operations are finished. Independent operations will be
+     * executed concurrently. If an operation fails, all following operations for the same path won't be
+     * executed.
+     * 
+     * @throws DataSourceException the error of the first failed operation
+     */
+    public void execute() throws DataSourceException
+    {
+        synchronized (this)
+        {
+            if (bExecuted)
+            {
+                throw new IllegalStateException("Batch was already executed!");
+            }
+            
+            bExecuted = true;
+        }
+        
+        int iCount = liOperations.size();
+        
+        if (iCount == 0)
+        {
+            return;
+        }
+        
+        //every operation waits for all previous operations with the same path
+        for (int i = 0; i < iCount; i++)
+        {
+            Operation op = liOperations.get(i);
+            
+            for (int j = 0; j < i; j++)
+            {
+                Operation opPrevious = liOperations.get(j);
+                
+                if (opPrevious.isDependent(op))
+                {
+                    opPrevious.liSuccessors.add(op);
+                    
+                    op.iPending++;
+                }
+            }
+        }
+        
+        latch = new CountDownLatch(iCount);
+        
+        executor = Executors.newFixedThreadPool(Math.min(iParallelism, iCount), new ThreadFactory()
+        {
+            /**
+             * {@inheritDoc}
+             */
+            public Thread newThread(Runnable pRunnable)
+            {
+                Thread th = new Thread(pRunnable, "DropboxStorage batch");
+                th.setDaemon(true);
+                
+                return th;
+            }
+        });
+        
+        try
+        {
+            synchronized (this)
+            {
+                for (Operation op : liOperations)
+                {
+                    if (op.iPending == 0)
+                    {
+                        executor.execute(op);
+                    }
+                }
+            }
+            
+            latch.await();
+        }
+        catch (InterruptedException ie)
+        {
+            throw new DataSourceException("Batch execution was interrupted!", ie);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        
+        for (Operation op : liOperations)
+        {
+            if (op.exError != null)
+            {
+                throw op.exError;
+            }
+        }
+    }
+    
+    /**
+     * Gets the result of an executed operation. It's the same result as with a single insert, update or delete.
+     * 
+     * @param pIndex the index of the operation
+     * @return the result row or <code>null</code> for a delete
+     * @throws DataSourceException the error of the operation
+     */
+    public Object[] getResult(int pIndex) throws DataSourceException
+    {
+        Operation op = liOperations.get(pIndex);
+        
+        if (op.exError != null)
+        {
+            throw op.exError;
+        }
+        
+        return op.oResult;
+    }
+    
+    /**
+     * Adds an operation.
+     * 
+     * @param pOperation the operation
+     * @return the index of the operation
+     */
+    private synchronized int add(Operation pOperation)
+    {
+        if (bExecuted)
+        {
+            throw new IllegalStateException("Batch was already executed!");
+        }
+        
+        liOperations.add(pOperation);
+        
+        return liOperations.size() - 1;
+    }
+    
+    /**
+     * Finishes an operation and starts all following operations which don't wait for other operations.
+     * 
+     * @param pOperation the finished operation
+     */
+    private void finish(Operation pOperation)
+    {
+        synchronized (this)
+        {
+            for (Operation op : pOperation.liSuccessors)
+            {
+                if (pOperation.exError != null && op.exError == null)
+                {
+                    op.exError = new DataSourceException("Previous operation for '" + pOperation.saPaths[0] + "' failed!",
+                                                         pOperation.exError);
+                }
+                
+                op.iPending--;
+                
+                if (op.iPending == 0)
+                {
+                    executor.execute(op);
+                }
+            }
+        }
+        
+        latch.countDown();
+    }
+    
+    /**
+     * Gets whether the given path is the same as or a child of the given folder.
+     * 
+     * @param pPath the lower-case path
+     * @param pFolder the lower-case folder
+     * @return <code>true</code> if the path is the folder or a path within the folder
+     */
+    private static boolean isWithin(String pPath, String pFolder)
+    {
+        if (pPath.equals(pFolder) || "/".equals(pFolder))
+        {
+            return true;
+        }
+        
+        return pPath.startsWith(pFolder) && pPath.charAt(pFolder.length()) == '/';
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Operation</code> is an insert, update or delete.
+     * 
+     * @author René Jahn
+     */
+    private final class Operation implements Runnable
+    {
+        /** the old row. */
+        private Object[] oOldDataRow;
+        
+        /** the new row. */
+        private Object[] oNewDataRow;
+        
+        /** the lower-case paths. */
+        private String[] saPaths;
+        
+        /** the operations which have to wait for this operation. */
+        private List<Operation> liSuccessors = new ArrayList<Operation>();
+        
+        /** the number of operations which have to be finished before this operation. */
+        private int iPending;
+        
+        /** the result. */
+        private Object[] oResult;
+        
+        /** the error. */
+        private DataSourceException exError;
+        
+        /**
+         * Creates a new instance of <code>Operation</code>.
+         * 
+         * @param pOldDataRow the old row, <code>null</code> for an insert
+         * @param pNewDataRow the new row, <code>null</code> for a delete
+         * @param pPaths the paths
+         */
+        private Operation(Object[] pOldDataRow, Object[] pNewDataRow, String... pPaths)
+        {
+            oOldDataRow = pOldDataRow;
+            oNewDataRow = pNewDataRow;
+            
+            saPaths = new String[pPaths.length];
+            
+            for (int i = 0; i < pPaths.length; i++)
+            {
+                saPaths[i] = pPaths[i].toLowerCase(Locale.ROOT);
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void run()
+        {
+            try
+            {
+                //skipped, because a previous operation failed
+                if (exError == null)
+                {
+                    if (oOldDataRow == null)
+                    {
+                        oResult = storage.insert(oNewDataRow);
+                    }
+                    else if (oNewDataRow == null)
+                    {
+                        storage.delete(oOldDataRow);
+                    }
+                    else
+                    {
+                        oResult = storage.update(oOldDataRow, oNewDataRow);
+                    }
+                }
+            }
+            catch (DataSourceException dse)
+            {
+                exError = dse;
+            }
+            catch (RuntimeException re)
+            {
+                exError = new DataSourceException("Operation for '" + saPaths[0] + "' failed!", re);
+            }
+            finally
+            {
+                finish(this);
+            }
+        }
+        
+        /**
+         * Gets whether the given operation has to wait for this operation.
+         * 
+         * @param pOperation a following operation
+         * @return <code>true</code> if both operations access the same path or a path within a folder
+         */
+        private boolean isDependent(Operation pOperation)
+        {
+            for (String sPath : saPaths)
+            {
+                for (String sOtherPath : pOperation.saPaths)
+                {
+                    if (isWithin(sPath, sOtherPath) || isWithin(sOtherPath, sPath))
+                    {
+                        return true;
+                    }
+                }
+            }
+            
+            return false;
+        }
+    
+    }   // Operation
+
+}   // DropboxBatch
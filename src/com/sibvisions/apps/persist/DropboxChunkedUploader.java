@@ -0,0 +1,439 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.dropbox.core.DbxClient;
+import com.dropbox.core.DbxEntry;
+import com.dropbox.core.DbxException;
+import com.dropbox.core.DbxWriteMode;
+
+/**
+ * The <code>DropboxChunkedUploader</code> uploads a stream with a chunked upload session. Every chunk will be
+ * retried on network or server errors, and the upload continues with the offset which was acknowledged by the
+ * server. The next chunk will be read by a background thread while the current chunk is sent.
+ * 
+ * @author René Jahn
+ */
+class DropboxChunkedUploader
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the dropbox client. */
+    private DbxClient client;
+    
+    /** the chunk size. */
+    private int iChunkSize;
+    
+    /** the maximum number of retries per request. */
+    private int iMaxRetries;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates a new instance of <code>DropboxChunkedUploader</code>.
+     * 
+     * @param pClient the dropbox client
+     * @param pChunkSize the chunk size
+     * @param pMaxRetries the maximum number of retries per request
+     */
+    public DropboxChunkedUploader(DbxClient pClient, int pChunkSize, int pMaxRetries)
+    {
+        client = pClient;
+        iChunkSize = pChunkSize;
+        iMaxRetries = pMaxRetries;
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Uploads the content of the given stream. If the content fits in one chunk, it will be uploaded with a
+     * single request.
+     * 
+     * @param pPath the file path
+     * @param pStream the content
+     * @return the uploaded file
+     * @throws Exception if reading the content or the upload fails
+     */
+    public DbxEntry.File upload(String pPath, InputStream pStream) throws Exception
+    {
+        ChunkReader reader = new ChunkReader(pStream);
+        
+        Thread thReader = new Thread(reader, "DropboxStorage upload");
+        thReader.setDaemon(true);
+        thReader.start();
+        
+        try
+        {
+            Chunk chunk = reader.take();
+            
+            if (chunk.iLength < 0)
+            {
+                //empty content
+                chunk = new Chunk(new byte[0], 0, null);
+            }
+            
+            Chunk next = reader.take();
+            
+            if (next.iLength < 0)
+            {
+                //small content
+                return uploadSingle(pPath, chunk);
+            }
+            
+            String sUploadId = uploadFirst(chunk);
+            
+            long lOffset = chunk.iLength;
+            
+            while (next.iLength >= 0)
+            {
+                chunk = next;
+                
+                //the reader fills the next chunk while this one is sent
+                next = reader.take();
+                
+                lOffset = append(sUploadId, lOffset, chunk);
+            }
+            
+            return finish(pPath, sUploadId);
+        }
+        finally
+        {
+            reader.cancel();
+            thReader.interrupt();
+        }
+    }
+    
+    /**
+     * Uploads a single chunk as file.
+     * 
+     * @param pPath the file path
+     * @param pChunk the content
+     * @return the uploaded file
+     * @throws Exception if the upload fails
+     */
+    private DbxEntry.File uploadSingle(String pPath, Chunk pChunk) throws Exception
+    {
+        for (int i = 0; true; i++)
+        {
+            try
+            {
+                return client.uploadFile(pPath, DbxWriteMode.force(), pChunk.iLength,
+                                         new ByteArrayInputStream(pChunk.byData, 0, pChunk.iLength));
+            }
+            catch (DbxException ex)
+            {
+                checkRetry(ex, i);
+            }
+        }
+    }
+    
+    /**
+     * Starts the upload session with the first chunk.
+     * 
+     * @param pChunk the first chunk
+     * @return the upload id
+     * @throws Exception if the upload fails
+     */
+    private String uploadFirst(Chunk pChunk) throws Exception
+    {
+        for (int i = 0; true; i++)
+        {
+            try
+            {
+                return client.chunkedUploadFirst(pChunk.byData, 0, pChunk.iLength);
+            }
+            catch (DbxException ex)
+            {
+                checkRetry(ex, i);
+            }
+        }
+    }
+    
+    /**
+     * Appends a chunk to the upload session. If the server reports another offset than expected, the upload
+     * continues with the acknowledged offset.
+     * 
+     * @param pUploadId the upload id
+     * @param pOffset the offset of the chunk
+     * @param pChunk the chunk
+     * @return the offset after the chunk
+     * @throws Exception if the upload fails
+     */
+    private long append(String pUploadId, long pOffset, Chunk pChunk) throws Exception
+    {
+        long lEnd = pOffset + pChunk.iLength;
+        
+        long lOffset = pOffset;
+        
+        int iRetry = 0;
+        
+        while (lOffset < lEnd)
+        {
+            int iStart = (int)(lOffset - pOffset);
+            
+            long lCorrect;
+            
+            try
+            {
+                lCorrect = client.chunkedUploadAppend(pUploadId, lOffset, pChunk.byData, iStart, pChunk.iLength - iStart);
+            }
+            catch (DbxException ex)
+            {
+                checkRetry(ex, iRetry++);
+                
+                //send again: if the server received the data, it answers with the correct offset
+                continue;
+            }
+            
+            if (lCorrect < 0)
+            {
+                lOffset = lEnd;
+            }
+            else if (lCorrect < pOffset || lCorrect > lEnd)
+            {
+                throw new IOException("Upload offset mismatch: expected " + lOffset + ", server has " + lCorrect);
+            }
+            else
+            {
+                //continue with acknowledged offset
+                lOffset = lCorrect;
+            }
+        }
+        
+        return lEnd;
+    }
+    
+    /**
+     * Finishes the upload session.
+     * 
+     * @param pPath the file path
+     * @param pUploadId the upload id
+     * @return the uploaded file
+     * @throws Exception if finishing fails
+     */
+    private DbxEntry.File finish(String pPath, String pUploadId) throws Exception
+    {
+        for (int i = 0; true; i++)
+        {
+            try
+            {
+                return client.chunkedUploadFinish(pPath, DbxWriteMode.force(), pUploadId);
+            }
+            catch (DbxException ex)
+            {
+                checkRetry(ex, i);
+            }
+        }
+    }
+    
+    /**
+     * Checks whether a failed request should be retried and waits before the retry. The backoff delay is
+     * shared with all other requests of the access token.
+     * 
+     * @param pException the request error
+     * @param pRetry the number of previous retries
+     * @throws Exception the given error, if the request shouldn't be retried
+     */
+    private void checkRetry(DbxException pException, int pRetry) throws Exception
+    {
+        if (pRetry >= iMaxRetries
+            || !(pException instanceof DbxException.NetworkIO
+                 || pException instanceof DbxException.ServerError
+                 || pException instanceof DbxException.RetryLater
+                 || (pException instanceof DbxException.BadResponseCode
+                     && ((DbxException.BadResponseCode)pException).statusCode == 429)))
+        {
+            throw pException;
+        }
+        
+        long lDelay = DropboxRateLimiter.getInstance(client.getAccessToken()).backoff(pRetry, 0, false);
+        
+        //the pooled requestor waits for the limiter before the next request
+        if (!(client.getRequestConfig().httpRequestor instanceof DropboxHttpRequestor))
+        {
+            Thread.sleep(lDelay);
+        }
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Chunk</code> is a part of the content.
+     * 
+     * @author René Jahn
+     */
+    private static final class Chunk
+    {
+        /** the data. */
+        private byte[] byData;
+        
+        /** the data length, <code>-1</code> for end of stream. */
+        private int iLength;
+        
+        /** the read error. */
+        private Throwable thError;
+        
+        /**
+         * Creates a new instance of <code>Chunk</code>.
+         * 
+         * @param pData the data
+         * @param pLength the data length
+         * @param pError the read error
+         */
+        private Chunk(byte[] pData, int pLength, Throwable pError)
+        {
+            byData = pData;
+            iLength = pLength;
+            thError = pError;
+        }
+    
+    }   // Chunk
+    
+    /**
+     * The <code>ChunkReader</code> reads the content chunk by chunk. It reads at most one chunk ahead.
+     * 
+     * @author René Jahn
+     */
+    private final class ChunkReader implements Runnable
+    {
+        /** the read chunks. */
+        private BlockingQueue<Chunk> queue = new ArrayBlockingQueue<Chunk>(1);
+        
+        /** the content. */
+        private InputStream stream;
+        
+        /** whether reading was cancelled. */
+        private volatile boolean bCancelled;
+        
+        /**
+         * Creates a new instance of <code>ChunkReader</code>.
+         * 
+         * @param pStream the content
+         */
+        private ChunkReader(InputStream pStream)
+        {
+            stream = pStream;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void run()
+        {
+            try
+            {
+                int iLength;
+                
+                do
+                {
+                    byte[] byData = new byte[iChunkSize];
+                    
+                    iLength = 0;
+                    
+                    int iRead = 0;
+                    
+                    while (iLength < iChunkSize && (iRead = stream.read(byData, iLength, iChunkSize - iLength)) >= 0)
+                    {
+                        iLength += iRead;
+                    }
+                    
+                    if (iLength > 0)
+                    {
+                        queue.put(new Chunk(byData, iLength, null));
+                    }
+                }
+                while (iLength == iChunkSize && !bCancelled);
+                
+                queue.put(new Chunk(null, -1, null));
+            }
+            catch (InterruptedException ie)
+            {
+                //cancelled
+            }
+            catch (Throwable th)
+            {
+                //all errors, also of custom streams, because the upload waits for the next chunk
+                try
+                {
+                    queue.put(new Chunk(null, -1, th));
+                }
+                catch (InterruptedException ie)
+                {
+                    //cancelled
+                }
+            }
+        }
+        
+        /**
+         * Gets the next chunk.
+         * 
+         * @return the chunk, with length <code>-1</code> for end of stream
+         * @throws Exception if reading the content failed
+         */
+        private Chunk take() throws Exception
+        {
+            Chunk chunk = queue.take();
+            
+            if (chunk.thError instanceof Error)
+            {
+                throw (Error)chunk.thError;
+            }
+            else if (chunk.thError != null)
+            {
+                throw (Exception)chunk.thError;
+            }
+            
+            if (chunk.byData == null && chunk.iLength < 0)
+            {
+                //remember end of stream for further calls
+                queue.offer(chunk);
+            }
+            
+            return chunk;
+        }
+        
+        /**
+         * Cancels reading.
+         */
+        private void cancel()
+        {
+            bCancelled = true;
+            
+            queue.clear();
+        }
+    
+    }   // ChunkReader
+
+}   // DropboxChunkedUploader
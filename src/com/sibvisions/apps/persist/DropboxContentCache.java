@@ -0,0 +1,531 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.dropbox.core.DbxClient;
+import com.dropbox.core.DbxEntry;
+import com.sibvisions.apps.persist.DropboxMetrics.Operation;
+import com.sibvisions.util.type.CommonUtil;
+import com.sibvisions.util.type.FileUtil;
+
+/**
+ * The <code>DropboxContentCache</code> is a process-wide cache for downloaded file content. The content is
+ * stored in temp files, mapped by access token, path and revision. The cache has a byte budget and removes
+ * the least recently used files if the budget is exceeded. Files which are still read will be deleted
+ * after the last reader has released them. The cached files will be deleted when the JVM shuts down. The 
+ * access token is identified by its hash, so that the cache doesn't keep access tokens.
+ * 
+ * @author René Jahn
+ */
+final class DropboxContentCache
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the shared instance. */
+    private static final DropboxContentCache INSTANCE = new DropboxContentCache();
+    
+    /** the cached entries in LRU order. */
+    private LinkedHashMap<String, Entry> lhmEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    
+    /** the download locks, mapped by key. */
+    private ConcurrentHashMap<String, Object> chmLocks = new ConcurrentHashMap<String, Object>();
+    
+    /** the maximum cache size in bytes. */
+    private long lMaxSize;
+    
+    /** the current cache size in bytes. */
+    private long lSize;
+    
+    /** the number of reads from cache. */
+    private long lHits;
+    
+    /** the number of downloads. */
+    private long lMisses;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Invisible constructor, because the <code>DropboxContentCache</code> is a singleton.
+     */
+    private DropboxContentCache()
+    {
+        //the temp files aren't registered for deleteOnExit, because the registration is never removed
+        Runtime.getRuntime().addShutdownHook(new Thread("DropboxContentCache cleanup")
+        {
+            @Override
+            public void run()
+            {
+                clear();
+            }
+        });
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Gets the shared instance.
+     * 
+     * @return the cache
+     */
+    public static DropboxContentCache getInstance()
+    {
+        return INSTANCE;
+    }
+    
+    /**
+     * Gets the content of the given file and acquires a reference. The content will be downloaded if it's
+     * not cached. Concurrent requests for the same revision share one download. Every acquired entry has to
+     * be released with {@link #release(Entry)}.
+     * 
+     * @param pClient the dropbox client
+     * @param pPath the file path
+     * @param pRev the file revision or <code>null</code> if the revision is unknown
+     * @param pMetrics the metrics for recording a download or <code>null</code> if downloads shouldn't be
+     *                 recorded
+     * @return the cached entry
+     * @throws Exception if downloading the file fails
+     */
+    public Entry acquire(DbxClient pClient, String pPath, String pRev, DropboxMetrics pMetrics) throws Exception
+    {
+        if (pRev == null)
+        {
+            //key is known after the download
+            return download(pClient, pPath, null, pMetrics);
+        }
+        
+        String sKey = createKey(pClient, pPath, pRev);
+        
+        Entry entry = acquire(sKey);
+        
+        if (entry != null)
+        {
+            return entry;
+        }
+        
+        Object oLock = new Object();
+        Object oCurrent = chmLocks.putIfAbsent(sKey, oLock);
+        
+        if (oCurrent != null)
+        {
+            oLock = oCurrent;
+        }
+        
+        synchronized (oLock)
+        {
+            try
+            {
+                entry = acquire(sKey);
+                
+                if (entry == null)
+                {
+                    entry = download(pClient, pPath, pRev, pMetrics);
+                }
+                
+                return entry;
+            }
+            finally
+            {
+                chmLocks.remove(sKey, oLock);
+            }
+        }
+    }
+    
+    /**
+     * Releases an acquired entry. The file will be deleted if the entry was removed from the cache and
+     * this was the last reference.
+     * 
+     * @param pEntry the entry
+     */
+    public synchronized void release(Entry pEntry)
+    {
+        pEntry.iReferences--;
+        
+        if (pEntry.iReferences <= 0 && pEntry.bRemoved)
+        {
+            pEntry.file.delete();
+        }
+    }
+    
+    /**
+     * Sets the maximum cache size. The least recently used files will be removed if the cache is larger
+     * than the new size.
+     * 
+     * @param pMaxSize the maximum size in bytes, <code>0</code> to disable the cache
+     */
+    public synchronized void setMaxSize(long pMaxSize)
+    {
+        lMaxSize = Math.max(0, pMaxSize);
+        
+        evict();
+    }
+    
+    /**
+     * Gets the maximum cache size.
+     * 
+     * @return the maximum size in bytes
+     */
+    public synchronized long getMaxSize()
+    {
+        return lMaxSize;
+    }
+    
+    /**
+     * Gets the current cache size.
+     * 
+     * @return the size of all cached files in bytes
+     */
+    public synchronized long getSize()
+    {
+        return lSize;
+    }
+    
+    /**
+     * Gets whether the cache is enabled.
+     * 
+     * @return <code>true</code> if the maximum size is greater than <code>0</code>
+     */
+    public synchronized boolean isEnabled()
+    {
+        return lMaxSize > 0;
+    }
+    
+    /**
+     * Gets the number of reads which were answered from cache.
+     * 
+     * @return the number of cache hits
+     */
+    public synchronized long getHitCount()
+    {
+        return lHits;
+    }
+    
+    /**
+     * Gets the number of downloads.
+     * 
+     * @return the number of cache misses
+     */
+    public synchronized long getMissCount()
+    {
+        return lMisses;
+    }
+    
+    /**
+     * Removes all cached files. Files which are still read will be deleted after release.
+     */
+    public synchronized void clear()
+    {
+        for (Entry entry : lhmEntries.values())
+        {
+            remove(entry);
+        }
+        
+        lhmEntries.clear();
+        
+        lSize = 0;
+    }
+    
+    /**
+     * Gets the cached entry and acquires a reference.
+     * 
+     * @param pKey the key
+     * @return the entry or <code>null</code> if the key isn't cached
+     */
+    private synchronized Entry acquire(String pKey)
+    {
+        Entry entry = lhmEntries.get(pKey);
+        
+        if (entry != null)
+        {
+            if (entry.file.exists())
+            {
+                entry.iReferences++;
+                
+                lHits++;
+                
+                return entry;
+            }
+            
+            //deleted by someone else
+            lhmEntries.remove(pKey);
+            
+            lSize -= entry.lLength;
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Downloads the file and adds it to the cache. The returned entry is acquired. Only downloads will be 
+     * recorded, because cache hits are counted by the cache.
+     * 
+     * @param pClient the dropbox client
+     * @param pPath the file path
+     * @param pRev the file revision or <code>null</code> for the current revision
+     * @param pMetrics the metrics or <code>null</code> if the download shouldn't be recorded
+     * @return the cached entry
+     * @throws Exception if downloading the file fails
+     */
+    private Entry download(DbxClient pClient, String pPath, String pRev, DropboxMetrics pMetrics) throws Exception
+    {
+        long lStart = System.nanoTime();
+        
+        Entry entry;
+        
+        try
+        {
+            entry = downloadFile(pClient, pPath, pRev);
+        }
+        catch (Exception ex)
+        {
+            if (pMetrics != null)
+            {
+                pMetrics.record(Operation.Download, lStart, 0, false);
+            }
+            
+            throw ex;
+        }
+        
+        if (pMetrics != null)
+        {
+            pMetrics.record(Operation.Download, lStart, entry.lLength, true);
+        }
+        
+        return entry;
+    }
+    
+    /**
+     * Downloads the file into a temp file and adds it to the cache. The returned entry is acquired.
+     * 
+     * @param pClient the dropbox client
+     * @param pPath the file path
+     * @param pRev the file revision or <code>null</code> for the current revision
+     * @return the cached entry
+     * @throws Exception if downloading the file fails
+     */
+    private Entry downloadFile(DbxClient pClient, String pPath, String pRev) throws Exception
+    {
+        String sName = FileUtil.getName(pPath);
+        String sExtension = FileUtil.getExtension(sName);
+        
+        File fiNew = File.createTempFile("dbx_" + FileUtil.removeExtension(sName), sExtension != null ? "." + sExtension : null);
+        
+        DbxEntry.File metaData;
+        
+        MessageDigest digest = DropboxContentHashes.createDigest();
+        
+        FileOutputStream fos = null;
+        
+        try
+        {
+            fos = new FileOutputStream(fiNew);
+            
+            metaData = pClient.getFile(pPath, pRev, new DigestOutputStream(fos, digest));
+        }
+        catch (Exception ex)
+        {
+            CommonUtil.close(fos);
+            
+            fiNew.delete();
+            
+            throw ex;
+        }
+        finally
+        {
+            CommonUtil.close(fos);
+        }
+        
+        if (metaData == null)
+        {
+            fiNew.delete();
+            
+            if (pRev != null)
+            {
+                //the handle is stale
+                throw new IllegalArgumentException("Revision '" + pRev + "' of file '" + pPath + "' not found!");
+            }
+            
+            throw new IllegalArgumentException("File '" + pPath + "' not found!");
+        }
+        
+        DropboxContentHashes.getInstance().put(pClient, metaData, digest, fiNew.length());
+        
+        return put(createKey(pClient, metaData.path, metaData.rev), fiNew, metaData);
+    }
+    
+    /**
+     * Adds a downloaded file. If the key is already cached, the given file will be deleted and the cached
+     * entry is used. The returned entry is acquired.
+     * 
+     * @param pKey the key
+     * @param pFile the downloaded file
+     * @param pMetaData the file metadata
+     * @return the cached entry
+     */
+    private synchronized Entry put(String pKey, File pFile, DbxEntry.File pMetaData)
+    {
+        lMisses++;
+        
+        Entry entry = lhmEntries.get(pKey);
+        
+        if (entry != null && entry.file.exists())
+        {
+            pFile.delete();
+        }
+        else
+        {
+            entry = new Entry(pFile, pMetaData);
+            
+            lhmEntries.put(pKey, entry);
+            
+            lSize += entry.lLength;
+        }
+        
+        entry.iReferences++;
+        
+        evict();
+        
+        return entry;
+    }
+    
+    /**
+     * Removes the least recently used entries until the cache size is within the budget.
+     */
+    private void evict()
+    {
+        Iterator<Entry> it = lhmEntries.values().iterator();
+        
+        while (lSize > lMaxSize && it.hasNext())
+        {
+            Entry entry = it.next();
+            
+            it.remove();
+            
+            lSize -= entry.lLength;
+            
+            remove(entry);
+        }
+    }
+    
+    /**
+     * Marks an entry as removed and deletes the file if it's not in use.
+     * 
+     * @param pEntry the entry
+     */
+    private void remove(Entry pEntry)
+    {
+        pEntry.bRemoved = true;
+        
+        if (pEntry.iReferences <= 0)
+        {
+            pEntry.file.delete();
+        }
+    }
+    
+    /**
+     * Creates the cache key for a file revision.
+     * 
+     * @param pClient the dropbox client
+     * @param pPath the file path
+     * @param pRev the file revision
+     * @return the key
+     */
+    private static String createKey(DbxClient pClient, String pPath, String pRev)
+    {
+        return DropboxContentHashes.getTokenId(pClient) + "|" + pPath.toLowerCase(Locale.ROOT) + "|" + pRev;
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Entry</code> is a cached file.
+     * 
+     * @author René Jahn
+     */
+    static final class Entry
+    {
+        /** the cached file. */
+        private File file;
+        
+        /** the file metadata. */
+        private DbxEntry.File metaData;
+        
+        /** the file length. */
+        private long lLength;
+        
+        /** the number of references. */
+        private int iReferences;
+        
+        /** whether the entry was removed from the cache. */
+        private boolean bRemoved;
+        
+        /**
+         * Creates a new instance of <code>Entry</code>.
+         * 
+         * @param pFile the cached file
+         * @param pMetaData the file metadata
+         */
+        private Entry(File pFile, DbxEntry.File pMetaData)
+        {
+            file = pFile;
+            metaData = pMetaData;
+            lLength = pFile.length();
+        }
+        
+        /**
+         * Gets the cached file.
+         * 
+         * @return the file
+         */
+        public File getFile()
+        {
+            return file;
+        }
+        
+        /**
+         * Gets the file metadata.
+         * 
+         * @return the metadata
+         */
+        public DbxEntry.File getMetaData()
+        {
+            return metaData;
+        }
+    
+    }   // Entry
+
+}   // DropboxContentCache
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.dropbox.core.DbxClient;
+import com.dropbox.core.DbxEntry;
+import com.sibvisions.util.type.CommonUtil;
+
+/**
+ * The <code>DropboxContentHashes</code> is a process-wide registry of content hashes. The metadata of the
+ * dropbox API doesn't contain a content hash, so the hashes of uploaded and downloaded revisions will be
+ * computed while the content is transferred. The registry keeps the last known revision per access token
+ * and path, and removes the least recently used paths if it contains more than {@link #MAX_ENTRIES} paths.
+ * The access token is identified by its hash, so that static caches don't keep access tokens.
+ * 
+ * @author René Jahn
+ */
+final class DropboxContentHashes
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the maximum number of paths. */
+    static final int MAX_ENTRIES = 100000;
+    
+    /** the hash algorithm. */
+    private static final String ALGORITHM = "SHA-256";
+    
+    /** the shared instance. */
+    private static final DropboxContentHashes INSTANCE = new DropboxContentHashes();
+    
+    /** the token ids, mapped by client. */
+    private static WeakHashMap<DbxClient, String> whmTokenIds = new WeakHashMap<DbxClient, String>();
+    
+    /** the known revisions in LRU order, mapped by key. */
+    private LinkedHashMap<String, Revision> lhmRevisions = new LinkedHashMap<String, Revision>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Revision> pEldest)
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Invisible constructor, because the <code>DropboxContentHashes</code> is a singleton.
+     */
+    private DropboxContentHashes()
+    {
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Gets the shared instance.
+     * 
+     * @return the registry
+     */
+    public static DropboxContentHashes getInstance()
+    {
+        return INSTANCE;
+    }
+    
+    /**
+     * Creates a new digest for computing a content hash.
+     * 
+     * @return the digest
+     */
+    public static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException nsae)
+        {
+            //SHA-256 is available in every JRE
+            throw new IllegalStateException(nsae);
+        }
+    }
+    
+    /**
+     * Gets the id of an access token. The id is the hex encoded hash of the access token.
+     * 
+     * @param pAccessToken the access token or <code>null</code>
+     * @return the id or an empty string for <code>null</code>
+     */
+    public static String getTokenId(String pAccessToken)
+    {
+        if (pAccessToken == null)
+        {
+            return "";
+        }
+        
+        byte[] byHash = createDigest().digest(pAccessToken.getBytes(StandardCharsets.UTF_8));
+        
+        StringBuilder sbId = new StringBuilder(byHash.length * 2);
+        
+        for (int i = 0; i < byHash.length; i++)
+        {
+            sbId.append(Character.forDigit((byHash[i] >> 4) & 0xF, 16));
+            sbId.append(Character.forDigit(byHash[i] & 0xF, 16));
+        }
+        
+        return sbId.toString();
+    }
+    
+    /**
+     * Gets the id of the access token of a client. The id will be computed once per client.
+     * 
+     * @param pClient the dropbox client
+     * @return the id
+     * @see #getTokenId(String)
+     */
+    public static String getTokenId(DbxClient pClient)
+    {
+        synchronized (whmTokenIds)
+        {
+            String sId = whmTokenIds.get(pClient);
+            
+            if (sId == null)
+            {
+                sId = getTokenId(pClient.getAccessToken());
+                
+                whmTokenIds.put(pClient, sId);
+            }
+            
+            return sId;
+        }
+    }
+    
+    /**
+     * Computes the content hash of a stream. The stream will be read until the end and closed.
+     * 
+     * @param pStream the content
+     * @return the hash
+     * @throws IOException if reading the stream fails
+     */
+    public static byte[] hash(InputStream pStream) throws IOException
+    {
+        MessageDigest digest = createDigest();
+        
+        try
+        {
+            byte[] byBuffer = new byte[8192];
+            
+            int iLen;
+            
+            while ((iLen = pStream.read(byBuffer)) >= 0)
+            {
+                digest.update(byBuffer, 0, iLen);
+            }
+        }
+        finally
+        {
+            CommonUtil.close(pStream);
+        }
+        
+        return digest.digest();
+    }
+    
+    /**
+     * Registers the content hash of a revision. The hash replaces the hash of an older revision of the same
+     * path.
+     * 
+     * @param pClient the dropbox client
+     * @param pFile the file metadata
+     * @param pHash the content hash
+     */
+    public synchronized void put(DbxClient pClient, DbxEntry.File pFile, byte[] pHash)
+    {
+        if (pFile.rev != null)
+        {
+            lhmRevisions.put(createKey(pClient, pFile.path), new Revision(pFile.rev, pFile.numBytes, pHash));
+        }
+    }
+    
+    /**
+     * Registers the content hash of a revision, if the digest has read the whole content of the revision.
+     * 
+     * @param pClient the dropbox client
+     * @param pFile the file metadata
+     * @param pDigest the digest
+     * @param pLength the number of bytes, read by the digest
+     */
+    public void put(DbxClient pClient, DbxEntry.File pFile, MessageDigest pDigest, long pLength)
+    {
+        if (pFile != null && pFile.numBytes == pLength)
+        {
+            put(pClient, pFile, pDigest.digest());
+        }
+    }
+    
+    /**
+     * Gets the hash of the last known revision of a path.
+     * 
+     * @param pClient the dropbox client
+     * @param pPath the file path
+     * @param pLength the content length
+     * @return the hash or <code>null</code> if no revision with the given length is known
+     */
+    public synchronized byte[] get(DbxClient pClient, String pPath, long pLength)
+    {
+        Revision revision = lhmRevisions.get(createKey(pClient, pPath));
+        
+        if (revision != null && revision.lLength == pLength)
+        {
+            return revision.byHash;
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Gets whether the given metadata describes the last known revision of the path, with the given hash.
+     * 
+     * @param pClient the dropbox client
+     * @param pFile the file metadata
+     * @param pHash the content hash
+     * @return <code>true</code> if the revision and hash are known, <code>false</code> otherwise
+     */
+    public synchronized boolean isKnown(DbxClient pClient, DbxEntry.File pFile, byte[] pHash)
+    {
+        Revision revision = lhmRevisions.get(createKey(pClient, pFile.path));
+        
+        return revision != null
+               && revision.sRev.equals(pFile.rev)
+               && revision.lLength == pFile.numBytes
+               && MessageDigest.isEqual(revision.byHash, pHash);
+    }
+    
+    /**
+     * Gets the number of known paths.
+     * 
+     * @return the number of paths
+     */
+    public synchronized int size()
+    {
+        return lhmRevisions.size();
+    }
+    
+    /**
+     * Removes all hashes.
+     */
+    public synchronized void clear()
+    {
+        lhmRevisions.clear();
+    }
+    
+    /**
+     * Creates the key for a path.
+     * 
+     * @param pClient the dropbox client
+     * @param pPath the file path
+     * @return the key
+     */
+    private static String createKey(DbxClient pClient, String pPath)
+    {
+        return getTokenId(pClient) + "|" + pPath.toLowerCase(Locale.ROOT);
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Revision</code> is the known content of a path.
+     * 
+     * @author René Jahn
+     */
+    private static final class Revision
+    {
+        /** the revision. */
+        private final String sRev;
+        
+        /** the content length. */
+        private final long lLength;
+        
+        /** the content hash. */
+        private final byte[] byHash;
+        
+        /**
+         * Creates a new instance of <code>Revision</code>.
+         * 
+         * @param pRev the revision
+         * @param pLength the content length
+         * @param pHash the content hash
+         */
+        private Revision(String pRev, long pLength, byte[] pHash)
+        {
+            sRev = pRev;
+            lLength = pLength;
+            byHash = pHash;
+        }
+    
+    }   // Revision
+
+}   // DropboxContentHashes
@@ -20,16 +20,22 @@
  */
 package com.sibvisions.apps.persist;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 
 import jvx.rad.io.IFileHandle;
 
 import com.dropbox.core.DbxClient;
 import com.dropbox.core.DbxEntry;
+import com.sibvisions.apps.persist.DropboxMetrics.Operation;
 import com.sibvisions.util.IValidatable;
 import com.sibvisions.util.type.CommonUtil;
 import com.sibvisions.util.type.FileUtil;
@@ -38,7 +44,7 @@ import com.sibvisions.util.type.FileUtil;
  * The <code>DropboxFileHandle</code> is an {@link IFileHandle} which is connected to a file located
  * in a dropbox container.
  * 
- * @author Ren Jahn
+ * @author René Jahn
  */
 class DropboxFileHandle implements IFileHandle,
                                    IValidatable
@@ -47,6 +53,9 @@ class DropboxFileHandle implements IFileHandle,
     // Class members
     //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
     
+    /** the maximum size of content which can be kept in memory. */
+    private static final long MAX_MEMORY_SIZE = Integer.MAX_VALUE - 8;
+    
     /** the dropbox client. */
     private DbxClient client;
     
@@ -62,6 +71,15 @@ class DropboxFileHandle implements IFileHandle,
     /** the file metadata. */
     private DbxEntry.File metaData;
     
+    /** the prefetched content. */
+    private volatile byte[] byContent;
+    
+    /** the metrics or <code>null</code> if downloads shouldn't be recorded. */
+    private DropboxMetrics metrics;
+    
+    /** whether the content should be streamed without temp file. */
+    private boolean bStreaming;
+    
     //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
     // Initialization
     //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -117,9 +135,35 @@ class DropboxFileHandle implements IFileHandle,
      */
     public InputStream getInputStream() throws IOException
     {
-        init();
+        byte[] byData = byContent;
+        
+        if (byData != null)
+        {
+            return new ByteArrayInputStream(byData);
+        }
+        
+        if (bStreaming && fiTemp == null)
+        {
+            return openStream();
+        }
+        
+        DropboxContentCache cache = DropboxContentCache.getInstance();
         
-        return new FileInputStream(fiTemp);
+        if (fiTemp == null && cache.isEnabled())
+        {
+            return openCachedStream(cache);
+        }
+        
+        File fiContent;
+        
+        synchronized (this)
+        {
+            init();
+            
+            fiContent = fiTemp;
+        }
+        
+        return new FileInputStream(fiContent);
     }
 
     /**
@@ -132,9 +176,17 @@ class DropboxFileHandle implements IFileHandle,
         {
             return file.numBytes;
         }
+        else if (byContent != null)
+        {
+            return byContent.length;
+        }
+        else if (fiTemp != null)
+        {
+            return fiTemp.length();
+        }
         else
         {
-            return fiTemp != null ? fiTemp.length() : -1; 
+            return metaData != null ? metaData.numBytes : -1; 
         }
     }
 
@@ -154,37 +206,343 @@ class DropboxFileHandle implements IFileHandle,
     // User-defined methods
     //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
 
+    /**
+     * Downloads the content into memory. The content will be read from memory, because the handle reads one 
+     * revision. Nothing will be downloaded if the content is already available.
+     * 
+     * @throws IOException if downloading the file fails or the file is too large for memory
+     */
+    public synchronized void prefetch() throws IOException
+    {
+        if (byContent != null || fiTemp != null)
+        {
+            return;
+        }
+        
+        long lLength = getLength();
+        
+        if (lLength > MAX_MEMORY_SIZE)
+        {
+            throw new IOException("File '" + getFileName() + "' is too large for memory!");
+        }
+        
+        long lStart = System.nanoTime();
+        
+        try
+        {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream((int)Math.max(32, lLength));
+            
+            DbxEntry.File fileMeta = client.getFile(getPath(), getRevision(), baos);
+            
+            if (fileMeta == null)
+            {
+                throw createNotFoundException();
+            }
+            
+            metaData = fileMeta;
+            byContent = baos.toByteArray();
+            
+            MessageDigest digest = DropboxContentHashes.createDigest();
+            digest.update(byContent);
+            
+            DropboxContentHashes.getInstance().put(client, fileMeta, digest, byContent.length);
+            
+            recordDownload(lStart, byContent.length, true);
+        }
+        catch (IOException ioe)
+        {
+            recordDownload(lStart, 0, false);
+            
+            throw ioe;
+        }
+        catch (Exception ex)
+        {
+            recordDownload(lStart, 0, false);
+            
+            throw new IOException("Can't download '" + getFileName() + "'!", ex);
+        }
+    }
+    
+    /**
+     * Gets whether the content was downloaded into memory.
+     * 
+     * @return <code>true</code> if the content is in memory, <code>false</code> otherwise
+     * @see #prefetch()
+     */
+    public boolean isPrefetched()
+    {
+        return byContent != null;
+    }
+    
+    /**
+     * Sets whether the content should be streamed directly from the download response. A streamed content
+     * won't be cached in a temp file, so every call of {@link #getInputStream()} downloads the content again.
+     * 
+     * @param pStreaming <code>true</code> to stream the content, <code>false</code> to download the content 
+     *                   to a temp file
+     */
+    public void setStreaming(boolean pStreaming)
+    {
+        bStreaming = pStreaming;
+    }
+    
+    /**
+     * Gets whether the content will be streamed directly from the download response.
+     * 
+     * @return <code>true</code> if the content will be streamed, <code>false</code> otherwise
+     */
+    public boolean isStreaming()
+    {
+        return bStreaming;
+    }
+    
+    /**
+     * Sets the metrics for recording the downloads.
+     * 
+     * @param pMetrics the metrics or <code>null</code> if downloads shouldn't be recorded
+     */
+    public void setMetrics(DropboxMetrics pMetrics)
+    {
+        metrics = pMetrics;
+    }
+    
+    /**
+     * Gets the metrics for recording the downloads.
+     * 
+     * @return the metrics or <code>null</code> if downloads won't be recorded
+     * @see #setMetrics(DropboxMetrics)
+     */
+    public DropboxMetrics getMetrics()
+    {
+        return metrics;
+    }
+    
+    /**
+     * Records a finished download.
+     * 
+     * @param pStart the start time of the download ({@link System#nanoTime()})
+     * @param pBytes the number of bytes
+     * @param pSuccess <code>true</code> if the download was successful
+     */
+    private void recordDownload(long pStart, long pBytes, boolean pSuccess)
+    {
+        DropboxMetrics dm = metrics;
+        
+        if (dm != null)
+        {
+            dm.record(Operation.Download, pStart, pBytes, pSuccess);
+        }
+    }
+    
+    /**
+     * Gets the file path.
+     * 
+     * @return the path
+     */
+    private String getPath()
+    {
+        return file != null ? file.path : sPath;
+    }
+    
+    /**
+     * Gets the revision which will be downloaded. The handle of a listed file reads the listed revision, so
+     * that the content is the same as the content of the cache key.
+     * 
+     * @return the revision or <code>null</code> for the current revision
+     */
+    private String getRevision()
+    {
+        return file != null ? file.rev : null;
+    }
+    
+    /**
+     * Creates the exception for a file or revision which wasn't found. A revision which wasn't found means that
+     * the handle is stale and the record has to be fetched again.
+     * 
+     * @return the exception
+     */
+    private IOException createNotFoundException()
+    {
+        if (getRevision() != null)
+        {
+            return new IOException("Revision '" + getRevision() + "' of file '" + getFileName() + "' not found!");
+        }
+        
+        return new IOException("File '" + getFileName() + "' not found!");
+    }
+    
+    /**
+     * Opens a stream which reads directly from the download response.
+     * 
+     * @return the stream
+     * @throws IOException if starting the download fails
+     */
+    private InputStream openStream() throws IOException
+    {
+        final DbxClient.Downloader downloader;
+        
+        long lStart = System.nanoTime();
+        
+        try
+        {
+            downloader = client.startGetFile(getPath(), getRevision());
+        }
+        catch (Exception ex)
+        {
+            recordDownload(lStart, 0, false);
+            
+            throw new IOException("Can't download '" + getFileName() + "'!", ex);
+        }
+        
+        if (downloader == null)
+        {
+            recordDownload(lStart, 0, false);
+            
+            throw createNotFoundException();
+        }
+        
+        metaData = downloader.metadata;
+        
+        DropboxMetrics dm = metrics;
+        
+        InputStream stream = dm != null ? dm.recordDownload(downloader.body, lStart) : downloader.body;
+        
+        return new FilterInputStream(stream)
+        {
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void close() throws IOException
+            {
+                try
+                {
+                    in.close();
+                }
+                finally
+                {
+                    downloader.close();
+                }
+            }
+        };
+    }
+    
+    /**
+     * Opens a stream which reads from the shared content cache. The cached file is referenced until the
+     * stream will be closed.
+     * 
+     * @param pCache the content cache
+     * @return the stream
+     * @throws IOException if downloading the file fails
+     */
+    private InputStream openCachedStream(final DropboxContentCache pCache) throws IOException
+    {
+        final DropboxContentCache.Entry entry;
+        
+        try
+        {
+            //the cache records downloads, but not cache hits
+            entry = pCache.acquire(client, getPath(), getRevision(), metrics);
+        }
+        catch (IOException ioe)
+        {
+            throw ioe;
+        }
+        catch (Exception ex)
+        {
+            throw new IOException("Can't download '" + getFileName() + "'!", ex);
+        }
+        
+        metaData = entry.getMetaData();
+        
+        try
+        {
+            return new FileInputStream(entry.getFile())
+            {
+                /** whether the stream was closed. */
+                private boolean bClosed;
+                
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        synchronized (this)
+                        {
+                            if (!bClosed)
+                            {
+                                bClosed = true;
+                                
+                                pCache.release(entry);
+                            }
+                        }
+                    }
+                }
+            };
+        }
+        catch (IOException ioe)
+        {
+            pCache.release(entry);
+            
+            throw ioe;
+        }
+    }
+    
     /**
      * Initializes the temp file.
      */
-    private void init()
+    private synchronized void init()
     {
         if (fiTemp == null)
         {
             String sName = getFileName();
             
+            long lStart = System.nanoTime();
+            
             try
             {
                 File fiNew = File.createTempFile(FileUtil.removeExtension(sName), FileUtil.getExtension(sName));
                 fiNew.deleteOnExit();
                 
+                MessageDigest digest = DropboxContentHashes.createDigest();
+                
                 FileOutputStream fos = null;
 
                 try
                 {
                     fos = new FileOutputStream(fiNew);
                     
-                    metaData = client.getFile(file != null ? file.path : sPath, null, fos);
+                    metaData = client.getFile(getPath(), getRevision(), new DigestOutputStream(fos, digest));
                 }
                 finally
                 {
                     CommonUtil.close(fos);
                 }
                 
+                if (metaData == null)
+                {
+                    fiNew.delete();
+                    
+                    throw createNotFoundException();
+                }
+                
+                DropboxContentHashes.getInstance().put(client, metaData, digest, fiNew.length());
+                
                 fiTemp = fiNew;
+                
+                recordDownload(lStart, fiNew.length(), true);
             }
             catch (Exception ex)
             {
+                recordDownload(lStart, 0, false);
+                
                 throw new RuntimeException(ex);
             }
         }
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import com.dropbox.core.DbxEntry;
+import com.sibvisions.util.type.StringUtil;
+
+/**
+ * The <code>DropboxFolderStatistics</code> counts the files and sub folders of every listed folder. The
+ * statistics will be recorded with every folder listing and updated with every change, so that the number
+ * of records can be estimated without remote access.
+ * 
+ * @author René Jahn
+ */
+class DropboxFolderStatistics
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the root path. */
+    private static final String ROOT = "/";
+    
+    /** the statistics, mapped by lower-case folder path. */
+    private HashMap<String, Statistic> hmpFolders = new HashMap<String, Statistic>();
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Records the children of a listed folder.
+     * 
+     * @param pFolder the folder path
+     * @param pChildren the children
+     */
+    public synchronized void setChildren(String pFolder, List<DbxEntry> pChildren)
+    {
+        Statistic stat = new Statistic();
+        
+        if (pChildren != null)
+        {
+            for (DbxEntry entry : pChildren)
+            {
+                if (entry.isFolder())
+                {
+                    stat.liFolders.add(toLowerCase(entry.path));
+                }
+                else
+                {
+                    stat.iFiles++;
+                }
+            }
+        }
+        
+        hmpFolders.put(toLowerCase(pFolder), stat);
+    }
+    
+    /**
+     * Counts a new file or folder.
+     * 
+     * @param pPath the path
+     * @param pFolder <code>true</code> if the path is a folder
+     */
+    public synchronized void add(String pPath, boolean pFolder)
+    {
+        String sLcPath = toLowerCase(pPath);
+        
+        Statistic stat = hmpFolders.get(getParentPath(sLcPath));
+        
+        if (stat != null)
+        {
+            if (!pFolder)
+            {
+                stat.iFiles++;
+            }
+            else if (!stat.liFolders.contains(sLcPath))
+            {
+                stat.liFolders.add(sLcPath);
+            }
+        }
+    }
+    
+    /**
+     * Removes a file or folder. The statistics of all sub folders will be removed as well.
+     * 
+     * @param pPath the path
+     * @param pFolder <code>true</code> if the path is a folder
+     */
+    public synchronized void remove(String pPath, boolean pFolder)
+    {
+        String sLcPath = toLowerCase(pPath);
+        
+        Statistic stat = hmpFolders.get(getParentPath(sLcPath));
+        
+        if (stat != null)
+        {
+            if (!pFolder)
+            {
+                stat.iFiles = Math.max(0, stat.iFiles - 1);
+            }
+            else
+            {
+                stat.liFolders.remove(sLcPath);
+            }
+        }
+        
+        if (pFolder)
+        {
+            String sPrefix = sLcPath + "/";
+            
+            for (Iterator<String> it = hmpFolders.keySet().iterator(); it.hasNext();)
+            {
+                String sKey = it.next();
+                
+                if (sKey.equals(sLcPath) || sKey.startsWith(sPrefix))
+                {
+                    it.remove();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gets the first folder without statistics.
+     * 
+     * @param pFolder the folder path
+     * @param pDeep <code>true</code> to check all sub folders as well
+     * @return the path of the folder or <code>null</code> if statistics for all folders are available
+     */
+    public synchronized String getMissingFolder(String pFolder, boolean pDeep)
+    {
+        String sLcFolder = toLowerCase(pFolder);
+        
+        Statistic stat = hmpFolders.get(sLcFolder);
+        
+        if (stat == null)
+        {
+            return sLcFolder;
+        }
+        
+        if (pDeep)
+        {
+            for (String sSubFolder : stat.liFolders)
+            {
+                String sMissing = getMissingFolder(sSubFolder, true);
+                
+                if (sMissing != null)
+                {
+                    return sMissing;
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Counts the children of the given folder. Sub folders without statistics won't be counted.
+     * 
+     * @param pFolder the folder path
+     * @param pDeep <code>true</code> to count the children of all sub folders as well
+     * @param pFiles <code>true</code> to count files
+     * @param pFolders <code>true</code> to count folders
+     * @return the number of children
+     */
+    public synchronized int count(String pFolder, boolean pDeep, boolean pFiles, boolean pFolders)
+    {
+        Statistic stat = hmpFolders.get(toLowerCase(pFolder));
+        
+        if (stat == null)
+        {
+            return 0;
+        }
+        
+        int iCount = 0;
+        
+        if (pFiles)
+        {
+            iCount += stat.iFiles;
+        }
+        
+        if (pFolders)
+        {
+            iCount += stat.liFolders.size();
+        }
+        
+        if (pDeep)
+        {
+            for (String sSubFolder : stat.liFolders)
+            {
+                iCount += count(sSubFolder, true, pFiles, pFolders);
+            }
+        }
+        
+        return iCount;
+    }
+    
+    /**
+     * Removes all statistics.
+     */
+    public synchronized void clear()
+    {
+        hmpFolders.clear();
+    }
+    
+    /**
+     * Gets the parent path of the given path.
+     * 
+     * @param pPath the path
+     * @return the parent path
+     */
+    private static String getParentPath(String pPath)
+    {
+        int iPos = pPath.lastIndexOf('/');
+        
+        if (iPos <= 0)
+        {
+            return ROOT;
+        }
+        
+        return pPath.substring(0, iPos);
+    }
+    
+    /**
+     * Gets the lower-case path, as used by dropbox for case-insensitive comparison.
+     * 
+     * @param pPath the path
+     * @return the lower-case path
+     */
+    private static String toLowerCase(String pPath)
+    {
+        if (StringUtil.isEmpty(pPath))
+        {
+            return ROOT;
+        }
+        
+        String sPath = pPath.toLowerCase(Locale.ROOT);
+        
+        if (sPath.length() > 1 && sPath.endsWith("/"))
+        {
+            sPath = sPath.substring(0, sPath.length() - 1);
+        }
+        
+        return sPath;
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Statistic</code> contains the counts of a folder.
+     * 
+     * @author René Jahn
+     */
+    private static final class Statistic
+    {
+        /** the number of files. */
+        private int iFiles;
+        
+        /** the lower-case paths of the sub folders. */
+        private List<String> liFolders = new ArrayList<String>();
+    
+    }   // Statistic
+
+}   // DropboxFolderStatistics
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The <code>DropboxFolderTable</code> is a flyweight table of folder paths. All records with the same folder
+ * share the same folder and parent folder instance, and the parent of every folder will be computed only
+ * once. The folder of a path will be found without creating a substring, so that a listing doesn't create
+ * temporary strings for already known folders.
+ * <p>
+ * Lookups are lock-free, new folders will be added synchronized. The table will be cleared if it contains
+ * more than {@link #MAX_FOLDERS} folders.
+ * </p>
+ * 
+ * @author René Jahn
+ */
+final class DropboxFolderTable
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the root folder. */
+    static final String ROOT = "/";
+    
+    /** the maximum number of folders. */
+    static final int MAX_FOLDERS = 100000;
+    
+    /** the initial number of buckets. */
+    private static final int INITIAL_CAPACITY = 64;
+    
+    /** the buckets. */
+    private volatile AtomicReferenceArray<Folder> buckets = new AtomicReferenceArray<Folder>(INITIAL_CAPACITY);
+    
+    /** the number of folders. */
+    private int iSize;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Gets the folder of a file or folder path, e.g. <code>/a/b</code> for <code>/a/b/c.txt</code>.
+     * 
+     * @param pPath the path
+     * @return the shared folder path, {@link #ROOT} for entries of the root folder
+     */
+    String getFolder(String pPath)
+    {
+        int iEnd = pPath.lastIndexOf('/');
+        
+        if (iEnd <= 0)
+        {
+            return ROOT;
+        }
+        
+        if (pPath.charAt(0) != '/')
+        {
+            return get("/" + pPath.substring(0, iEnd), iEnd + 1).sPath;
+        }
+        
+        return get(pPath, iEnd).sPath;
+    }
+    
+    /**
+     * Gets the parent folder of a folder.
+     * 
+     * @param pFolder the folder path
+     * @return the shared parent folder path, <code>null</code> for the root folder
+     */
+    String getParentFolder(String pFolder)
+    {
+        if (ROOT.equals(pFolder))
+        {
+            return null;
+        }
+        
+        return get(pFolder, pFolder.length()).sParent;
+    }
+    
+    /**
+     * Gets the shared instance of a folder path.
+     * 
+     * @param pFolder the folder path
+     * @return the shared folder path
+     */
+    String intern(String pFolder)
+    {
+        if (ROOT.equals(pFolder))
+        {
+            return ROOT;
+        }
+        
+        return get(pFolder, pFolder.length()).sPath;
+    }
+    
+    /**
+     * Gets the number of folders.
+     * 
+     * @return the number of folders
+     */
+    synchronized int size()
+    {
+        return iSize;
+    }
+    
+    /**
+     * Removes all folders.
+     */
+    synchronized void clear()
+    {
+        buckets = new AtomicReferenceArray<Folder>(INITIAL_CAPACITY);
+        iSize = 0;
+    }
+    
+    /**
+     * Gets the folder for the beginning of a path. The folder will be added if it's unknown.
+     * 
+     * @param pPath the path
+     * @param pEnd the end index of the folder path (exclusive)
+     * @return the folder
+     */
+    private Folder get(String pPath, int pEnd)
+    {
+        int iHash = hash(pPath, pEnd);
+        
+        Folder folder = find(buckets, pPath, pEnd, iHash);
+        
+        if (folder != null)
+        {
+            return folder;
+        }
+        
+        String sPath = pEnd == pPath.length() ? pPath : pPath.substring(0, pEnd);
+        
+        //outside the lock because of the recursion
+        String sParent = getFolder(sPath);
+        
+        synchronized (this)
+        {
+            AtomicReferenceArray<Folder> arBuckets = buckets;
+            
+            folder = find(arBuckets, pPath, pEnd, iHash);
+            
+            if (folder == null)
+            {
+                if (iSize >= MAX_FOLDERS)
+                {
+                    clear();
+                    
+                    arBuckets = buckets;
+                }
+                else if (iSize >= arBuckets.length() * 3 / 4)
+                {
+                    arBuckets = resize(arBuckets);
+                }
+                
+                int iIndex = iHash & (arBuckets.length() - 1);
+                
+                folder = new Folder(sPath, sParent, iHash, arBuckets.get(iIndex));
+                
+                arBuckets.set(iIndex, folder);
+                
+                iSize++;
+            }
+            
+            return folder;
+        }
+    }
+    
+    /**
+     * Doubles the number of buckets.
+     * 
+     * @param pBuckets the current buckets
+     * @return the new buckets
+     */
+    private AtomicReferenceArray<Folder> resize(AtomicReferenceArray<Folder> pBuckets)
+    {
+        AtomicReferenceArray<Folder> arBuckets = new AtomicReferenceArray<Folder>(pBuckets.length() * 2);
+        
+        for (int i = 0, cnt = pBuckets.length(); i < cnt; i++)
+        {
+            //the folders are immutable, so readers of the old buckets are not affected
+            for (Folder folder = pBuckets.get(i); folder != null; folder = folder.next)
+            {
+                int iIndex = folder.iHash & (arBuckets.length() - 1);
+                
+                arBuckets.set(iIndex, new Folder(folder.sPath, folder.sParent, folder.iHash, arBuckets.get(iIndex)));
+            }
+        }
+        
+        buckets = arBuckets;
+        
+        return arBuckets;
+    }
+    
+    /**
+     * Finds a folder.
+     * 
+     * @param pBuckets the buckets
+     * @param pPath the path
+     * @param pEnd the end index of the folder path (exclusive)
+     * @param pHash the hash of the folder path
+     * @return the folder or <code>null</code> if the folder is unknown
+     */
+    private static Folder find(AtomicReferenceArray<Folder> pBuckets, String pPath, int pEnd, int pHash)
+    {
+        for (Folder folder = pBuckets.get(pHash & (pBuckets.length() - 1)); folder != null; folder = folder.next)
+        {
+            if (folder.iHash == pHash
+                && folder.sPath.length() == pEnd
+                && pPath.regionMatches(0, folder.sPath, 0, pEnd))
+            {
+                return folder;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Gets the hash of the beginning of a path, without creating the substring.
+     * 
+     * @param pPath the path
+     * @param pEnd the end index (exclusive)
+     * @return the hash
+     */
+    private static int hash(String pPath, int pEnd)
+    {
+        int iHash = 0;
+        
+        for (int i = 0; i < pEnd; i++)
+        {
+            iHash = 31 * iHash + pPath.charAt(i);
+        }
+        
+        return iHash ^ (iHash >>> 16);
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Folder</code> is an immutable entry of the table.
+     * 
+     * @author René Jahn
+     */
+    private static final class Folder
+    {
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        // Class members
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        
+        /** the folder path. */
+        private final String sPath;
+        
+        /** the parent folder path. */
+        private final String sParent;
+        
+        /** the hash of the folder path. */
+        private final int iHash;
+        
+        /** the next folder of the same bucket. */
+        private final Folder next;
+        
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        // Initialization
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        
+        /**
+         * Creates a new instance of <code>Folder</code>.
+         * 
+         * @param pPath the folder path
+         * @param pParent the parent folder path
+         * @param pHash the hash of the folder path
+         * @param pNext the next folder of the same bucket
+         */
+        private Folder(String pPath, String pParent, int pHash, Folder pNext)
+        {
+            sPath = pPath;
+            sParent = pParent;
+            iHash = pHash;
+            next = pNext;
+        }
+    
+    }   // Folder
+
+}   // DropboxFolderTable
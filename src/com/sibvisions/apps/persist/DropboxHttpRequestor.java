@@ -0,0 +1,898 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HttpsURLConnection;
+
+import com.dropbox.core.http.HttpRequestor;
+import com.dropbox.core.http.SSLConfig;
+import com.sibvisions.util.type.CommonUtil;
+
+/**
+ * The <code>DropboxHttpRequestor</code> sends the requests with keep-alive connections. The number of connections
+ * per host can be limited, and a connection will be reused as soon as the response was read and closed. The
+ * idle connections are kept by the keep-alive cache of the JVM, which keeps <code>http.maxConnections</code>
+ * idle connections per host (default: 5). A connection limit will be reduced to this number, because every
+ * additional connection would be closed after use and the next request would need a new TLS handshake. Set
+ * the system property at startup of the JVM, to allow more connections.
+ * <p>
+ * All requests of an access token are scheduled by a {@link DropboxRateLimiter}. Throttled requests and server
+ * errors will be repeated after the requested retry time or a backoff delay, if the request can be repeated.
+ * Uploads with more than 1 MB or without content length won't be repeated, because the content isn't buffered.
+ * The limiter of the last access token is kept by the requestor, so that it's not resolved per request.
+ * </p>
+ * <p>
+ * The certificate and cipher configuration is the same as with the <code>StandardHttpRequestor</code>.
+ * </p>
+ * 
+ * @author René Jahn
+ */
+public class DropboxHttpRequestor extends HttpRequestor
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the number of idle connections per host, kept by the keep-alive cache of the JVM. */
+    private static final int KEEP_ALIVE_CONNECTIONS = Math.max(1, Integer.getInteger("http.maxConnections", 5).intValue());
+    
+    /** the maximum size of a buffered request body, which can be repeated. */
+    private static final int REPLAY_LIMIT = 1024 * 1024;
+    
+    /** the connection limits, mapped by host. */
+    private ConcurrentHashMap<String, Semaphore> chmLimits = new ConcurrentHashMap<String, Semaphore>();
+    
+    /** the proxy. */
+    private Proxy proxy;
+    
+    /** the maximum number of connections per host. */
+    private int iMaxConnectionsPerHost;
+    
+    /** the connect timeout (ms). */
+    private int iConnectTimeout;
+    
+    /** the read timeout (ms). */
+    private int iReadTimeout;
+    
+    /** the maximum number of retries per request. */
+    private int iMaxRetries;
+    
+    /** the limiter of the last access token. */
+    private volatile TokenLimiter tlLast;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates a new instance of <code>DropboxHttpRequestor</code>.
+     * 
+     * @param pProxy the proxy or <code>null</code> for a direct connection
+     * @param pMaxConnectionsPerHost the maximum number of concurrent connections per host, <code>0</code> for
+     *                               no limit
+     * @param pConnectTimeout the connect timeout (ms)
+     * @param pReadTimeout the read timeout (ms)
+     */
+    public DropboxHttpRequestor(Proxy pProxy, int pMaxConnectionsPerHost, int pConnectTimeout, int pReadTimeout)
+    {
+        this(pProxy, pMaxConnectionsPerHost, pConnectTimeout, pReadTimeout, 3);
+    }
+    
+    /**
+     * Creates a new instance of <code>DropboxHttpRequestor</code>.
+     * 
+     * @param pProxy the proxy or <code>null</code> for a direct connection
+     * @param pMaxConnectionsPerHost the maximum number of concurrent connections per host, <code>0</code> for
+     *                               no limit
+     * @param pConnectTimeout the connect timeout (ms)
+     * @param pReadTimeout the read timeout (ms)
+     * @param pMaxRetries the maximum number of retries per request
+     */
+    public DropboxHttpRequestor(Proxy pProxy, int pMaxConnectionsPerHost, int pConnectTimeout, int pReadTimeout, int pMaxRetries)
+    {
+        proxy = pProxy != null ? pProxy : Proxy.NO_PROXY;
+        
+        if (pMaxConnectionsPerHost <= 0)
+        {
+            iMaxConnectionsPerHost = 0;
+        }
+        else
+        {
+            //more connections wouldn't be reused
+            iMaxConnectionsPerHost = Math.min(pMaxConnectionsPerHost, KEEP_ALIVE_CONNECTIONS);
+        }
+        iConnectTimeout = pConnectTimeout;
+        iReadTimeout = pReadTimeout;
+        iMaxRetries = Math.max(0, pMaxRetries);
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Abstract methods implementation
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Response doGet(String pUrl, Iterable<Header> pHeaders) throws IOException
+    {
+        return execute("GET", pUrl, pHeaders, null);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Uploader startPost(String pUrl, Iterable<Header> pHeaders) throws IOException
+    {
+        return startUpload("POST", pUrl, pHeaders);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Uploader startPut(String pUrl, Iterable<Header> pHeaders) throws IOException
+    {
+        return startUpload("PUT", pUrl, pHeaders);
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Gets the proxy.
+     * 
+     * @return the proxy
+     */
+    public Proxy getProxy()
+    {
+        return proxy;
+    }
+    
+    /**
+     * Gets the maximum number of concurrent connections per host.
+     * 
+     * @return the maximum number of connections, <code>0</code> for no limit
+     */
+    public int getMaxConnectionsPerHost()
+    {
+        return iMaxConnectionsPerHost;
+    }
+    
+    /**
+     * Gets the connect timeout.
+     * 
+     * @return the timeout (ms)
+     */
+    public int getConnectTimeout()
+    {
+        return iConnectTimeout;
+    }
+    
+    /**
+     * Gets the read timeout.
+     * 
+     * @return the timeout (ms)
+     */
+    public int getReadTimeout()
+    {
+        return iReadTimeout;
+    }
+    
+    /**
+     * Gets the maximum number of retries per request.
+     * 
+     * @return the maximum number of retries
+     */
+    public int getMaxRetries()
+    {
+        return iMaxRetries;
+    }
+    
+    /**
+     * Sends a request and repeats it, if it was throttled or failed and can be repeated.
+     * 
+     * @param pMethod the request method
+     * @param pUrl the url
+     * @param pHeaders the request headers
+     * @param pBody the request body or <code>null</code> if the request has no body
+     * @return the response
+     * @throws IOException if the request fails
+     */
+    private Response execute(String pMethod, String pUrl, Iterable<Header> pHeaders, byte[] pBody) throws IOException
+    {
+        DropboxRateLimiter limiter = getLimiter(pHeaders);
+        
+        for (int iRetry = 0; true; iRetry++)
+        {
+            waitFor(limiter);
+            
+            Permit permit = acquire(pUrl);
+            
+            Response response;
+            
+            try
+            {
+                HttpsURLConnection conn = prepRequest(pUrl, pHeaders, pBody != null);
+                conn.setRequestMethod(pMethod);
+                
+                if (pBody != null)
+                {
+                    conn.setDoOutput(true);
+                    conn.setFixedLengthStreamingMode(pBody.length);
+                    
+                    OutputStream out = conn.getOutputStream();
+                    out.write(pBody);
+                    out.close();
+                }
+                else
+                {
+                    conn.connect();
+                }
+                
+                response = toResponse(conn, permit);
+            }
+            catch (IOException ioe)
+            {
+                permit.release();
+                
+                //the request may have been processed -> repeat only requests without side effects
+                if ("GET".equals(pMethod) && iRetry < iMaxRetries)
+                {
+                    limiter.backoff(iRetry, 0, false);
+                    
+                    continue;
+                }
+                
+                throw ioe;
+            }
+            catch (RuntimeException re)
+            {
+                permit.release();
+                
+                throw re;
+            }
+            
+            if (!isRetryable(pMethod, response.statusCode))
+            {
+                limiter.success();
+                
+                return response;
+            }
+            
+            limiter.backoff(iRetry, getRetryAfter(response), isThrottled(response.statusCode));
+            
+            if (iRetry >= iMaxRetries)
+            {
+                return response;
+            }
+            
+            CommonUtil.close(response.body);
+        }
+    }
+    
+    /**
+     * Starts an upload request. The request body will be buffered, if it's small enough, so that the request
+     * can be repeated.
+     * 
+     * @param pMethod the request method
+     * @param pUrl the url
+     * @param pHeaders the request headers
+     * @return the uploader
+     * @throws IOException if the connection fails
+     */
+    private Uploader startUpload(String pMethod, String pUrl, Iterable<Header> pHeaders) throws IOException
+    {
+        long lLength = -1;
+        
+        for (Header header : pHeaders)
+        {
+            if ("Content-Length".equalsIgnoreCase(header.key))
+            {
+                lLength = Long.parseLong(header.value);
+            }
+        }
+        
+        if (lLength >= 0 && lLength <= REPLAY_LIMIT)
+        {
+            return new BufferedUploader(pMethod, pUrl, pHeaders);
+        }
+        
+        DropboxRateLimiter limiter = getLimiter(pHeaders);
+        
+        waitFor(limiter);
+        
+        Permit permit = acquire(pUrl);
+        
+        try
+        {
+            HttpsURLConnection conn = prepRequest(pUrl, pHeaders, true);
+            conn.setRequestMethod(pMethod);
+            conn.setDoOutput(true);
+            
+            if (lLength < 0)
+            {
+                //stream the body of unknown length instead of buffering it
+                conn.setChunkedStreamingMode(0);
+            }
+            
+            return new PooledUploader(conn, permit, limiter);
+        }
+        catch (IOException ioe)
+        {
+            permit.release();
+            
+            throw ioe;
+        }
+        catch (RuntimeException re)
+        {
+            permit.release();
+            
+            throw re;
+        }
+    }
+    
+    /**
+     * Creates and configures the connection.
+     * 
+     * @param pUrl the url
+     * @param pHeaders the request headers
+     * @param pUpload <code>true</code> if the request has a body
+     * @return the connection
+     * @throws IOException if creating the connection fails
+     */
+    private HttpsURLConnection prepRequest(String pUrl, Iterable<Header> pHeaders, boolean pUpload) throws IOException
+    {
+        HttpsURLConnection conn = (HttpsURLConnection)new URL(pUrl).openConnection(proxy);
+        
+        SSLConfig.apply(conn);
+        
+        conn.setConnectTimeout(iConnectTimeout);
+        conn.setReadTimeout(iReadTimeout);
+        conn.setUseCaches(false);
+        conn.setAllowUserInteraction(false);
+        
+        for (Header header : pHeaders)
+        {
+            if (pUpload && "Content-Length".equalsIgnoreCase(header.key))
+            {
+                //stream the body instead of buffering it
+                conn.setFixedLengthStreamingMode(Long.parseLong(header.value));
+            }
+            else
+            {
+                conn.addRequestProperty(header.key, header.value);
+            }
+        }
+        
+        return conn;
+    }
+    
+    /**
+     * Reads the response of the given connection. The connection will be released when the response body
+     * is closed.
+     * 
+     * @param pConnection the connection
+     * @param pPermit the connection permit
+     * @return the response
+     * @throws IOException if reading the response fails
+     */
+    private static Response toResponse(HttpsURLConnection pConnection, Permit pPermit) throws IOException
+    {
+        int iStatus = pConnection.getResponseCode();
+        
+        InputStream in;
+        
+        if (iStatus >= 400)
+        {
+            in = pConnection.getErrorStream();
+        }
+        else
+        {
+            in = pConnection.getInputStream();
+        }
+        
+        if (in == null)
+        {
+            pPermit.release();
+        }
+        else
+        {
+            in = new PermitInputStream(in, pPermit);
+        }
+        
+        return new Response(iStatus, in, pConnection.getHeaderFields());
+    }
+    
+    /**
+     * Gets the rate limiter for the access token of a request. The limiter of the last access token is kept,
+     * so that it's still used after the storage was closed.
+     * 
+     * @param pHeaders the request headers
+     * @return the limiter
+     */
+    private DropboxRateLimiter getLimiter(Iterable<Header> pHeaders)
+    {
+        String sToken = null;
+        
+        for (Header header : pHeaders)
+        {
+            if ("Authorization".equalsIgnoreCase(header.key) && header.value != null && header.value.startsWith("Bearer "))
+            {
+                sToken = header.value.substring(7);
+                
+                break;
+            }
+        }
+        
+        TokenLimiter tlCurrent = tlLast;
+        
+        if (tlCurrent == null || !CommonUtil.equals(tlCurrent.sToken, sToken))
+        {
+            tlCurrent = new TokenLimiter(sToken, DropboxRateLimiter.getInstance(sToken));
+            
+            tlLast = tlCurrent;
+        }
+        
+        return tlCurrent.limiter;
+    }
+    
+    /**
+     * Waits until the limiter allows the next request.
+     * 
+     * @param pLimiter the limiter
+     * @throws InterruptedIOException if waiting was interrupted
+     */
+    private static void waitFor(DropboxRateLimiter pLimiter) throws InterruptedIOException
+    {
+        try
+        {
+            pLimiter.acquire();
+        }
+        catch (InterruptedException ie)
+        {
+            throw new InterruptedIOException("Waiting for request was interrupted!");
+        }
+    }
+    
+    /**
+     * Gets whether a request can be repeated after the given response status.
+     * 
+     * @param pMethod the request method
+     * @param pStatus the response status
+     * @return <code>true</code> if the request was throttled, or if it has no side effects and the server failed
+     */
+    private static boolean isRetryable(String pMethod, int pStatus)
+    {
+        return isThrottled(pStatus) || ("GET".equals(pMethod) && (pStatus == 500 || pStatus == 502 || pStatus == 504));
+    }
+    
+    /**
+     * Gets whether the given response status means that the request was throttled and not processed.
+     * 
+     * @param pStatus the response status
+     * @return <code>true</code> for "Too many requests" and "Service unavailable"
+     */
+    private static boolean isThrottled(int pStatus)
+    {
+        return pStatus == 429 || pStatus == 503;
+    }
+    
+    /**
+     * Gets the requested retry time of the given response.
+     * 
+     * @param pResponse the response
+     * @return the retry time (ms) or <code>0</code> if no time was requested
+     */
+    private static long getRetryAfter(Response pResponse)
+    {
+        for (Map.Entry<String, ? extends List<String>> entry : pResponse.headers.entrySet())
+        {
+            if ("Retry-After".equalsIgnoreCase(entry.getKey()) && !entry.getValue().isEmpty())
+            {
+                try
+                {
+                    return Long.parseLong(entry.getValue().get(0).trim()) * 1000;
+                }
+                catch (NumberFormatException nfe)
+                {
+                    //HTTP date isn't supported
+                    return 0;
+                }
+            }
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Acquires a connection permit for the host of the given url. If the connection limit is reached, it
+     * waits until a connection will be released, but not longer than the read timeout.
+     * 
+     * @param pUrl the url
+     * @return the permit
+     * @throws IOException if no connection was released in time
+     */
+    private Permit acquire(String pUrl) throws IOException
+    {
+        if (iMaxConnectionsPerHost <= 0)
+        {
+            return new Permit(null);
+        }
+        
+        String sHost = new URL(pUrl).getAuthority();
+        
+        Semaphore sem = chmLimits.get(sHost);
+        
+        if (sem == null)
+        {
+            sem = new Semaphore(iMaxConnectionsPerHost, true);
+            
+            Semaphore semCurrent = chmLimits.putIfAbsent(sHost, sem);
+            
+            if (semCurrent != null)
+            {
+                sem = semCurrent;
+            }
+        }
+        
+        try
+        {
+            if (iReadTimeout > 0)
+            {
+                if (!sem.tryAcquire(iReadTimeout, TimeUnit.MILLISECONDS))
+                {
+                    throw new IOException("No connection available for '" + sHost + "'!");
+                }
+            }
+            else
+            {
+                sem.acquire();
+            }
+        }
+        catch (InterruptedException ie)
+        {
+            throw new InterruptedIOException("Waiting for connection was interrupted!");
+        }
+        
+        return new Permit(sem);
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Permit</code> is an acquired connection. It can be released only once.
+     * 
+     * @author René Jahn
+     */
+    private static final class Permit
+    {
+        /** the connection limit or <code>null</code> if there's no limit. */
+        private Semaphore semaphore;
+        
+        /**
+         * Creates a new instance of <code>Permit</code>.
+         * 
+         * @param pSemaphore the connection limit
+         */
+        private Permit(Semaphore pSemaphore)
+        {
+            semaphore = pSemaphore;
+        }
+        
+        /**
+         * Releases the connection.
+         */
+        private synchronized void release()
+        {
+            if (semaphore != null)
+            {
+                semaphore.release();
+                
+                semaphore = null;
+            }
+        }
+    
+    }   // Permit
+    
+    /**
+     * The <code>PermitInputStream</code> releases the connection when the response body is closed.
+     * 
+     * @author René Jahn
+     */
+    private static final class PermitInputStream extends FilterInputStream
+    {
+        /** the connection permit. */
+        private Permit permit;
+        
+        /**
+         * Creates a new instance of <code>PermitInputStream</code>.
+         * 
+         * @param pStream the response body
+         * @param pPermit the connection permit
+         */
+        private PermitInputStream(InputStream pStream, Permit pPermit)
+        {
+            super(pStream);
+            
+            permit = pPermit;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                permit.release();
+            }
+        }
+    
+    }   // PermitInputStream
+    
+    /**
+     * The <code>PooledUploader</code> sends the request body and releases the connection if the upload
+     * was cancelled.
+     * 
+     * @author René Jahn
+     */
+    private static final class PooledUploader extends Uploader
+    {
+        /** the connection. */
+        private HttpsURLConnection conn;
+        
+        /** the connection permit. */
+        private Permit permit;
+        
+        /** the rate limiter. */
+        private DropboxRateLimiter limiter;
+        
+        /**
+         * Creates a new instance of <code>PooledUploader</code>.
+         * 
+         * @param pConnection the connection
+         * @param pPermit the connection permit
+         * @param pLimiter the rate limiter
+         * @throws IOException if opening the request body fails
+         */
+        private PooledUploader(HttpsURLConnection pConnection, Permit pPermit, DropboxRateLimiter pLimiter) throws IOException
+        {
+            super(getOutputStream(pConnection));
+            
+            conn = pConnection;
+            permit = pPermit;
+            limiter = pLimiter;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Response finish() throws IOException
+        {
+            if (conn == null)
+            {
+                throw new IllegalStateException("Can't finish().  Uploader already closed.");
+            }
+            
+            HttpsURLConnection connection = conn;
+            
+            conn = null;
+            
+            Response response;
+            
+            try
+            {
+                response = toResponse(connection, permit);
+            }
+            catch (IOException ioe)
+            {
+                permit.release();
+                
+                throw ioe;
+            }
+            
+            if (isThrottled(response.statusCode))
+            {
+                //the content isn't buffered -> delay the following requests only
+                limiter.backoff(0, getRetryAfter(response), true);
+            }
+            else
+            {
+                limiter.success();
+            }
+            
+            return response;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void abort()
+        {
+            if (conn == null)
+            {
+                throw new IllegalStateException("Can't abort().  Uploader already closed.");
+            }
+            
+            close();
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close()
+        {
+            if (conn != null)
+            {
+                conn.disconnect();
+                
+                conn = null;
+                
+                permit.release();
+            }
+        }
+        
+        /**
+         * Gets the request body of the given connection.
+         * 
+         * @param pConnection the connection
+         * @return the request body
+         * @throws IOException if opening the request body fails
+         */
+        private static OutputStream getOutputStream(HttpsURLConnection pConnection) throws IOException
+        {
+            return pConnection.getOutputStream();
+        }
+    
+    }   // PooledUploader
+    
+    /**
+     * The <code>BufferedUploader</code> buffers the request body and sends the request with finish, so that the
+     * request can be repeated.
+     * 
+     * @author René Jahn
+     */
+    private final class BufferedUploader extends Uploader
+    {
+        /** the request method. */
+        private String sMethod;
+        
+        /** the url. */
+        private String sUrl;
+        
+        /** the request headers. */
+        private Iterable<Header> headers;
+        
+        /** whether the uploader was closed. */
+        private boolean bClosed;
+        
+        /**
+         * Creates a new instance of <code>BufferedUploader</code>.
+         * 
+         * @param pMethod the request method
+         * @param pUrl the url
+         * @param pHeaders the request headers
+         */
+        private BufferedUploader(String pMethod, String pUrl, Iterable<Header> pHeaders)
+        {
+            super(new ByteArrayOutputStream());
+            
+            sMethod = pMethod;
+            sUrl = pUrl;
+            headers = pHeaders;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Response finish() throws IOException
+        {
+            if (bClosed)
+            {
+                throw new IllegalStateException("Can't finish().  Uploader already closed.");
+            }
+            
+            bClosed = true;
+            
+            return execute(sMethod, sUrl, headers, ((ByteArrayOutputStream)body).toByteArray());
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void abort()
+        {
+            if (bClosed)
+            {
+                throw new IllegalStateException("Can't abort().  Uploader already closed.");
+            }
+            
+            close();
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close()
+        {
+            bClosed = true;
+        }
+        
+    }   // BufferedUploader
+    
+    /**
+     * The <code>TokenLimiter</code> is the rate limiter of an access token.
+     * 
+     * @author René Jahn
+     */
+    private static final class TokenLimiter
+    {
+        /** the access token. */
+        private final String sToken;
+        
+        /** the limiter. */
+        private final DropboxRateLimiter limiter;
+        
+        /**
+         * Creates a new instance of <code>TokenLimiter</code>.
+         * 
+         * @param pToken the access token
+         * @param pLimiter the limiter
+         */
+        private TokenLimiter(String pToken, DropboxRateLimiter pLimiter)
+        {
+            sToken = pToken;
+            limiter = pLimiter;
+        }
+    
+    }   // TokenLimiter
+
+}   // DropboxHttpRequestor
@@ -0,0 +1,639 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import com.dropbox.core.DbxClient;
+import com.dropbox.core.DbxDelta;
+import com.dropbox.core.DbxEntry;
+import com.dropbox.core.DbxException;
+import com.sibvisions.util.ArrayUtil;
+import com.sibvisions.util.type.StringUtil;
+
+/**
+ * The <code>DropboxIndex</code> is an in-memory index of the dropbox metadata. It will be built with the first
+ * delta request and kept up-to-date with the delta cursor. Every update applies only the changed entries.
+ * <p>
+ * The entries are stored in a path trie. Every node has only its lower-case name, which is the name of the
+ * entry if it's already lower-case, and the children in an array, sorted by name. A path will be found
+ * by a binary search per segment, without creating sub paths. Child listings, sub trees and path prefixes
+ * are answered in O(depth + results).
+ * </p>
+ * 
+ * @author René Jahn
+ */
+class DropboxIndex
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the root path. */
+    private static final String ROOT = "/";
+    
+    /** the root node. */
+    private Node root;
+    
+    /** the path prefix. */
+    private String sPathPrefix;
+    
+    /** the delta cursor. */
+    private String sCursor;
+    
+    /** the number of entries. */
+    private int iSize;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates a new instance of <code>DropboxIndex</code>.
+     * 
+     * @param pPathPrefix the path prefix for indexed entries or <code>null</code> to index all entries
+     */
+    public DropboxIndex(String pPathPrefix)
+    {
+        if (!StringUtil.isEmpty(pPathPrefix) && !ROOT.equals(pPathPrefix))
+        {
+            sPathPrefix = pPathPrefix;
+        }
+        
+        clear();
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Applies all pending delta pages.
+     * 
+     * @param pClient the dropbox client
+     * @return the number of changed entries
+     * @throws DbxException if the delta request fails
+     */
+    public synchronized int update(DbxClient pClient) throws DbxException
+    {
+        int iChanged = 0;
+        
+        DbxDelta<DbxEntry> delta;
+        
+        do
+        {
+            if (sPathPrefix != null)
+            {
+                delta = pClient.getDeltaWithPathPrefix(sCursor, sPathPrefix);
+            }
+            else
+            {
+                delta = pClient.getDelta(sCursor);
+            }
+            
+            if (delta.reset)
+            {
+                clear();
+            }
+            
+            for (DbxDelta.Entry<DbxEntry> entry : delta.entries)
+            {
+                if (entry.metadata == null)
+                {
+                    remove(entry.lcPath);
+                }
+                else
+                {
+                    put(entry.lcPath, entry.metadata);
+                }
+            }
+            
+            iChanged += delta.entries.size();
+            
+            sCursor = delta.cursor;
+        }
+        while (delta.hasMore);
+        
+        return iChanged;
+    }
+    
+    /**
+     * Gets the entry for the given path.
+     * 
+     * @param pPath the path
+     * @return the entry or <code>null</code> if the path isn't indexed
+     */
+    public synchronized DbxEntry get(String pPath)
+    {
+        Node node = find(toLowerCase(pPath));
+        
+        if (node == null)
+        {
+            return null;
+        }
+        
+        return node.entry;
+    }
+    
+    /**
+     * Gets the direct children of the given folder. The children are ordered by name.
+     * 
+     * @param pFolder the folder path
+     * @return the children or an empty list if the folder isn't indexed
+     */
+    public synchronized List<DbxEntry> getChildren(String pFolder)
+    {
+        Node node = find(toLowerCase(pFolder));
+        
+        if (node == null)
+        {
+            return new ArrayUtil<DbxEntry>(0);
+        }
+        
+        List<DbxEntry> liChildren = new ArrayUtil<DbxEntry>(node.iChildCount);
+        
+        for (int i = 0; i < node.iChildCount; i++)
+        {
+            liChildren.add(node.children[i].entry);
+        }
+        
+        return liChildren;
+    }
+    
+    /**
+     * Gets all entries below the given folder whose path starts with the given prefix (case insensitive).
+     * The entries are ordered depth-first by name, every folder is followed by its sub tree.
+     * 
+     * @param pFolder the folder path
+     * @param pPathPrefix the path prefix or <code>null</code> to get the whole sub tree
+     * @return the entries or an empty list if no entry matches
+     */
+    public synchronized List<DbxEntry> getDescendants(String pFolder, String pPathPrefix)
+    {
+        String sLcFolder = toLowerCase(pFolder);
+        
+        String sPrefix = ROOT.equals(sLcFolder) ? ROOT : sLcFolder + "/";
+        
+        if (pPathPrefix != null)
+        {
+            String sLcPrefix = pPathPrefix.toLowerCase(Locale.ROOT);
+            
+            if (sLcPrefix.startsWith(sPrefix))
+            {
+                sPrefix = sLcPrefix;
+            }
+            else if (!sPrefix.startsWith(sLcPrefix))
+            {
+                //the prefix is outside the folder
+                return new ArrayUtil<DbxEntry>(0);
+            }
+        }
+        
+        List<DbxEntry> liEntries = new ArrayUtil<DbxEntry>();
+        
+        int iPos = sPrefix.lastIndexOf('/');
+        
+        Node parent = find(iPos <= 0 ? ROOT : sPrefix.substring(0, iPos));
+        
+        if (parent != null)
+        {
+            String sNamePrefix = sPrefix.substring(iPos + 1);
+            
+            int iIndex = parent.indexOf(sNamePrefix, 0, sNamePrefix.length());
+            
+            if (iIndex < 0)
+            {
+                //the first name after the prefix
+                iIndex = -iIndex - 1;
+            }
+            
+            for (int i = iIndex; i < parent.iChildCount; i++)
+            {
+                Node child = parent.children[i];
+                
+                if (!child.sLcName.startsWith(sNamePrefix))
+                {
+                    break;
+                }
+                
+                addSubTree(child, liEntries);
+            }
+        }
+        
+        return liEntries;
+    }
+    
+    /**
+     * Gets whether the index was built.
+     * 
+     * @return <code>true</code> if at least one delta page was applied
+     */
+    public synchronized boolean isInitialized()
+    {
+        return sCursor != null;
+    }
+    
+    /**
+     * Gets the number of indexed entries.
+     * 
+     * @return the number of entries
+     */
+    public synchronized int size()
+    {
+        return iSize;
+    }
+    
+    /**
+     * Removes all entries and the delta cursor.
+     */
+    public synchronized void clear()
+    {
+        root = new Node("", new DbxEntry.Folder(ROOT, "folder", false));
+        
+        iSize = 0;
+        
+        sCursor = null;
+    }
+    
+    /**
+     * Adds or replaces an entry.
+     * 
+     * @param pLcPath the lower-case path
+     * @param pEntry the entry
+     */
+    private void put(String pLcPath, DbxEntry pEntry)
+    {
+        Node parent = getParent(pLcPath, pEntry.path);
+        
+        String sLcName = getName(pLcPath, pEntry.name);
+        
+        int iIndex = parent.indexOf(sLcName, 0, sLcName.length());
+        
+        if (iIndex < 0)
+        {
+            parent.insertChild(-iIndex - 1, new Node(sLcName, pEntry));
+            
+            iSize++;
+        }
+        else
+        {
+            Node node = parent.children[iIndex];
+            
+            if (pEntry.isFile())
+            {
+                //a folder was replaced by a file
+                iSize -= node.removeChildren();
+            }
+            
+            node.entry = pEntry;
+        }
+    }
+    
+    /**
+     * Removes the entry and all its children.
+     * 
+     * @param pLcPath the lower-case path
+     */
+    private void remove(String pLcPath)
+    {
+        int iPos = pLcPath.lastIndexOf('/');
+        
+        Node parent = find(iPos <= 0 ? ROOT : pLcPath.substring(0, iPos));
+        
+        if (parent != null)
+        {
+            int iIndex = parent.indexOf(pLcPath, iPos + 1, pLcPath.length());
+            
+            if (iIndex >= 0)
+            {
+                iSize -= 1 + parent.children[iIndex].removeChildren();
+                
+                parent.removeChild(iIndex);
+            }
+        }
+    }
+    
+    /**
+     * Finds the node of the given path. Every segment will be searched in the sorted children of its parent.
+     * 
+     * @param pLcPath the lower-case path
+     * @return the node or <code>null</code> if the path isn't indexed
+     */
+    private Node find(String pLcPath)
+    {
+        Node node = root;
+        
+        int iLength = pLcPath.length();
+        
+        for (int iStart = 1; node != null && iStart < iLength; )
+        {
+            int iEnd = pLcPath.indexOf('/', iStart);
+            
+            if (iEnd < 0)
+            {
+                iEnd = iLength;
+            }
+            
+            int iIndex = node.indexOf(pLcPath, iStart, iEnd);
+            
+            node = iIndex >= 0 ? node.children[iIndex] : null;
+            
+            iStart = iEnd + 1;
+        }
+        
+        return node;
+    }
+    
+    /**
+     * Adds the node and all its children, depth-first.
+     * 
+     * @param pNode the node
+     * @param pEntries the entries
+     */
+    private static void addSubTree(Node pNode, List<DbxEntry> pEntries)
+    {
+        pEntries.add(pNode.entry);
+        
+        for (int i = 0; i < pNode.iChildCount; i++)
+        {
+            addSubTree(pNode.children[i], pEntries);
+        }
+    }
+    
+    /**
+     * Gets the parent node of the given path. Missing parent folders will be created.
+     * 
+     * @param pLcPath the lower-case path
+     * @param pPath the path
+     * @return the parent node
+     */
+    private Node getParent(String pLcPath, String pPath)
+    {
+        String sLcParent = getParentPath(pLcPath);
+        
+        Node parent = find(sLcParent);
+        
+        if (parent == null)
+        {
+            String sParent = getParentPath(pPath);
+            
+            DbxEntry.Folder folder = new DbxEntry.Folder(sParent, "folder", false);
+            
+            Node grandParent = getParent(sLcParent, sParent);
+            
+            String sLcName = getName(sLcParent, folder.name);
+            
+            parent = new Node(sLcName, folder);
+            
+            grandParent.insertChild(-grandParent.indexOf(sLcName, 0, sLcName.length()) - 1, parent);
+            
+            iSize++;
+        }
+        
+        return parent;
+    }
+    
+    /**
+     * Gets the parent path of the given path.
+     * 
+     * @param pPath the path
+     * @return the parent path
+     */
+    private static String getParentPath(String pPath)
+    {
+        int iPos = pPath.lastIndexOf('/');
+        
+        if (iPos <= 0)
+        {
+            return ROOT;
+        }
+        
+        return pPath.substring(0, iPos);
+    }
+    
+    /**
+     * Gets the lower-case name (last path segment) of the given path. The lower-case name of the entry will 
+     * be used if possible, because it's the same instance if the name is already lower-case.
+     * 
+     * @param pLcPath the lower-case path
+     * @param pName the name of the entry
+     * @return the lower-case name
+     */
+    private static String getName(String pLcPath, String pName)
+    {
+        int iPos = pLcPath.lastIndexOf('/') + 1;
+        
+        if (pName != null)
+        {
+            String sLcName = pName.toLowerCase(Locale.ROOT);
+            
+            if (sLcName.length() == pLcPath.length() - iPos && pLcPath.startsWith(sLcName, iPos))
+            {
+                return sLcName;
+            }
+        }
+        
+        return pLcPath.substring(iPos);
+    }
+    
+    /**
+     * Gets the lower-case path, as used by dropbox for case-insensitive comparison.
+     * 
+     * @param pPath the path
+     * @return the lower-case path
+     */
+    private static String toLowerCase(String pPath)
+    {
+        if (StringUtil.isEmpty(pPath))
+        {
+            return ROOT;
+        }
+        
+        String sPath = pPath.toLowerCase(Locale.ROOT);
+        
+        if (sPath.length() > 1 && sPath.endsWith("/"))
+        {
+            sPath = sPath.substring(0, sPath.length() - 1);
+        }
+        
+        return sPath;
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Node</code> is an indexed entry with its children.
+     * 
+     * @author René Jahn
+     */
+    private static final class Node
+    {
+        /** the empty children. */
+        private static final Node[] NO_CHILDREN = new Node[0];
+        
+        /** the lower-case name. */
+        private String sLcName;
+        
+        /** the entry. */
+        private DbxEntry entry;
+        
+        /** the children, ordered by lower-case name. */
+        private Node[] children = NO_CHILDREN;
+        
+        /** the number of children. */
+        private int iChildCount;
+        
+        /**
+         * Creates a new instance of <code>Node</code>.
+         * 
+         * @param pLcName the lower-case name
+         * @param pEntry the entry
+         */
+        private Node(String pLcName, DbxEntry pEntry)
+        {
+            sLcName = pLcName;
+            entry = pEntry;
+        }
+        
+        /**
+         * Searches the child with the given name.
+         * 
+         * @param pPath the path which contains the lower-case name
+         * @param pStart the start of the name in the path
+         * @param pEnd the end of the name in the path (exclusive)
+         * @return the index of the child or <code>-(insertion point) - 1</code> if there's no such child
+         */
+        private int indexOf(String pPath, int pStart, int pEnd)
+        {
+            int iLow = 0;
+            int iHigh = iChildCount - 1;
+            
+            while (iLow <= iHigh)
+            {
+                int iMid = (iLow + iHigh) >>> 1;
+                
+                int iCompare = compare(children[iMid].sLcName, pPath, pStart, pEnd);
+                
+                if (iCompare < 0)
+                {
+                    iLow = iMid + 1;
+                }
+                else if (iCompare > 0)
+                {
+                    iHigh = iMid - 1;
+                }
+                else
+                {
+                    return iMid;
+                }
+            }
+            
+            return -(iLow + 1);
+        }
+        
+        /**
+         * Inserts a child.
+         * 
+         * @param pIndex the index
+         * @param pNode the child node
+         */
+        private void insertChild(int pIndex, Node pNode)
+        {
+            if (iChildCount == children.length)
+            {
+                children = Arrays.copyOf(children, Math.max(4, iChildCount + (iChildCount >> 1)));
+            }
+            
+            System.arraycopy(children, pIndex, children, pIndex + 1, iChildCount - pIndex);
+            
+            children[pIndex] = pNode;
+            
+            iChildCount++;
+        }
+        
+        /**
+         * Removes a child.
+         * 
+         * @param pIndex the index
+         */
+        private void removeChild(int pIndex)
+        {
+            iChildCount--;
+            
+            System.arraycopy(children, pIndex + 1, children, pIndex, iChildCount - pIndex);
+            
+            children[iChildCount] = null;
+        }
+        
+        /**
+         * Removes all children.
+         * 
+         * @return the number of removed nodes, including all sub nodes
+         */
+        private int removeChildren()
+        {
+            int iRemoved = iChildCount;
+            
+            for (int i = 0; i < iChildCount; i++)
+            {
+                iRemoved += children[i].removeChildren();
+            }
+            
+            children = NO_CHILDREN;
+            iChildCount = 0;
+            
+            return iRemoved;
+        }
+        
+        /**
+         * Compares a name with a part of a path, like {@link String#compareTo(String)}.
+         * 
+         * @param pName the name
+         * @param pPath the path
+         * @param pStart the start of the part
+         * @param pEnd the end of the part (exclusive)
+         * @return the comparison result
+         */
+        private static int compare(String pName, String pPath, int pStart, int pEnd)
+        {
+            int iLength = pEnd - pStart;
+            
+            for (int i = 0, cnt = Math.min(pName.length(), iLength); i < cnt; i++)
+            {
+                char ch1 = pName.charAt(i);
+                char ch2 = pPath.charAt(pStart + i);
+                
+                if (ch1 != ch2)
+                {
+                    return ch1 - ch2;
+                }
+            }
+            
+            return pName.length() - iLength;
+        }
+    
+    }   // Node
+
+}   // DropboxIndex
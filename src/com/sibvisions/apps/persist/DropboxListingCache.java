@@ -0,0 +1,210 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.dropbox.core.DbxClient;
+import com.dropbox.core.DbxEntry;
+import com.dropbox.core.DbxException;
+import com.dropbox.core.util.Maybe;
+
+/**
+ * The <code>DropboxListingCache</code> caches folder listings, with their hash, in LRU order. A cached listing
+ * will be validated with a conditional request, and the children will only be transferred if the folder
+ * was changed.
+ * 
+ * @author René Jahn
+ */
+class DropboxListingCache
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the cached listings, mapped by lower-case folder path. */
+    private LinkedHashMap<String, DbxEntry.WithChildren> lhmListings;
+    
+    /** the maximum number of cached listings. */
+    private int iMaxSize;
+    
+    /** the number of listings which were answered with "unchanged". */
+    private long lHits;
+    
+    /** the number of transferred listings. */
+    private long lMisses;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates a new instance of <code>DropboxListingCache</code>.
+     * 
+     * @param pMaxSize the maximum number of cached listings
+     */
+    public DropboxListingCache(int pMaxSize)
+    {
+        iMaxSize = pMaxSize;
+        
+        lhmListings = new LinkedHashMap<String, DbxEntry.WithChildren>(16, 0.75f, true)
+        {
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DbxEntry.WithChildren> pEldest)
+            {
+                return size() > iMaxSize;
+            }
+        };
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Gets the listing of the given folder. If the listing is cached, only a conditional request with the
+     * listing hash will be sent.
+     * 
+     * @param pClient the dropbox client
+     * @param pFolder the folder path
+     * @return the listing or <code>null</code> if the folder doesn't exist
+     * @throws DbxException if the listing request fails
+     */
+    public DbxEntry.WithChildren getListing(DbxClient pClient, String pFolder) throws DbxException
+    {
+        String sKey = pFolder.toLowerCase(Locale.ROOT);
+        
+        DbxEntry.WithChildren cached;
+        
+        synchronized (this)
+        {
+            cached = lhmListings.get(sKey);
+        }
+        
+        DbxEntry.WithChildren listing;
+        
+        if (cached != null && cached.hash != null)
+        {
+            Maybe<DbxEntry.WithChildren> changed = pClient.getMetadataWithChildrenIfChanged(pFolder, cached.hash);
+            
+            if (changed.isNothing())
+            {
+                synchronized (this)
+                {
+                    lHits++;
+                }
+                
+                return cached;
+            }
+            
+            listing = changed.getJust();
+        }
+        else
+        {
+            listing = pClient.getMetadataWithChildren(pFolder);
+        }
+        
+        synchronized (this)
+        {
+            lMisses++;
+            
+            if (listing == null || listing.hash == null)
+            {
+                lhmListings.remove(sKey);
+            }
+            else
+            {
+                lhmListings.put(sKey, listing);
+            }
+        }
+        
+        return listing;
+    }
+    
+    /**
+     * Removes all cached listings.
+     */
+    public synchronized void clear()
+    {
+        lhmListings.clear();
+    }
+    
+    /**
+     * Sets the maximum number of cached listings.
+     * 
+     * @param pMaxSize the maximum number of listings
+     */
+    public synchronized void setMaxSize(int pMaxSize)
+    {
+        iMaxSize = pMaxSize;
+        
+        while (lhmListings.size() > iMaxSize)
+        {
+            lhmListings.remove(lhmListings.keySet().iterator().next());
+        }
+    }
+    
+    /**
+     * Gets the maximum number of cached listings.
+     * 
+     * @return the maximum number of listings
+     */
+    public synchronized int getMaxSize()
+    {
+        return iMaxSize;
+    }
+    
+    /**
+     * Gets the number of cached listings.
+     * 
+     * @return the number of listings
+     */
+    public synchronized int size()
+    {
+        return lhmListings.size();
+    }
+    
+    /**
+     * Gets the number of listings which were validated without transfer.
+     * 
+     * @return the number of unchanged listings
+     */
+    public synchronized long getHitCount()
+    {
+        return lHits;
+    }
+    
+    /**
+     * Gets the number of listings which were transferred.
+     * 
+     * @return the number of transferred listings
+     */
+    public synchronized long getMissCount()
+    {
+        return lMisses;
+    }
+
+}   // DropboxListingCache
@@ -0,0 +1,889 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.dropbox.core.http.HttpRequestor;
+import com.sibvisions.util.log.LoggerFactory;
+
+/**
+ * The <code>DropboxMetrics</code> collects the operation counters and latency histograms of a
+ * {@link DropboxStorage} and its file handles. The metrics can be published as MXBean and forwarded with
+ * {@link IDropboxMetricsListener}s.
+ * <p>
+ * The folders and API calls per fetch are measured as difference of the counters before and after a fetch.
+ * Concurrent fetches of the same storage are counted for every fetch.
+ * </p>
+ * 
+ * @author René Jahn
+ * @see DropboxStorage#getMetrics()
+ */
+public class DropboxMetrics implements DropboxMetricsMXBean
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the upper bounds of the latency buckets (ms). */
+    private static final long[] BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000};
+    
+    /** the operations. */
+    public enum Operation
+    {
+        /** fetch. */
+        Fetch,
+        /** refetch. */
+        Refetch,
+        /** insert. */
+        Insert,
+        /** update. */
+        Update,
+        /** delete. */
+        Delete,
+        /** move of a file or folder. */
+        Move,
+        /** upload of file content. */
+        Upload,
+        /** download of file content. */
+        Download,
+        /** download of a thumbnail. */
+        Thumbnail
+    }
+    
+    /** the histograms, by operation ordinal. */
+    private Histogram[] histograms = new Histogram[Operation.values().length];
+    
+    /** the listeners. */
+    private CopyOnWriteArrayList<IDropboxMetricsListener> liListeners = new CopyOnWriteArrayList<IDropboxMetricsListener>();
+    
+    /** the number of downloaded bytes. */
+    private AtomicLong alBytesIn = new AtomicLong();
+    
+    /** the number of uploaded bytes. */
+    private AtomicLong alBytesOut = new AtomicLong();
+    
+    /** the number of API calls. */
+    private AtomicLong alApiCalls = new AtomicLong();
+    
+    /** the number of listed folders. */
+    private AtomicLong alFoldersVisited = new AtomicLong();
+    
+    /** the number of listed folders of all fetches. */
+    private AtomicLong alFetchFolders = new AtomicLong();
+    
+    /** the number of API calls of all fetches. */
+    private AtomicLong alFetchApiCalls = new AtomicLong();
+    
+    /** the number of created file handles. */
+    private AtomicLong alFileHandlesCreated = new AtomicLong();
+    
+    /** the number of removed file handles. */
+    private AtomicLong alFileHandlesRemoved = new AtomicLong();
+    
+    /** the listing cache hits and misses at the last reset. */
+    private long[] laListingCacheBase = new long[2];
+    
+    /** the content cache hits and misses at the last reset. */
+    private long[] laContentCacheBase = new long[2];
+    
+    /** the thumbnail cache hits and misses at the last reset. */
+    private long[] laThumbnailCacheBase = new long[2];
+    
+    /** the folder listing cache. */
+    private DropboxListingCache listingCache;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates a new instance of <code>DropboxMetrics</code>.
+     */
+    public DropboxMetrics()
+    {
+        for (int i = 0; i < histograms.length; i++)
+        {
+            histograms[i] = new Histogram();
+        }
+        
+        reset();
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Interface implementation
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Long> getOperationCounts()
+    {
+        Map<String, Long> map = new LinkedHashMap<String, Long>();
+        
+        for (Operation op : Operation.values())
+        {
+            map.put(op.name(), Long.valueOf(histograms[op.ordinal()].alCount.get()));
+        }
+        
+        return map;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Long> getErrorCounts()
+    {
+        Map<String, Long> map = new LinkedHashMap<String, Long>();
+        
+        for (Operation op : Operation.values())
+        {
+            map.put(op.name(), Long.valueOf(histograms[op.ordinal()].alErrors.get()));
+        }
+        
+        return map;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Double> getAverageLatencies()
+    {
+        Map<String, Double> map = new LinkedHashMap<String, Double>();
+        
+        for (Operation op : Operation.values())
+        {
+            map.put(op.name(), Double.valueOf(histograms[op.ordinal()].getAverage()));
+        }
+        
+        return map;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Long> getMedianLatencies()
+    {
+        return getPercentiles(0.5);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Long> getPercentile95Latencies()
+    {
+        return getPercentiles(0.95);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Long> getPercentile99Latencies()
+    {
+        return getPercentiles(0.99);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Long> getMaxLatencies()
+    {
+        Map<String, Long> map = new LinkedHashMap<String, Long>();
+        
+        for (Operation op : Operation.values())
+        {
+            map.put(op.name(), Long.valueOf(histograms[op.ordinal()].alMax.get() / 1000000));
+        }
+        
+        return map;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public long getBytesIn()
+    {
+        return alBytesIn.get();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public long getBytesOut()
+    {
+        return alBytesOut.get();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public long getApiCalls()
+    {
+        return alApiCalls.get();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public long getFoldersVisited()
+    {
+        return alFoldersVisited.get();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public double getFoldersVisitedPerFetch()
+    {
+        long lFetches = histograms[Operation.Fetch.ordinal()].alCount.get();
+        
+        return lFetches > 0 ? (double)alFetchFolders.get() / lFetches : 0;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public double getApiCallsPerFetch()
+    {
+        long lFetches = histograms[Operation.Fetch.ordinal()].alCount.get();
+        
+        return lFetches > 0 ? (double)alFetchApiCalls.get() / lFetches : 0;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public long getFileHandlesCreated()
+    {
+        return alFileHandlesCreated.get();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public long getFileHandles()
+    {
+        return alFileHandlesCreated.get() - alFileHandlesRemoved.get();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized double getListingCacheHitRatio()
+    {
+        DropboxListingCache cache = listingCache;
+        
+        if (cache == null)
+        {
+            return -1;
+        }
+        
+        return getHitRatio(cache.getHitCount() - laListingCacheBase[0], cache.getMissCount() - laListingCacheBase[1]);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized double getContentCacheHitRatio()
+    {
+        DropboxContentCache cache = DropboxContentCache.getInstance();
+        
+        return getHitRatio(cache.getHitCount() - laContentCacheBase[0], cache.getMissCount() - laContentCacheBase[1]);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized double getThumbnailCacheHitRatio()
+    {
+        DropboxThumbnailCache cache = DropboxThumbnailCache.getInstance();
+        
+        return getHitRatio(cache.getHitCount() - laThumbnailCacheBase[0], cache.getMissCount() - laThumbnailCacheBase[1]);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void reset()
+    {
+        for (Histogram histogram : histograms)
+        {
+            histogram.reset();
+        }
+        
+        alBytesIn.set(0);
+        alBytesOut.set(0);
+        alApiCalls.set(0);
+        alFoldersVisited.set(0);
+        alFetchFolders.set(0);
+        alFetchApiCalls.set(0);
+        alFileHandlesCreated.set(0);
+        alFileHandlesRemoved.set(0);
+        
+        if (listingCache != null)
+        {
+            laListingCacheBase[0] = listingCache.getHitCount();
+            laListingCacheBase[1] = listingCache.getMissCount();
+        }
+        
+        DropboxContentCache cache = DropboxContentCache.getInstance();
+        
+        laContentCacheBase[0] = cache.getHitCount();
+        laContentCacheBase[1] = cache.getMissCount();
+        
+        DropboxThumbnailCache thumbnails = DropboxThumbnailCache.getInstance();
+        
+        laThumbnailCacheBase[0] = thumbnails.getHitCount();
+        laThumbnailCacheBase[1] = thumbnails.getMissCount();
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Adds a listener.
+     * 
+     * @param pListener the listener
+     */
+    public void addListener(IDropboxMetricsListener pListener)
+    {
+        liListeners.addIfAbsent(pListener);
+    }
+    
+    /**
+     * Removes a listener.
+     * 
+     * @param pListener the listener
+     */
+    public void removeListener(IDropboxMetricsListener pListener)
+    {
+        liListeners.remove(pListener);
+    }
+    
+    /**
+     * Gets the number of finished operations.
+     * 
+     * @param pOperation the operation
+     * @return the number of operations
+     */
+    public long getCount(Operation pOperation)
+    {
+        return histograms[pOperation.ordinal()].alCount.get();
+    }
+    
+    /**
+     * Gets a latency percentile of an operation.
+     * 
+     * @param pOperation the operation
+     * @param pPercentile the percentile between <code>0</code> and <code>1</code>
+     * @return the upper bound of the histogram bucket (ms), <code>0</code> if no operation was finished
+     */
+    public long getLatency(Operation pOperation, double pPercentile)
+    {
+        return histograms[pOperation.ordinal()].getPercentile(pPercentile);
+    }
+    
+    /**
+     * Records a finished operation.
+     * 
+     * @param pOperation the operation
+     * @param pStart the start time of the operation ({@link System#nanoTime()})
+     * @param pBytes the transferred bytes
+     * @param pSuccess <code>true</code> if the operation was successful
+     */
+    void record(Operation pOperation, long pStart, long pBytes, boolean pSuccess)
+    {
+        long lDuration = System.nanoTime() - pStart;
+        
+        histograms[pOperation.ordinal()].add(lDuration, pSuccess);
+        
+        if (pOperation == Operation.Download || pOperation == Operation.Thumbnail)
+        {
+            alBytesIn.addAndGet(pBytes);
+        }
+        else if (pOperation == Operation.Upload)
+        {
+            alBytesOut.addAndGet(pBytes);
+        }
+        
+        for (IDropboxMetricsListener listener : liListeners)
+        {
+            try
+            {
+                listener.operationFinished(this, pOperation, lDuration, pBytes, pSuccess);
+            }
+            catch (RuntimeException re)
+            {
+                LoggerFactory.getInstance(DropboxMetrics.class).error(re);
+            }
+        }
+    }
+    
+    /**
+     * Records a finished fetch.
+     * 
+     * @param pStart the start time of the fetch ({@link System#nanoTime()})
+     * @param pFoldersVisited the number of listed folders before the fetch
+     * @param pApiCalls the number of API calls before the fetch
+     * @param pSuccess <code>true</code> if the fetch was successful
+     */
+    void recordFetch(long pStart, long pFoldersVisited, long pApiCalls, boolean pSuccess)
+    {
+        long lFolders = alFoldersVisited.get() - pFoldersVisited;
+        long lApiCalls = alApiCalls.get() - pApiCalls;
+        
+        alFetchFolders.addAndGet(lFolders);
+        alFetchApiCalls.addAndGet(lApiCalls);
+        
+        record(Operation.Fetch, pStart, 0, pSuccess);
+        
+        for (IDropboxMetricsListener listener : liListeners)
+        {
+            try
+            {
+                listener.fetchFinished(this, lFolders, lApiCalls);
+            }
+            catch (RuntimeException re)
+            {
+                LoggerFactory.getInstance(DropboxMetrics.class).error(re);
+            }
+        }
+    }
+    
+    /**
+     * Counts a listed folder.
+     */
+    void folderVisited()
+    {
+        alFoldersVisited.incrementAndGet();
+    }
+    
+    /**
+     * Counts a created file handle.
+     */
+    void fileHandleCreated()
+    {
+        alFileHandlesCreated.incrementAndGet();
+    }
+    
+    /**
+     * Counts a removed file handle.
+     */
+    void fileHandleRemoved()
+    {
+        alFileHandlesRemoved.incrementAndGet();
+    }
+    
+    /**
+     * Sets the folder listing cache for the hit ratio.
+     * 
+     * @param pCache the cache or <code>null</code> if no cache is used
+     */
+    synchronized void setListingCache(DropboxListingCache pCache)
+    {
+        listingCache = pCache;
+        
+        if (pCache != null)
+        {
+            laListingCacheBase[0] = pCache.getHitCount();
+            laListingCacheBase[1] = pCache.getMissCount();
+        }
+    }
+    
+    /**
+     * Creates a requestor which counts the API calls of the given requestor.
+     * 
+     * @param pRequestor the requestor
+     * @return the counting requestor
+     */
+    HttpRequestor countRequests(HttpRequestor pRequestor)
+    {
+        return new CountingRequestor(pRequestor);
+    }
+    
+    /**
+     * Creates a stream which records a download, when it will be closed.
+     * 
+     * @param pStream the download stream
+     * @param pStart the start time of the download ({@link System#nanoTime()})
+     * @return the recording stream
+     */
+    InputStream recordDownload(InputStream pStream, long pStart)
+    {
+        return new DownloadInputStream(pStream, pStart);
+    }
+    
+    /**
+     * Gets a latency percentile of all operations.
+     * 
+     * @param pPercentile the percentile between <code>0</code> and <code>1</code>
+     * @return the percentiles (ms)
+     */
+    private Map<String, Long> getPercentiles(double pPercentile)
+    {
+        Map<String, Long> map = new LinkedHashMap<String, Long>();
+        
+        for (Operation op : Operation.values())
+        {
+            map.put(op.name(), Long.valueOf(histograms[op.ordinal()].getPercentile(pPercentile)));
+        }
+        
+        return map;
+    }
+    
+    /**
+     * Gets the hit ratio.
+     * 
+     * @param pHits the number of hits
+     * @param pMisses the number of misses
+     * @return the ratio or <code>-1</code> if there were no hits and misses
+     */
+    private static double getHitRatio(long pHits, long pMisses)
+    {
+        long lTotal = pHits + pMisses;
+        
+        return lTotal > 0 ? (double)pHits / lTotal : -1;
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>Histogram</code> counts the latencies of an operation in fixed buckets.
+     * 
+     * @author René Jahn
+     */
+    private static final class Histogram
+    {
+        /** the number of latencies per bucket, the last bucket counts all latencies above the last bound. */
+        private AtomicLongArray alaBuckets = new AtomicLongArray(BUCKETS.length + 1);
+        
+        /** the number of operations. */
+        private AtomicLong alCount = new AtomicLong();
+        
+        /** the number of failed operations. */
+        private AtomicLong alErrors = new AtomicLong();
+        
+        /** the sum of all latencies (ns). */
+        private AtomicLong alTotal = new AtomicLong();
+        
+        /** the maximum latency (ns). */
+        private AtomicLong alMax = new AtomicLong();
+        
+        /**
+         * Adds a latency.
+         * 
+         * @param pDuration the latency (ns)
+         * @param pSuccess <code>true</code> if the operation was successful
+         */
+        private void add(long pDuration, boolean pSuccess)
+        {
+            long lMillis = pDuration / 1000000;
+            
+            int iBucket = 0;
+            
+            while (iBucket < BUCKETS.length && lMillis > BUCKETS[iBucket])
+            {
+                iBucket++;
+            }
+            
+            alaBuckets.incrementAndGet(iBucket);
+            alCount.incrementAndGet();
+            alTotal.addAndGet(pDuration);
+            
+            if (!pSuccess)
+            {
+                alErrors.incrementAndGet();
+            }
+            
+            long lMax = alMax.get();
+            
+            while (pDuration > lMax && !alMax.compareAndSet(lMax, pDuration))
+            {
+                lMax = alMax.get();
+            }
+        }
+        
+        /**
+         * Gets the average latency.
+         * 
+         * @return the average latency (ms)
+         */
+        private double getAverage()
+        {
+            long lCount = alCount.get();
+            
+            return lCount > 0 ? alTotal.get() / 1000000d / lCount : 0;
+        }
+        
+        /**
+         * Gets a latency percentile.
+         * 
+         * @param pPercentile the percentile between <code>0</code> and <code>1</code>
+         * @return the upper bound of the bucket (ms), the maximum latency for the last bucket
+         */
+        private long getPercentile(double pPercentile)
+        {
+            long[] laCounts = new long[alaBuckets.length()];
+            
+            long lTotal = 0;
+            
+            for (int i = 0; i < laCounts.length; i++)
+            {
+                laCounts[i] = alaBuckets.get(i);
+                
+                lTotal += laCounts[i];
+            }
+            
+            if (lTotal == 0)
+            {
+                return 0;
+            }
+            
+            long lRank = (long)Math.ceil(pPercentile * lTotal);
+            long lSum = 0;
+            
+            for (int i = 0; i < BUCKETS.length; i++)
+            {
+                lSum += laCounts[i];
+                
+                if (lSum >= lRank)
+                {
+                    return BUCKETS[i];
+                }
+            }
+            
+            return alMax.get() / 1000000;
+        }
+        
+        /**
+         * Resets all counters.
+         */
+        private void reset()
+        {
+            for (int i = 0; i < alaBuckets.length(); i++)
+            {
+                alaBuckets.set(i, 0);
+            }
+            
+            alCount.set(0);
+            alErrors.set(0);
+            alTotal.set(0);
+            alMax.set(0);
+        }
+    
+    }   // Histogram
+    
+    /**
+     * The <code>CountingRequestor</code> counts the API calls of a requestor.
+     * 
+     * @author René Jahn
+     */
+    private final class CountingRequestor extends HttpRequestor
+    {
+        /** the requestor. */
+        private HttpRequestor requestor;
+        
+        /**
+         * Creates a new instance of <code>CountingRequestor</code>.
+         * 
+         * @param pRequestor the requestor
+         */
+        private CountingRequestor(HttpRequestor pRequestor)
+        {
+            requestor = pRequestor;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Response doGet(String pUrl, Iterable<Header> pHeaders) throws IOException
+        {
+            alApiCalls.incrementAndGet();
+            
+            return requestor.doGet(pUrl, pHeaders);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Uploader startPost(String pUrl, Iterable<Header> pHeaders) throws IOException
+        {
+            alApiCalls.incrementAndGet();
+            
+            return requestor.startPost(pUrl, pHeaders);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Uploader startPut(String pUrl, Iterable<Header> pHeaders) throws IOException
+        {
+            alApiCalls.incrementAndGet();
+            
+            return requestor.startPut(pUrl, pHeaders);
+        }
+    
+    }   // CountingRequestor
+    
+    /**
+     * The <code>CountingInputStream</code> counts the read bytes.
+     * 
+     * @author René Jahn
+     */
+    static class CountingInputStream extends FilterInputStream
+    {
+        /** the number of read bytes. */
+        private long lBytes;
+        
+        /**
+         * Creates a new instance of <code>CountingInputStream</code>.
+         * 
+         * @param pStream the stream
+         */
+        CountingInputStream(InputStream pStream)
+        {
+            super(pStream);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read() throws IOException
+        {
+            int iByte = super.read();
+            
+            if (iByte >= 0)
+            {
+                lBytes++;
+            }
+            
+            return iByte;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read(byte[] pBuffer, int pOffset, int pLength) throws IOException
+        {
+            int iLen = super.read(pBuffer, pOffset, pLength);
+            
+            if (iLen > 0)
+            {
+                lBytes += iLen;
+            }
+            
+            return iLen;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long skip(long pBytes) throws IOException
+        {
+            long lSkipped = super.skip(pBytes);
+            
+            lBytes += lSkipped;
+            
+            return lSkipped;
+        }
+        
+        /**
+         * Gets the number of read bytes.
+         * 
+         * @return the number of bytes
+         */
+        long getCount()
+        {
+            return lBytes;
+        }
+        
+    }   // CountingInputStream
+    
+    /**
+     * The <code>DownloadInputStream</code> records the download, when the stream will be closed.
+     * 
+     * @author René Jahn
+     */
+    private final class DownloadInputStream extends CountingInputStream
+    {
+        /** the start time of the download. */
+        private long lStart;
+        
+        /** whether the stream was closed. */
+        private boolean bClosed;
+        
+        /**
+         * Creates a new instance of <code>DownloadInputStream</code>.
+         * 
+         * @param pStream the download stream
+         * @param pStart the start time of the download
+         */
+        private DownloadInputStream(InputStream pStream, long pStart)
+        {
+            super(pStream);
+            
+            lStart = pStart;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                synchronized (this)
+                {
+                    if (!bClosed)
+                    {
+                        bClosed = true;
+                        
+                        //an aborted download isn't an error
+                        record(Operation.Download, lStart, getCount(), true);
+                    }
+                }
+            }
+        }
+        
+    }   // DownloadInputStream
+
+}   // DropboxMetrics
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.util.Map;
+
+/**
+ * The <code>DropboxMetricsMXBean</code> is the management interface of {@link DropboxMetrics}. All maps
+ * are keyed by operation name. Latencies are in milliseconds, percentiles are the upper bounds of the
+ * histogram buckets.
+ * 
+ * @author René Jahn
+ */
+public interface DropboxMetricsMXBean
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Method definitions
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Gets the number of finished operations.
+     * 
+     * @return the number of operations
+     */
+    public Map<String, Long> getOperationCounts();
+    
+    /**
+     * Gets the number of failed operations.
+     * 
+     * @return the number of failed operations
+     */
+    public Map<String, Long> getErrorCounts();
+    
+    /**
+     * Gets the average latencies.
+     * 
+     * @return the average latencies (ms)
+     */
+    public Map<String, Double> getAverageLatencies();
+    
+    /**
+     * Gets the median latencies.
+     * 
+     * @return the median latencies (ms)
+     */
+    public Map<String, Long> getMedianLatencies();
+    
+    /**
+     * Gets the 95th percentile latencies.
+     * 
+     * @return the 95th percentile latencies (ms)
+     */
+    public Map<String, Long> getPercentile95Latencies();
+    
+    /**
+     * Gets the 99th percentile latencies.
+     * 
+     * @return the 99th percentile latencies (ms)
+     */
+    public Map<String, Long> getPercentile99Latencies();
+    
+    /**
+     * Gets the maximum latencies.
+     * 
+     * @return the maximum latencies (ms)
+     */
+    public Map<String, Long> getMaxLatencies();
+    
+    /**
+     * Gets the number of bytes, read by the file handles.
+     * 
+     * @return the number of bytes
+     */
+    public long getBytesIn();
+    
+    /**
+     * Gets the number of uploaded bytes.
+     * 
+     * @return the number of bytes
+     */
+    public long getBytesOut();
+    
+    /**
+     * Gets the number of API calls.
+     * 
+     * @return the number of API calls
+     */
+    public long getApiCalls();
+    
+    /**
+     * Gets the number of listed folders.
+     * 
+     * @return the number of folders
+     */
+    public long getFoldersVisited();
+    
+    /**
+     * Gets the average number of listed folders per fetch.
+     * 
+     * @return the average number of folders
+     */
+    public double getFoldersVisitedPerFetch();
+    
+    /**
+     * Gets the average number of API calls per fetch.
+     * 
+     * @return the average number of API calls
+     */
+    public double getApiCallsPerFetch();
+    
+    /**
+     * Gets the number of created file handles.
+     * 
+     * @return the number of file handles
+     */
+    public long getFileHandlesCreated();
+    
+    /**
+     * Gets the number of file handles which were created and not removed from the object cache.
+     * 
+     * @return the number of file handles
+     */
+    public long getFileHandles();
+    
+    /**
+     * Gets the hit ratio of the folder listing cache.
+     * 
+     * @return the hit ratio between <code>0</code> and <code>1</code>, or <code>-1</code> if the cache
+     *         wasn't used
+     */
+    public double getListingCacheHitRatio();
+    
+    /**
+     * Gets the hit ratio of the shared content cache.
+     * 
+     * @return the hit ratio between <code>0</code> and <code>1</code>, or <code>-1</code> if the cache
+     *         wasn't used
+     */
+    public double getContentCacheHitRatio();
+    
+    /**
+     * Gets the hit ratio of the shared thumbnail cache.
+     * 
+     * @return the hit ratio between <code>0</code> and <code>1</code>, or <code>-1</code> if the cache
+     *         wasn't used
+     */
+    public double getThumbnailCacheHitRatio();
+    
+    /**
+     * Resets all counters.
+     */
+    public void reset();
+
+}   // DropboxMetricsMXBean
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.WeakHashMap;
+
+/**
+ * The <code>DropboxRateLimiter</code> schedules the requests of one access token. Every request needs a token
+ * from a token bucket. If the server throttles the requests, the rate will be halved and all requests wait
+ * until the requested or the backoff time is over. Every successful request increases the rate again, up to
+ * the configured maximum.
+ * <p>
+ * Every storage configures its own maximum rate, and the lowest configured rate is the maximum rate of the
+ * limiter. A throttled rate won't be increased by configuring a rate.
+ * </p>
+ * <p>
+ * The limiters are mapped by a hash of the access token, and they're weakly referenced. A limiter stays
+ * available as long as a storage keeps it, and will be removed when no storage uses the access token.
+ * </p>
+ * 
+ * @author René Jahn
+ */
+final class DropboxRateLimiter
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the minimum rate after throttling (requests per second). */
+    private static final double MIN_RATE = 0.5;
+    
+    /** the first backoff delay (ms). */
+    private static final long BACKOFF_DELAY = 500;
+    
+    /** the maximum backoff delay (ms). */
+    private static final long MAX_BACKOFF_DELAY = 60000;
+    
+    /** the limiters, mapped by the hash of the access token. */
+    private static HashMap<String, WeakReference<DropboxRateLimiter>> hmpLimiters = new HashMap<String, WeakReference<DropboxRateLimiter>>();
+    
+    /** the random generator for jitter. */
+    private Random random = new Random();
+    
+    /** the configured rates (requests per second), mapped by owner. */
+    private WeakHashMap<Object, Double> whmRates = new WeakHashMap<Object, Double>();
+    
+    /** the lowest configured rate (requests per second), <code>0</code> for no limit. */
+    private double dMaxRate;
+    
+    /** the current rate (requests per second), <code>0</code> for no limit. */
+    private double dRate;
+    
+    /** the available tokens. */
+    private double dTokens;
+    
+    /** the last refill of the bucket (ms). */
+    private long lLastRefill = System.currentTimeMillis();
+    
+    /** whether the rate was reduced because of throttling. */
+    private boolean bThrottled;
+    
+    /** the time until all requests have to wait (ms). */
+    private long lBlockedUntil;
+    
+    /** the start of the current measurement window (ms). */
+    private long lWindowStart = System.currentTimeMillis();
+    
+    /** the number of requests in the current measurement window. */
+    private int iWindowCount;
+    
+    /** the measured rate of the last window (requests per second). */
+    private double dMeasuredRate;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates a new instance of <code>DropboxRateLimiter</code>.
+     */
+    private DropboxRateLimiter()
+    {
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Gets the limiter for the given access token. The caller has to keep a reference to the limiter as 
+     * long as the access token is used, otherwise the limiter and its throttling state may be removed.
+     * 
+     * @param pAccessToken the access token or <code>null</code> for requests without access token
+     * @return the limiter
+     */
+    public static synchronized DropboxRateLimiter getInstance(String pAccessToken)
+    {
+        String sKey = DropboxContentHashes.getTokenId(pAccessToken);
+        
+        WeakReference<DropboxRateLimiter> wref = hmpLimiters.get(sKey);
+        
+        DropboxRateLimiter limiter = wref != null ? wref.get() : null;
+        
+        if (limiter == null)
+        {
+            removeUnused();
+            
+            limiter = new DropboxRateLimiter();
+            
+            hmpLimiters.put(sKey, new WeakReference<DropboxRateLimiter>(limiter));
+        }
+        
+        return limiter;
+    }
+    
+    /**
+     * Gets the number of known limiters.
+     * 
+     * @return the number of limiters
+     */
+    static synchronized int size()
+    {
+        removeUnused();
+        
+        return hmpLimiters.size();
+    }
+    
+    /**
+     * Removes the limiters which are not used anymore.
+     */
+    private static void removeUnused()
+    {
+        for (Iterator<WeakReference<DropboxRateLimiter>> it = hmpLimiters.values().iterator(); it.hasNext();)
+        {
+            if (it.next().get() == null)
+            {
+                it.remove();
+            }
+        }
+    }
+    
+    /**
+     * Waits until a request is allowed.
+     * 
+     * @throws InterruptedException if waiting was interrupted
+     */
+    public void acquire() throws InterruptedException
+    {
+        long lWait;
+        
+        synchronized (this)
+        {
+            long lNow = System.currentTimeMillis();
+            
+            measure(lNow);
+            
+            lWait = Math.max(0, lBlockedUntil - lNow);
+            
+            if (dRate > 0)
+            {
+                dTokens = Math.min(Math.max(1, dRate), dTokens + (lNow - lLastRefill) * dRate / 1000);
+                
+                lLastRefill = lNow;
+                
+                //reserve the token, a negative value is the waiting time of all reserved requests
+                dTokens -= 1;
+                
+                if (dTokens < 0)
+                {
+                    lWait = Math.max(lWait, (long)Math.ceil(-dTokens * 1000 / dRate));
+                }
+            }
+        }
+        
+        if (lWait > 0)
+        {
+            Thread.sleep(lWait);
+        }
+    }
+    
+    /**
+     * Increases the rate after a successful request.
+     */
+    public synchronized void success()
+    {
+        if (dRate > 0 && (dMaxRate <= 0 || dRate < dMaxRate))
+        {
+            //about one request per second, per second
+            dRate += 1 / dRate;
+            
+            if (dMaxRate > 0)
+            {
+                dRate = Math.min(dRate, dMaxRate);
+                
+                bThrottled = dRate < dMaxRate;
+            }
+        }
+    }
+    
+    /**
+     * Delays all following requests after a failed request. The delay is the requested retry time or an
+     * exponential backoff with random jitter. If the request was throttled, the rate will be halved.
+     * 
+     * @param pRetry the number of previous retries
+     * @param pRetryAfter the requested retry time (ms) or <code>0</code> if no time was requested
+     * @param pThrottled <code>true</code> if the server throttled the request
+     * @return the delay (ms)
+     */
+    public synchronized long backoff(int pRetry, long pRetryAfter, boolean pThrottled)
+    {
+        if (pThrottled)
+        {
+            double dCurrent = dRate > 0 ? dRate : dMeasuredRate;
+            
+            dRate = Math.max(MIN_RATE, dCurrent / 2);
+            dTokens = Math.min(dTokens, 0);
+            
+            bThrottled = true;
+        }
+        
+        long lDelay;
+        
+        if (pRetryAfter > 0)
+        {
+            lDelay = pRetryAfter;
+        }
+        else
+        {
+            long lMaxDelay = Math.min(MAX_BACKOFF_DELAY, BACKOFF_DELAY << Math.min(pRetry, 16));
+            
+            //equal jitter: half of the delay is random
+            lDelay = lMaxDelay / 2 + (long)(random.nextDouble() * lMaxDelay / 2);
+        }
+        
+        lBlockedUntil = Math.max(lBlockedUntil, System.currentTimeMillis() + lDelay);
+        
+        return lDelay;
+    }
+    
+    /**
+     * Sets the maximum rate of an owner. The maximum rate of the limiter is the lowest rate of all owners.
+     * 
+     * @param pOwner the owner, e.g. the storage
+     * @param pMaxRate the maximum number of requests per second, <code>0</code> for no limit
+     */
+    public synchronized void setMaxRate(Object pOwner, double pMaxRate)
+    {
+        if (pMaxRate > 0)
+        {
+            whmRates.put(pOwner, Double.valueOf(pMaxRate));
+        }
+        else
+        {
+            whmRates.remove(pOwner);
+        }
+        
+        double dLowest = 0;
+        
+        for (Double dConfigured : whmRates.values())
+        {
+            if (dLowest <= 0 || dConfigured.doubleValue() < dLowest)
+            {
+                dLowest = dConfigured.doubleValue();
+            }
+        }
+        
+        dMaxRate = dLowest;
+        
+        if (dMaxRate > 0)
+        {
+            //a throttled rate is lower and will be increased by successful requests
+            if (dRate <= 0 || dRate > dMaxRate)
+            {
+                dRate = dMaxRate;
+            }
+        }
+        else if (!bThrottled)
+        {
+            dRate = 0;
+        }
+    }
+    
+    /**
+     * Gets the maximum rate, the lowest configured rate of all owners.
+     * 
+     * @return the maximum number of requests per second, <code>0</code> for no limit
+     */
+    public synchronized double getMaxRate()
+    {
+        return dMaxRate;
+    }
+    
+    /**
+     * Gets the current rate.
+     * 
+     * @return the current number of allowed requests per second, <code>0</code> for no limit
+     */
+    public synchronized double getRate()
+    {
+        return dRate;
+    }
+    
+    /**
+     * Measures the request rate, for throttling without configured rate.
+     * 
+     * @param pNow the current time (ms)
+     */
+    private void measure(long pNow)
+    {
+        iWindowCount++;
+        
+        long lElapsed = pNow - lWindowStart;
+        
+        if (lElapsed >= 1000)
+        {
+            dMeasuredRate = iWindowCount * 1000d / lElapsed;
+            
+            iWindowCount = 0;
+            lWindowStart = pNow;
+        }
+        else if (dMeasuredRate == 0)
+        {
+            dMeasuredRate = iWindowCount;
+        }
+    }
+
+}   // DropboxRateLimiter
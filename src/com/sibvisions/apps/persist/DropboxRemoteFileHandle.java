@@ -0,0 +1,187 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import jvx.rad.io.IFileHandle;
+import jvx.rad.io.RemoteFileHandle;
+
+import com.sibvisions.util.IValidatable;
+import com.sibvisions.util.ObjectCache;
+
+/**
+ * The <code>DropboxRemoteFileHandle</code> is a {@link RemoteFileHandle} which registers its handle in the
+ * {@link ObjectCache} not before the content will be read or the record will be returned by the storage. 
+ * Records which are only filtered, exported or discarded won't create a handle. The object cache key is 
+ * created by the storage and the same key, e.g. for the same path and revision, is mapped to one handle.
+ * <p>
+ * This handle is used only inside the storage. Returned records contain the plain {@link RemoteFileHandle}
+ * of {@link #register()}, because the serializers don't support custom handles.
+ * </p>
+ * 
+ * @author René Jahn
+ */
+abstract class DropboxRemoteFileHandle extends RemoteFileHandle
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the serialization version. */
+    private static final long serialVersionUID = 1L;
+    
+    /** the registered handle. */
+    private transient volatile IFileHandle handle;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates a new instance of <code>DropboxRemoteFileHandle</code>.
+     * 
+     * @param pFileName the file name
+     * @param pObjectCacheKey the object cache key
+     */
+    protected DropboxRemoteFileHandle(String pFileName, Object pObjectCacheKey)
+    {
+        super(pFileName, pObjectCacheKey);
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Abstract methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates the handle which will be registered in the object cache.
+     * 
+     * @return the handle, an {@link IFileHandle}
+     */
+    protected abstract IValidatable createHandle();
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Overwritten methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream getInputStream() throws IOException
+    {
+        return getHandle().getInputStream();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLength() throws IOException
+    {
+        IFileHandle fhCurrent = handle;
+        
+        if (fhCurrent != null)
+        {
+            return fhCurrent.getLength();
+        }
+        
+        //no registration because BinaryDataType checks the length
+        return getUnregisteredLength();
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Gets the length of the content, without registering the handle.
+     * 
+     * @return the length or <code>-1</code> if the length is unknown
+     */
+    protected long getUnregisteredLength()
+    {
+        return -1;
+    }
+    
+    /**
+     * Gets the handle from the object cache. The handle will be created and registered if the key isn't
+     * registered.
+     * 
+     * @return the handle
+     */
+    public IFileHandle getHandle()
+    {
+        IFileHandle fhCurrent = handle;
+        
+        if (fhCurrent != null && ObjectCache.get(getObjectCacheKey()) == fhCurrent)
+        {
+            return fhCurrent;
+        }
+        
+        //registrations are rare, because they happen only for read content
+        synchronized (DropboxRemoteFileHandle.class)
+        {
+            Object oHandle = ObjectCache.get(getObjectCacheKey());
+            
+            if (oHandle instanceof IFileHandle)
+            {
+                fhCurrent = (IFileHandle)oHandle;
+            }
+            else
+            {
+                IValidatable vNew = createHandle();
+                
+                ObjectCache.put(getObjectCacheKey(), vNew);
+                
+                fhCurrent = (IFileHandle)vNew;
+            }
+            
+            handle = fhCurrent;
+            
+            return fhCurrent;
+        }
+    }
+    
+    /**
+     * Gets whether the handle is registered.
+     * 
+     * @return <code>true</code> if the handle is registered, <code>false</code> otherwise
+     */
+    public boolean isRegistered()
+    {
+        return handle != null;
+    }
+    
+    /**
+     * Registers the handle and creates a plain {@link RemoteFileHandle} with the same cache key.
+     * 
+     * @return the plain remote file handle
+     */
+    public RemoteFileHandle register()
+    {
+        getHandle();
+        
+        return new RemoteFileHandle(getFileName(), getObjectCacheKey());
+    }
+
+}   // DropboxRemoteFileHandle
@@ -23,51 +23,83 @@ package com.sibvisions.apps.persist;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.Proxy.Type;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.PriorityQueue;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
 
 import jvx.rad.io.IFileHandle;
 import jvx.rad.io.RemoteFileHandle;
 import jvx.rad.model.ModelException;
 import jvx.rad.model.RowDefinition;
 import jvx.rad.model.SortDefinition;
+import jvx.rad.model.condition.And;
+import jvx.rad.model.condition.CompareCondition;
 import jvx.rad.model.condition.Equals;
 import jvx.rad.model.condition.ICondition;
+import jvx.rad.model.condition.Like;
+import jvx.rad.model.condition.LikeIgnoreCase;
 import jvx.rad.model.condition.OperatorCondition;
 import jvx.rad.model.datatype.BinaryDataType;
+import jvx.rad.model.datatype.IDataType;
 import jvx.rad.model.datatype.StringDataType;
 import jvx.rad.persist.ColumnMetaData;
 import jvx.rad.persist.DataSourceException;
 import jvx.rad.persist.MetaData;
-import jvx.rad.persist.MetaData.Feature;
 
 import com.dropbox.core.DbxClient;
 import com.dropbox.core.DbxEntry;
 import com.dropbox.core.DbxHost;
 import com.dropbox.core.DbxRequestConfig;
+import com.dropbox.core.DbxThumbnailFormat;
+import com.dropbox.core.DbxThumbnailSize;
 import com.dropbox.core.DbxWriteMode;
+import com.dropbox.core.http.HttpRequestor;
 import com.dropbox.core.http.StandardHttpRequestor;
+import com.sibvisions.apps.persist.DropboxMetrics.Operation;
 import com.sibvisions.rad.model.DataBookCSVExporter;
 import com.sibvisions.rad.model.mem.DataRow;
-import com.sibvisions.rad.model.mem.MemDataBook;
 import com.sibvisions.rad.persist.AbstractCachedStorage;
 import com.sibvisions.util.ArrayUtil;
+import com.sibvisions.util.IValidatable;
 import com.sibvisions.util.ObjectCache;
 import com.sibvisions.util.ProxyUtil;
 import com.sibvisions.util.type.CommonUtil;
-import com.sibvisions.util.type.FileUtil;
+import com.sibvisions.util.type.LocaleUtil;
 import com.sibvisions.util.type.StringUtil;
 
 /**
  * The <code>DropboxStorage</code> is a cached storage for files which were store in a dropbox.
  * 
- * @author Ren Jahn
+ * @author René Jahn
  */
 public class DropboxStorage extends AbstractCachedStorage
 {
@@ -78,6 +110,39 @@ public class DropboxStorage extends AbstractCachedStorage
     /** the filter value if null. */
     private static final String NULL = "/";
     
+    /** the maximum number of entries of a server-side search. */
+    private static final int SEARCH_LIMIT = 1000;
+    
+    /** the minimum length of a server-side search query. */
+    private static final int SEARCH_MIN_LENGTH = 3;
+    
+    /** the time after which an unused fetch cursor will be cancelled (ms). */
+    private static final long CURSOR_TIMEOUT = 5 * 60 * 1000L;
+    
+    /** the maximum number of platform threads for asynchronous operations, if virtual threads are not available. */
+    private static final int ASYNC_THREADS = 64;
+    
+    /** the maximum size of files and file handles which will be hashed before an upload. */
+    private static final int PREHASH_SIZE = 1024 * 1024;
+    
+    /** the maximum size of files whose content will be downloaded into memory with the fetch. */
+    private static final long MAX_PREFETCH_SIZE = 64 * 1024 * 1024;
+    
+    /** the maximum number of concurrent content prefetches per fetch. */
+    private static final int PREFETCH_PARALLELISM = 8;
+    
+    /** the maximum number of threads for content prefetches of all storages. */
+    private static final int PREFETCH_THREADS = 32;
+    
+    /** the object cache key prefixes, mapped by the hash of the access token. */
+    private static HashMap<String, WeakReference<String>> hmpKeyPrefixes = new HashMap<String, WeakReference<String>>();
+    
+    /** the shared executor for asynchronous operations. */
+    private static Executor exAsyncShared;
+    
+    /** the shared executor for content prefetches. */
+    private static Executor exPrefetch;
+    
     /** the file type enumeration. */
     public enum FileType
     {
@@ -92,36 +157,129 @@ public class DropboxStorage extends AbstractCachedStorage
     /** the dropbox client. */
     private DbxClient client;
     
+    /** the metadata index. */
+    private DropboxIndex index;
+    
+    /** the current streaming fetch. */
+    private FetchCursor cursor;
+    
+    /** the folder listing cache. */
+    private DropboxListingCache listingCache;
+    
+    /** the custom http requestor. */
+    private HttpRequestor httpRequestor;
+    
+    /** the folder statistics. */
+    private DropboxFolderStatistics statistics = new DropboxFolderStatistics();
+    
+    /** the shared folder paths of all records. */
+    private DropboxFolderTable folders = new DropboxFolderTable();
+    
+    /** the metrics. */
+    private DropboxMetrics metrics = new DropboxMetrics();
+    
+    /** the registered MXBean name. */
+    private ObjectName onMetrics;
+    
     /** the metadata. */
     private MetaData metadata;
 
     /** the row definition. */
     private RowDefinition rowdef;
     
-    /** the export databook. */
-    private MemDataBook mdbExport;
-    
     /** the access token. */
     private String sAccessToken;
     
     /** the initial root path. */
     private String sRootPath;
     
+    /** the object cache key prefix for file handles. */
+    private String sKeyPrefix;
+    
     /** the proxy host. */
     private String sProxyHost;
     
     /** the fetch filetype. */
     private FileType fileType = FileType.File;
+    
+    /** the thumbnail size. */
+    private DbxThumbnailSize thumbnailSize = DbxThumbnailSize.w128h128;
+    
+    /** the thumbnail format or <code>null</code> for the best format per file. */
+    private DbxThumbnailFormat thumbnailFormat;
 
+    /** the pool for parallel folder traversal. */
+    private ForkJoinPool fjpTraversal;
+    
+    /** the executor for asynchronous operations. */
+    private Executor exAsync;
+    
+    /** the rate limiter of the access token, kept while this storage is open. */
+    private DropboxRateLimiter limiter;
+    
     /** the proxy port. */
     private int iProxyPort;
     
+    /** the target number of concurrent folder listings. */
+    private int iParallelism = 1;
+    
+    /** the maximum number of connections per host. */
+    private int iMaxConnectionsPerHost = 0;
+    
+    /** the connect timeout (ms). */
+    private int iConnectTimeout = StandardHttpRequestor.DefaultConnectTimeoutMillis;
+    
+    /** the read timeout (ms). */
+    private int iReadTimeout = StandardHttpRequestor.DefaultReadTimeoutMillis;
+    
+    /** the maximum number of concurrent batch operations. */
+    private int iBatchParallelism = 4;
+    
+    /** the maximum file size for content prefetch (bytes). */
+    private long lPrefetchSize = 0;
+    
+    /** the maximum number of requests per second. */
+    private double dRequestRate = 0;
+    
+    /** the maximum number of retries per throttled or failed request. */
+    private int iRequestRetries = 3;
+    
+    /** the chunk size for uploads. */
+    private int iUploadChunkSize = 4 * 1024 * 1024;
+    
+    /** the maximum number of retries per upload request. */
+    private int iUploadRetries = 3;
+    
     /** whether this storage is open. */
     private boolean bOpen;
     
     /** whether fetch should act recursive. */
     private boolean bRecursive = false;
     
+    /** whether the metadata index should be used. */
+    private boolean bIndex = false;
+    
+    /** whether records should be fetched page by page. */
+    private boolean bStreamingFetch = false;
+    
+    /** whether name filters should be sent to the server-side search. */
+    private boolean bSearchPushdown = false;
+    
+    /** whether file content should be streamed without temp file. */
+    private boolean bStreamingDownload = false;
+    
+    /** whether the metrics should be published as MXBean. */
+    private boolean bJmx = false;
+    
+    /** whether the thumbnail column should be available. */
+    private boolean bThumbnail = false;
+    
+    /** whether the metadata contains the thumbnail column. */
+    private boolean bThumbnailColumn = false;
+    
+    /** whether thumbnails should be downloaded with the fetch. */
+    private boolean bThumbnailPrefetch = false;
+    
     //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
     // Initialization
     //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -152,10 +310,54 @@ public class DropboxStorage extends AbstractCachedStorage
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The estimation uses the statistics of the already listed folders and doesn't list any folder. A
+     * recursive estimation needs the statistics of all sub folders. Other conditions than the folder won't 
+     * be checked.
+     * </p>
+     * 
+     * @return the estimated row count or <code>-1</code> if the storage isn't open or the folder or, for a
+     *         recursive estimation, one of its sub folders wasn't listed yet
      */
     public int getEstimatedRowCount(ICondition pFilter) throws DataSourceException
     {
-        return 0;
+        if (!isOpen())
+        {
+            return -1;
+        }
+
+        String sFolder = getSearchFolder(pFilter);
+        
+        if (sFolder == NULL)
+        {
+            return 1;
+        }
+        
+        boolean bDeep = isDeepSearch(pFilter, sFolder);
+        
+        boolean bFiles = fileType != FileType.Folder;
+        boolean bFolders = fileType != FileType.File;
+
+        Object oType = getEqualsValue(pFilter, "TYPE");
+        
+        if (FileType.File.toString().equals(oType))
+        {
+            bFolders = false;
+        }
+        else if (FileType.Folder.toString().equals(oType))
+        {
+            bFiles = false;
+        }
+        
+        sFolder = getFolderDisplayName(sFolder);
+        
+        //an estimation shouldn't cause requests, and incomplete statistics would count too few rows
+        if (statistics.getMissingFolder(sFolder, bDeep) != null)
+        {
+            return -1;
+        }
+        
+        return statistics.count(sFolder, bDeep, bFiles, bFolders);
     }
 
     /**
@@ -168,7 +370,30 @@ public class DropboxStorage extends AbstractCachedStorage
         if (bOpen)
         {
             metadata = null;
+            
+            //open initializes the client and the MXBean again
+            bOpen = false;
+            
+            //the limiter will be removed, if no other storage uses the access token
+            limiter.setMaxRate(this, 0);
+            limiter = null;
         }
+        
+        if (fjpTraversal != null)
+        {
+            fjpTraversal.shutdown();
+            fjpTraversal = null;
+        }
+        
+        index = null;
+        
+        statistics.clear();
+        
+        folders.clear();
+        
+        cancelCursor();
+        
+        unregisterMetrics();
     }
     
     //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -180,64 +405,67 @@ public class DropboxStorage extends AbstractCachedStorage
      */
     @Override
     protected List<Object[]> executeFetch(ICondition pFilter, SortDefinition pSort, int pFromRow, int pMinimumRowCount) throws DataSourceException
+    {
+        long lStart = System.nanoTime();
+        long lFolders = metrics.getFoldersVisited();
+        long lApiCalls = metrics.getApiCalls();
+        
+        boolean bSuccess = false;
+        
+        try
+        {
+            List<Object[]> liRecords = fetchRecords(pFilter, pSort, pFromRow, pMinimumRowCount);
+            
+            prefetchContent(liRecords);
+            
+            for (int i = 0, cnt = liRecords.size(); i < cnt; i++)
+            {
+                publishHandles(liRecords.get(i));
+            }
+            
+            bSuccess = true;
+            
+            return liRecords;
+        }
+        finally
+        {
+            metrics.recordFetch(lStart, lFolders, lApiCalls, bSuccess);
+        }
+    }
+    
+    /**
+     * Fetches the records.
+     * 
+     * @param pFilter the filter
+     * @param pSort the sort definition
+     * @param pFromRow the first row
+     * @param pMinimumRowCount the minimum number of rows
+     * @return the records
+     * @throws DataSourceException if fetching fails
+     */
+    private List<Object[]> fetchRecords(ICondition pFilter, SortDefinition pSort, int pFromRow, int pMinimumRowCount) throws DataSourceException
     {
         if (!isOpen())
         {
             throw new DataSourceException("DropboxStorage isn't open!");         
         }
         
-        String sFolder = null;
-        
-        boolean bDeepSearch = bRecursive;
+        String sFolder = getSearchFolder(pFilter);
         
-        if (pFilter == null)
-        {
-            //NO Filter -> search all
-            sFolder = sRootPath;
-        }
-        else
+        if (bStreamingFetch && pMinimumRowCount >= 0 && sFolder != NULL)
         {
-            String sFilter = (String)getEqualsValue(pFilter, "FOLDER");                
-
-            if (sFilter != null && sFilter != NULL)
-            {
-                sFolder = sFilter;
-            }
-            else
-            {
-                sFilter = (String)getEqualsValue(pFilter, "PARENT_FOLDER");
-                
-                if (sFilter != null)
-                {
-                    sFolder = sFilter;
-                }
-            }
-            
-            if (!bDeepSearch)
-            {
-                //no folder search -> must be a complex filter -> deep search
-                bDeepSearch = sFolder == null;
-            }
+            return fetchPage(sFolder, isDeepSearch(pFilter, sFolder), pFilter, pSort, pFromRow, pMinimumRowCount);
         }
         
         try
         {
             List<Object[]> liRecords = new ArrayUtil<Object[]>();
 
-            if (sFolder == NULL)
-            {
-                DbxEntry entry = client.getMetadata("/");
-                
-                DataRow row = new DataRow(rowdef);
-                
-                if (pFilter.isFulfilled(row))
-                {
-                    liRecords.add(createRecord(entry));
-                }
-            }
-            else
+            searchRecords(pFilter, new ListSink(liRecords));
+            
+            if (pSort != null)
             {
-                searchRecords(sFolder, bDeepSearch, liRecords, pFilter);
+                Collections.sort(liRecords, new RecordComparator(pSort));
             }
             
             liRecords.add(null);
@@ -255,32 +483,106 @@ public class DropboxStorage extends AbstractCachedStorage
      */
     @Override
     protected Object[] executeRefetchRow(Object[] pDataRow) throws DataSourceException
+    {
+        long lStart = System.nanoTime();
+        
+        boolean bSuccess = false;
+        
+        try
+        {
+            Object[] oResult = publishHandles(refetchRecord(pDataRow));
+            
+            bSuccess = true;
+            
+            return oResult;
+        }
+        finally
+        {
+            metrics.record(Operation.Refetch, lStart, 0, bSuccess);
+        }
+    }
+    
+    /**
+     * Refetches a record.
+     * 
+     * @param pDataRow the record
+     * @return the current record
+     * @throws DataSourceException if refetching fails
+     */
+    private Object[] refetchRecord(Object[] pDataRow) throws DataSourceException
     {
         if (!isOpen())
         {
             throw new DataSourceException("DropboxStorage isn't open!");         
         }
 
+        boolean bFile = FileType.File.toString().equals(pDataRow[4]);
+        
+        DbxEntry entry = null;
+        
+        if (bIndex || bFile)
+        {
+            try
+            {
+                DropboxIndex idx = updateIndex();
+                
+                if (idx != null)
+                {
+                    entry = idx.get((String)pDataRow[0]);
+                }
+                else
+                {
+                    //cheap metadata check, a changed revision gets a new file handle
+                    entry = client.getMetadata((String)pDataRow[0]);
+                }
+            }
+            catch (Exception ex)
+            {
+                throw new DataSourceException("Can't refetch '" + pDataRow[0] + "'!", ex);
+            }
+        }
+        
+        if (entry != null)
+        {
+            if (entry.isFile())
+            {
+                Object[] oRecord = createRecord(entry);
+                
+                refetchHandle(pDataRow[5], oRecord[5]);
+                
+                if (bThumbnailColumn)
+                {
+                    refetchHandle(pDataRow[6], oRecord[6]);
+                }
+                
+                return oRecord;
+            }
+            
+            removeFileHandle(pDataRow);
+            
+            return createRecord(entry);
+        }
+        
         removeFileHandle(pDataRow);
         
         //the only thing we can do, is to create a new file handle (maybe something has changed)
-        if (FileType.File.toString().equals(pDataRow[4]))
+        if (bFile)
         {
-            return new Object[] {pDataRow[0], 
-                                 pDataRow[1], 
-                                 pDataRow[2], 
-                                 pDataRow[3], 
-                                 pDataRow[4], 
-                                 createFileHandle((String)pDataRow[0], (String)pDataRow[3])};
+            return createRecord(new Object[] {pDataRow[0], 
+                                              pDataRow[1], 
+                                              pDataRow[2], 
+                                              pDataRow[3], 
+                                              pDataRow[4], 
+                                              createFileHandle((String)pDataRow[0], (String)pDataRow[3])}, null);
         }
         else
         {
-            return new Object[] {pDataRow[0], 
-                                 pDataRow[1], 
-                                 pDataRow[2], 
-                                 getFolderDisplayName((String)pDataRow[3]), 
-                                 pDataRow[4], 
-                                 null};
+            return createRecord(new Object[] {pDataRow[0], 
+                                              pDataRow[1], 
+                                              pDataRow[2], 
+                                              getFolderDisplayName((String)pDataRow[3]), 
+                                              pDataRow[4], 
+                                              null}, null);
         }
     }
     
@@ -289,6 +591,33 @@ public class DropboxStorage extends AbstractCachedStorage
      */
     @Override
     protected Object[] executeInsert(Object[] pDataRow) throws DataSourceException
+    {
+        long lStart = System.nanoTime();
+        
+        boolean bSuccess = false;
+        
+        try
+        {
+            Object[] oResult = publishHandles(insertRecord(pDataRow));
+            
+            bSuccess = true;
+            
+            return oResult;
+        }
+        finally
+        {
+            metrics.record(Operation.Insert, lStart, 0, bSuccess);
+        }
+    }
+    
+    /**
+     * Inserts a file or folder.
+     * 
+     * @param pDataRow the new record
+     * @return the inserted record
+     * @throws DataSourceException if inserting fails
+     */
+    private Object[] insertRecord(Object[] pDataRow) throws DataSourceException
     {
         if (!isOpen())
         {
@@ -313,14 +642,16 @@ public class DropboxStorage extends AbstractCachedStorage
             {
                 file = save(sPath, data);
                 
+                statistics.add(file.path, false);
+                
                 String sFolder = getFolder(file.path);
                 
-                return new Object[] {file.path,
-                                     getParentFolder(sFolder),
-                                     sFolder, 
-                                     file.name, 
-                                     FileType.File.toString(), 
-                                     createFileHandle(file.path, file.name)};
+                return createRecord(new Object[] {file.path,
+                                                  getParentFolder(sFolder),
+                                                  sFolder, 
+                                                  file.name, 
+                                                  FileType.File.toString(), 
+                                                  createFileHandle(file)}, file);
             }
             catch (Exception ex)
             {
@@ -345,7 +676,10 @@ public class DropboxStorage extends AbstractCachedStorage
             {
                 DbxEntry.Folder folder = client.createFolder(sFolder);
                 
-                return new Object[] {folder.path, getParentFolder(folder.path), folder.path, getFolderDisplayName(folder.name), FileType.Folder.toString(), null};
+                statistics.add(folder.path, true);
+                statistics.setChildren(folder.path, null);
+                
+                return createRecord(new Object[] {folder.path, getParentFolder(folder.path), folder.path, getFolderDisplayName(folder.name), FileType.Folder.toString(), null}, null);
             }
             catch (Exception ex)
             {
@@ -354,8 +688,47 @@ public class DropboxStorage extends AbstractCachedStorage
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The content won't be uploaded if it's unchanged. A file handle with the cache key of the current
+     * content is unchanged without reading it. Otherwise, if the hash of a remote revision with the same 
+     * length is known, the new content will be hashed before the upload: <code>byte[]</code> content 
+     * always, files and file handles only up to 1 MB, because they would be read 
+     * twice if the content has changed. Larger content and streams will be uploaded, and hashed while 
+     * they are uploaded.
+     * </p>
+     */
     @Override
     protected Object[] executeUpdate(Object[] pOldDataRow, Object[] pNewDataRow) throws DataSourceException
+    {
+        long lStart = System.nanoTime();
+        
+        boolean bSuccess = false;
+        
+        try
+        {
+            Object[] oResult = publishHandles(updateRecord(pOldDataRow, pNewDataRow));
+            
+            bSuccess = true;
+            
+            return oResult;
+        }
+        finally
+        {
+            metrics.record(Operation.Update, lStart, 0, bSuccess);
+        }
+    }
+    
+    /**
+     * Moves a file or folder and saves the content of a file.
+     * 
+     * @param pOldDataRow the old record
+     * @param pNewDataRow the new record
+     * @return the updated record
+     * @throws DataSourceException if updating fails
+     */
+    private Object[] updateRecord(Object[] pOldDataRow, Object[] pNewDataRow) throws DataSourceException
     {
         if (!isOpen())
         {
@@ -382,16 +755,34 @@ public class DropboxStorage extends AbstractCachedStorage
             try
             {
                 //file exists?
-                if (client.getMetadata(sNewPath) != null)
+                DbxEntry existing = client.getMetadata(sNewPath);
+                
+                if (existing != null)
                 {
                     //try to delete
                     client.delete(sNewPath);
+                    
+                    statistics.remove(existing.path, existing.isFolder());
                 }
                 
-                DbxEntry entry = client.move(sOldPath, sNewPath);
+                long lStart = System.nanoTime();
+                
+                DbxEntry entry = null;
+                
+                try
+                {
+                    entry = client.move(sOldPath, sNewPath);
+                }
+                finally
+                {
+                    metrics.record(Operation.Move, lStart, 0, entry != null);
+                }
 
                 if (entry != null)
                 {
+                    statistics.remove(sOldPath, entry.isFolder());
+                    statistics.add(entry.path, entry.isFolder());
+                    
                     removeFileHandle(pOldDataRow);
                     removeFileHandle(pNewDataRow);
                     
@@ -417,15 +808,25 @@ public class DropboxStorage extends AbstractCachedStorage
             oResult = pNewDataRow;
         }
 
-        if (!CommonUtil.equals(pOldDataRow[5], pNewDataRow[5]))
+        if (!isSameContent(pOldDataRow[5], pNewDataRow[5]))
         {
             try
             {
-                DbxEntry.File file = save(sNewPath, pNewDataRow[5]);
-
-                removeFileHandle(oResult);
+                DbxEntry.File file = getUnchangedFile(sNewPath, pNewDataRow[5]);
+                
+                if (file == null)
+                {
+                    file = save(sNewPath, pNewDataRow[5]);
+                    
+                    removeFileHandle(oResult);
+                }
                 
                 oResult[5] = createFileHandle(file);
+                
+                if (bThumbnailColumn)
+                {
+                    oResult[6] = createThumbnailHandle(file);
+                }
             }
             catch (Exception ex)
             {
@@ -441,6 +842,30 @@ public class DropboxStorage extends AbstractCachedStorage
      */
     @Override
     protected void executeDelete(Object[] pDeleteDataRow) throws DataSourceException
+    {
+        long lStart = System.nanoTime();
+        
+        boolean bSuccess = false;
+        
+        try
+        {
+            deleteRecord(pDeleteDataRow);
+            
+            bSuccess = true;
+        }
+        finally
+        {
+            metrics.record(Operation.Delete, lStart, 0, bSuccess);
+        }
+    }
+    
+    /**
+     * Deletes a file or folder.
+     * 
+     * @param pDeleteDataRow the record
+     * @throws DataSourceException if deleting fails
+     */
+    private void deleteRecord(Object[] pDeleteDataRow) throws DataSourceException
     {
         if (!isOpen())
         {
@@ -451,6 +876,8 @@ public class DropboxStorage extends AbstractCachedStorage
         {
             client.delete((String)pDeleteDataRow[0]);
             
+            statistics.remove((String)pDeleteDataRow[0], FileType.Folder.toString().equals(pDeleteDataRow[4]));
+            
             removeFileHandle(pDeleteDataRow);
         }
         catch (Exception ex)
@@ -459,6 +886,14 @@ public class DropboxStorage extends AbstractCachedStorage
         }
     }
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Without sort definition or sorted by PATH, the records will be written while the folders are searched,
+     * and no record will be kept in memory. Other sorted exports need all records before the first row can be
+     * written.
+     * </p>
+     */
     @Override
     public void writeCSV(OutputStream pStream, String[] pColumnNames, String[] pLabels, ICondition pFilter, SortDefinition pSort, String pSeparator) throws Exception
     {
@@ -467,29 +902,22 @@ public class DropboxStorage extends AbstractCachedStorage
             throw new DataSourceException("DropboxStorage isn't open!");         
         }
 
-        if (mdbExport == null)
+        CSVWriter writer = new CSVWriter(pStream, pColumnNames, pLabels, pSeparator);
+        
+        try
         {
-            mdbExport = new MemDataBook(rowdef);
-            mdbExport.setName("export");
-            mdbExport.open();
+            searchRecords(pFilter, pSort, writer);
+            
+            writer.flush();
         }
-        else
+        catch (SearchException se)
         {
-            mdbExport.close();
-            mdbExport.open();
+            throw (Exception)se.getCause();
         }
-        
-        
-        for (Object[] record : fetch(pFilter, null, 0, -1))
+        finally
         {
-            if (record != null)
-            {
-                mdbExport.insert(false);
-                mdbExport.setValues(null, record);
-            }
+            writer.close();
         }
-        
-        DataBookCSVExporter.writeCSV(mdbExport, pStream, pColumnNames, pLabels, pFilter, pSort, pSeparator);        
     }
 
     //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -547,44 +975,63 @@ public class DropboxStorage extends AbstractCachedStorage
                 }
             }
             
-            DbxRequestConfig config;
+            HttpRequestor requestor = httpRequestor;
             
-            if (!StringUtil.isEmpty(sHost) && iPort > 0)
+            if (requestor == null)
             {
-                config = new DbxRequestConfig("JVx", Locale.getDefault().toString(), 
-                                              new StandardHttpRequestor(new Proxy(Type.HTTP, new InetSocketAddress(sHost, iPort))));
-            }
-            else
-            {
-                config = new DbxRequestConfig("JVx", Locale.getDefault().toString());
+                Proxy proxy = null;
+                
+                if (!StringUtil.isEmpty(sHost) && iPort > 0)
+                {
+                    proxy = new Proxy(Type.HTTP, new InetSocketAddress(sHost, iPort));
+                }
+
+                requestor = new DropboxHttpRequestor(proxy, iMaxConnectionsPerHost, iConnectTimeout, iReadTimeout, iRequestRetries);
             }
             
+            limiter = DropboxRateLimiter.getInstance(sAccessToken);
+            limiter.setMaxRate(this, dRequestRate);
+            
+            DbxRequestConfig config = new DbxRequestConfig("JVx", Locale.getDefault().toString(), metrics.countRequests(requestor));
+            
             client = new DbxClient(config, sAccessToken);            
+            
+            sKeyPrefix = getKeyPrefix(sAccessToken);
+            
+            if (bJmx)
+            {
+                registerMetrics();
+            }
 
             MetaData md = new MetaData();
 
             ColumnMetaData cmd = new ColumnMetaData("PATH", StringDataType.TYPE_IDENTIFIER);
             cmd.setNullable(false);
+            cmd.setCalculated(false);
             
             md.addColumnMetaData(cmd);
             
             cmd = new ColumnMetaData("PARENT_FOLDER", StringDataType.TYPE_IDENTIFIER);
             cmd.setNullable(false);
+            cmd.setCalculated(false);
             
             md.addColumnMetaData(cmd);
 
             cmd = new ColumnMetaData("FOLDER", StringDataType.TYPE_IDENTIFIER);
             cmd.setNullable(false);
+            cmd.setCalculated(false);
             
             md.addColumnMetaData(cmd);
 
             cmd = new ColumnMetaData("NAME", StringDataType.TYPE_IDENTIFIER);
             cmd.setNullable(false);
+            cmd.setCalculated(false);
             
             md.addColumnMetaData(cmd);
             
             cmd = new ColumnMetaData("TYPE", StringDataType.TYPE_IDENTIFIER);
             cmd.setNullable(false);
+            cmd.setCalculated(false);
             cmd.setAllowedValues(new Object[] {FileType.File.toString(), FileType.Folder.toString()});
             
             md.addColumnMetaData(cmd);
@@ -593,9 +1040,18 @@ public class DropboxStorage extends AbstractCachedStorage
             cmd.setFetchLargeObjectsLazy(true);
             
             md.addColumnMetaData(cmd);
-
-            md.removeFeature(Feature.Sort);
             
+            if (bThumbnail)
+            {
+                cmd = new ColumnMetaData("THUMBNAIL", BinaryDataType.TYPE_IDENTIFIER);
+                cmd.setFetchLargeObjectsLazy(true);
+                cmd.setWritable(false);
+                
+                md.addColumnMetaData(cmd);
+            }
+            
+            bThumbnailColumn = bThumbnail;
+
             md.setPrimaryKeyColumnNames(new String[] {"PATH"});
             
             metadata = md;            
@@ -629,396 +1085,3019 @@ public class DropboxStorage extends AbstractCachedStorage
     }
 
     /**
-     * Search dropbox records.
+     * Gets the folder which has to be searched for the given filter.
+     * 
+     * @param pFilter the filter condition
+     * @return the folder, <code>null</code> to search from the root folder or {@link #NULL} if the 
+     *         root folder itself was requested
+     */
+    private String getSearchFolder(ICondition pFilter)
+    {
+        if (pFilter == null)
+        {
+            //NO Filter -> search all
+            return sRootPath;
+        }
+
+        String sFilter = (String)getEqualsValue(pFilter, "FOLDER");                
+
+        if (sFilter != null && sFilter != NULL)
+        {
+            return sFilter;
+        }
+        
+        return (String)getEqualsValue(pFilter, "PARENT_FOLDER");
+    }
+    
+    /**
+     * Gets whether sub folders have to be searched for the given filter.
      * 
-     * @param pFolder the folder to search
-     * @param pDeep <code>true</code> to search in sub folders as well
-     * @param pRecords the found records
      * @param pFilter the filter condition
+     * @param pFolder the search folder
+     * @return <code>true</code> to search in sub folders as well
+     */
+    private boolean isDeepSearch(ICondition pFilter, String pFolder)
+    {
+        //no folder search -> must be a complex filter -> deep search
+        return bRecursive || (pFilter != null && pFolder == null);
+    }
+    
+    /**
+     * Searches all records for the given filter, in the given order.
+     * 
+     * @param pFilter the filter condition
+     * @param pSort the sort definition or <code>null</code> for unsorted records
+     * @param pRecords the sink for the found records
      * @throws Exception if iterating folders fails
      */
-    private void searchRecords(String pFolder, boolean pDeep, List<Object[]> pRecords, ICondition pFilter) throws Exception
+    private void searchRecords(ICondition pFilter, SortDefinition pSort, IRecordSink pRecords) throws Exception
     {
-        DataRow row = new DataRow(rowdef);
+        String sFolder = getSearchFolder(pFilter);
         
-        searchRecords(pFolder, pDeep, pRecords, pFilter, row);
-    }    
+        if (pSort == null || sFolder == NULL)
+        {
+            searchRecords(pFilter, pRecords);
+        }
+        else
+        {
+            updateIndex();
+            
+            searchRecords(sFolder, isDeepSearch(pFilter, sFolder), pRecords, pFilter, pSort);
+        }
+    }
     
     /**
-     * Search dropbox records.
+     * Searches all records for the given filter.
+     * 
+     * @param pFilter the filter condition
+     * @param pRecords the sink for the found records
+     * @throws Exception if iterating folders fails
+     */
+    private void searchRecords(ICondition pFilter, IRecordSink pRecords) throws Exception
+    {
+        String sFolder = getSearchFolder(pFilter);
+        
+        updateIndex();
+        
+        if (sFolder == NULL)
+        {
+            DbxEntry entry = client.getMetadata("/");
+            
+            DataRow row = new DataRow(rowdef);
+            
+            if (pFilter.isFulfilled(row))
+            {
+                pRecords.add(createRecord(entry));
+            }
+        }
+        else
+        {
+            searchRecords(sFolder, isDeepSearch(pFilter, sFolder), pRecords, pFilter);
+        }
+    }
+    
+    /**
+     * Search dropbox records in the given order. Records sorted by PATH will be found with a merge of the
+     * sorted folder listings: a folder will be listed when it's the next record, so the first records are
+     * available before all folders were listed. Other orders need all records before the first record can
+     * be added.
      * 
      * @param pFolder the folder to search
      * @param pDeep <code>true</code> to search in sub folders as well
-     * @param pRecords the found records
+     * @param pRecords the sink for the found records
      * @param pFilter the filter condition
-     * @param pSearch the temporary search row (for checking the filter condition)
+     * @param pSort the sort definition or <code>null</code> for unsorted records
      * @throws Exception if iterating folders fails
      */
-    private void searchRecords(String pFolder, boolean pDeep, List<Object[]> pRecords, ICondition pFilter, DataRow pSearch) throws Exception
+    private void searchRecords(String pFolder, boolean pDeep, IRecordSink pRecords, ICondition pFilter, SortDefinition pSort) throws Exception
     {
-        DbxEntry.WithChildren listing = client.getMetadataWithChildren(getFolderDisplayName(pFolder));
-        
-        for (DbxEntry entry : listing.children)
+        if (pSort == null)
+        {
+            searchRecords(pFolder, pDeep, pRecords, pFilter);
+        }
+        else if (isPathOrder(pSort)
+                 && !(bIndex && getPathPrefix(pFilter) != null)
+                 && !(bSearchPushdown && !bIndex && getSearchQuery(pFilter) != null))
         {
-            if (fileType == FileType.All
-                || (fileType == FileType.File && entry.isFile())
-                || (fileType == FileType.Folder && entry.isFolder()))
+            IDataType type = rowdef.getColumnDefinition("PATH").getDataType();
+            
+            PriorityQueue<DbxEntry> queue = new PriorityQueue<DbxEntry>(64, new EntryComparator(type));
+            queue.addAll(listChildren(pFolder));
+            
+            DataRow row = new DataRow(rowdef);
+            
+            //every path is greater than the path of its folder, so the folder is always listed in time
+            while (!queue.isEmpty())
             {
-                Object[] oRecord = createRecord(entry);
+                DbxEntry entry = queue.poll();
+                
+                Object[] oRecord = matchRecord(entry, pFilter, row);
                 
-                if (pFilter != null)
+                if (oRecord != null)
                 {
-                    pSearch.setValues(null, oRecord);
-                    
-                    if (pFilter.isFulfilled(pSearch))
-                    {
-                        pRecords.add(oRecord);                        
-                    }
+                    pRecords.add(oRecord);
                 }
-                else
+                
+                if (entry.isFolder() && pDeep)
                 {
-                    pRecords.add(oRecord);
+                    queue.addAll(listChildren(entry.path));
                 }
             }
+        }
+        else
+        {
+            List<Object[]> liRecords = new ArrayUtil<Object[]>();
             
-            if (entry.isFolder() && pDeep)
+            searchRecords(pFolder, pDeep, new ListSink(liRecords), pFilter);
+            
+            Collections.sort(liRecords, new RecordComparator(pSort));
+            
+            for (int i = 0, cnt = liRecords.size(); i < cnt; i++)
             {
-                searchRecords(entry.path, pDeep, pRecords, pFilter);
+                pRecords.add(liRecords.get(i));
             }
         }
     }
     
     /**
-     * Creates a record for the given entry.
+     * Gets whether the given sort definition is the PATH order. PATH is the primary key, so other columns
+     * after PATH don't change the order.
      * 
-     * @param pEntry the remote entry
-     * @return the record
+     * @param pSort the sort definition
+     * @return <code>true</code> if the first sort column is PATH, ascending
      */
-    private Object[] createRecord(DbxEntry pEntry)
+    private static boolean isPathOrder(SortDefinition pSort)
     {
-        boolean bFile = pEntry.isFile();
-
-        String sDirectory = bFile ? getFolder(pEntry.path) : pEntry.path;
+        String[] sColumns = pSort.getColumns();
+        boolean[] bAscending = pSort.isAscending();
         
-        return new Object[] {pEntry.path,
-                             getParentFolder(sDirectory),
-                             sDirectory,
-                             bFile ? pEntry.name : getFolderDisplayName(pEntry.name), 
-                             bFile ? FileType.File.toString() : FileType.Folder.toString(),
-                             bFile ? createFileHandle(pEntry.asFile()) : null};
+        return sColumns != null 
+               && sColumns.length > 0 
+               && "PATH".equals(sColumns[0])
+               && (bAscending == null || bAscending.length == 0 || bAscending[0]);
     }
     
     /**
-     * Creates a cached file handle for lazy loading.
+     * Search dropbox records.
      * 
-     * @param pFile the file
-     * @return the {@link RemoteFileHandle}
+     * @param pFolder the folder to search
+     * @param pDeep <code>true</code> to search in sub folders as well
+     * @param pRecords the sink for the found records
+     * @param pFilter the filter condition
+     * @throws Exception if iterating folders fails
      */
-    private RemoteFileHandle createFileHandle(DbxEntry.File pFile)
+    private void searchRecords(String pFolder, boolean pDeep, IRecordSink pRecords, ICondition pFilter) throws Exception
     {
-        DropboxFileHandle handle = new DropboxFileHandle(client, pFile);
-        
-        String sUUID = UUID.randomUUID().toString();
+        DataRow row = new DataRow(rowdef);
         
-        ObjectCache.put(sUUID, handle);
+        DropboxIndex idx = index;
         
-        return new RemoteFileHandle(pFile.name, sUUID);
-    }
-
-    /**
-     * Creates a cached file handle for lazy loading.
-     * 
-     * @param pPath the file path
-     * @param pName the file name
-     * @return the {@link RemoteFileHandle}
-     */
-    private RemoteFileHandle createFileHandle(String pPath, String pName)
-    {
-        DropboxFileHandle handle = new DropboxFileHandle(client, pPath);
+        if (pDeep && bIndex && idx != null && pFilter != null)
+        {
+            String sPrefix = getPathPrefix(pFilter);
+            
+            if (sPrefix != null)
+            {
+                //only the entries below the prefix can match
+                for (DbxEntry entry : idx.getDescendants(getFolderDisplayName(pFolder), sPrefix))
+                {
+                    Object[] oRecord = matchRecord(entry, pFilter, row);
+                    
+                    if (oRecord != null)
+                    {
+                        pRecords.add(oRecord);
+                    }
+                }
+                
+                return;
+            }
+        }
         
-        String sUUID = UUID.randomUUID().toString();
+        if (pDeep && bSearchPushdown && !bIndex && pFilter != null)
+        {
+            String sQuery = getSearchQuery(pFilter);
+            
+            if (sQuery != null)
+            {
+                List<DbxEntry> liFound = client.searchFileAndFolderNames(getFolderDisplayName(pFolder), sQuery);
+                
+                //if the result was truncated, we have to search all folders
+                if (liFound.size() < SEARCH_LIMIT)
+                {
+                    for (DbxEntry entry : liFound)
+                    {
+                        //the search is case insensitive and finds partial names -> check the whole filter 
+                        Object[] oRecord = matchRecord(entry, pFilter, row);
+                        
+                        if (oRecord != null)
+                        {
+                            pRecords.add(oRecord);
+                        }
+                    }
+                    
+                    return;
+                }
+            }
+        }
         
-        ObjectCache.put(sUUID, handle);
-
-        return new RemoteFileHandle(pName, sUUID);
-    }
+        searchRecords(pFolder, pDeep, pRecords, pFilter, row);
+    }    
     
     /**
-     * Removes a file handle from the cache.
+     * Search dropbox records.
      * 
-     * @param pRecord the record information. The [5] element should be an instance of {@link RemoteFileHandle} in
-     *                order to remove the object from the cache.
+     * @param pFolder the folder to search
+     * @param pDeep <code>true</code> to search in sub folders as well
+     * @param pRecords the sink for the found records
+     * @param pFilter the filter condition
+     * @param pSearch the temporary search row (for checking the filter condition)
+     * @throws Exception if iterating folders fails
      */
-    private void removeFileHandle(Object[] pRecord)
+    private void searchRecords(String pFolder, boolean pDeep, IRecordSink pRecords, ICondition pFilter, DataRow pSearch) throws Exception
     {
-        if (pRecord[4] instanceof RemoteFileHandle)
+        if (pDeep && iParallelism > 1 && !bIndex)
+        {
+            try
+            {
+                List<Object[]> liRecords = getTraversalPool().invoke(new SearchTask(pFolder, pFilter));
+                
+                for (int i = 0, cnt = liRecords.size(); i < cnt; i++)
+                {
+                    pRecords.add(liRecords.get(i));
+                }
+            }
+            catch (RuntimeException re)
+            {
+                Throwable th = re;
+                
+                //find the original exception (the pool may wrap it)
+                while (th != null && !(th instanceof SearchException))
+                {
+                    th = th.getCause();
+                }
+                
+                if (th != null && th.getCause() instanceof Exception)
+                {
+                    throw (Exception)th.getCause();
+                }
+                
+                throw re;
+            }
+            
+            return;
+        }
+        
+        for (DbxEntry entry : listChildren(pFolder))
         {
-            Object oKey = ((RemoteFileHandle)pRecord[5]).getObjectCacheKey();
+            Object[] oRecord = matchRecord(entry, pFilter, pSearch);
+            
+            if (oRecord != null)
+            {
+                pRecords.add(oRecord);
+            }
             
-            if (oKey != null)
+            if (entry.isFolder() && pDeep)
             {
-                ObjectCache.remove(oKey);
+                searchRecords(entry.path, pDeep, pRecords, pFilter, pSearch);
             }
         }
     }
     
     /**
-     * Gets the folder name from the given path.
+     * Fetches the next page of records. The records will be produced by a background traversal, and the 
+     * traversal will be continued with the next page request.
      * 
-     * @param pPath the path
-     * @return the directory name
+     * @param pFolder the folder to search
+     * @param pDeep <code>true</code> to search in sub folders as well
+     * @param pFilter the filter condition
+     * @param pSort the sort definition
+     * @param pFromRow the first row index
+     * @param pMinimumRowCount the minimum number of rows
+     * @return the records, with <code>null</code> as last element if all records were fetched
+     * @throws DataSourceException if the traversal fails
      */
-    private String getFolder(String pPath)
+    private List<Object[]> fetchPage(String pFolder, boolean pDeep, ICondition pFilter, SortDefinition pSort, 
+                                     int pFromRow, int pMinimumRowCount) throws DataSourceException
     {
-        String sPath = FileUtil.getDirectory(pPath);
+        String sKey = pFolder + "|" + pDeep + "|" + pFilter + "|" + pSort;
         
-        if (sPath == null)
+        FetchCursor fcur;
+        
+        synchronized (this)
         {
-            sPath = "/";
+            if (cursor == null || !cursor.isAvailable(sKey, pFromRow))
+            {
+                cancelCursor();
+                
+                cursor = new FetchCursor(sKey, pFolder, pDeep, pFilter, pSort, pFromRow);
+                cursor.start();
+            }
+            
+            fcur = cursor;
         }
-        else if (!sPath.startsWith("/"))
+        
+        try
         {
-            sPath = "/" + sPath;
+            return fcur.getRecords(pFromRow, pMinimumRowCount);
+        }
+        catch (Exception e)
+        {
+            throw new DataSourceException("Can't read folder!", e);
         }
-        
-        return sPath;
     }
     
     /**
-     * Gets the display name of the given folder.
+     * Cancels the current streaming fetch.
+     */
+    private synchronized void cancelCursor()
+    {
+        if (cursor != null)
+        {
+            cursor.cancel();
+            cursor = null;
+        }
+    }
+    
+    /**
+     * Lists the children of the given folder. The children will be read from the index, if enabled.
      * 
-     * @param pName the folder name (root node is empty)
-     * @return the display name of the given folder (/ for root folder)
+     * @param pFolder the folder
+     * @return the children
+     * @throws Exception if listing the folder fails
      */
-    private String getFolderDisplayName(String pName)
+    private List<DbxEntry> listChildren(String pFolder) throws Exception
     {
-        if (StringUtil.isEmpty(pName))
+        String sFolder = getFolderDisplayName(pFolder);
+        
+        List<DbxEntry> liChildren;
+        
+        DropboxIndex idx = index;
+        
+        if (bIndex && idx != null)
         {
-            return "/";
+            liChildren = idx.getChildren(sFolder);
+        }
+        else
+        {
+            DropboxListingCache cache = listingCache;
+            
+            if (cache != null)
+            {
+                liChildren = cache.getListing(client, sFolder).children;
+            }
+            else
+            {
+                liChildren = client.getMetadataWithChildren(sFolder).children;
+            }
         }
         
-        return pName;
+        statistics.setChildren(sFolder, liChildren);
+        
+        metrics.folderVisited();
+        
+        return liChildren;
     }
     
     /**
-     * Gets the parent folder name for the given directory.
+     * Applies the pending changes to the index, if enabled. The index will be built with the first update.
      * 
-     * @param pPath the directory
-     * @return the parent directory
+     * @return the updated index or <code>null</code> if the index isn't enabled
+     * @throws Exception if reading the changes fails
      */
-    private String getParentFolder(String pPath)
+    private DropboxIndex updateIndex() throws Exception
     {
-        if ("/".equals(pPath))
+        if (!bIndex)
         {
             return null;
         }
         
-        return getFolder(pPath);
+        DropboxIndex idx;
+        
+        synchronized (this)
+        {
+            if (index == null)
+            {
+                index = new DropboxIndex(sRootPath);
+            }
+            
+            idx = index;
+        }
+        
+        idx.update(client);
+        
+        return idx;
     }
     
     /**
-     * Creates a path with given record.
+     * Creates the record for the given entry, if the entry matches the configured file type and the filter.
      * 
-     * @param pDataRow the record
-     * @return the path
+     * @param pEntry the remote entry
+     * @param pFilter the filter condition
+     * @param pSearch the temporary search row (for checking the filter condition)
+     * @return the record or <code>null</code> if the entry doesn't match
+     * @throws ModelException if checking the filter condition fails
      */
-    private String buildPath(Object[] pDataRow)
+    private Object[] matchRecord(DbxEntry pEntry, ICondition pFilter, DataRow pSearch) throws ModelException
     {
-        String sPath = getFolderDisplayName((String)pDataRow[2]);
-        
-        if (pDataRow[5] != null || FileType.File.toString().equals(pDataRow[4]))
+        if (fileType == FileType.All
+            || (fileType == FileType.File && pEntry.isFile())
+            || (fileType == FileType.Folder && pEntry.isFolder()))
         {
-            String sName = (String)pDataRow[3];
+            Object[] oRecord = createRecord(pEntry);
             
-            if (!StringUtil.isEmpty(sName))
+            if (pFilter != null)
             {
-                if (sPath.endsWith("/"))
-                {
-                    sPath += sName;
-                }
-                else
+                pSearch.setValues(null, oRecord);
+                
+                if (!pFilter.isFulfilled(pSearch))
                 {
-                    sPath += "/" + sName;
+                    return null;
                 }
             }
+            
+            return oRecord;
         }
-        else
-        {
-            if ("/".equals(pDataRow[3]))
+        
+        return null;
+    }
+    
+    /**
+     * Gets the pool for parallel folder traversal. The pool will be created on first access.
+     * 
+     * @return the pool
+     */
+    private synchronized ForkJoinPool getTraversalPool()
+    {
+        if (fjpTraversal == null)
+        {
+            fjpTraversal = new ForkJoinPool(iParallelism);
+        }
+        
+        return fjpTraversal;
+    }
+    
+    /**
+     * Creates a record for the given entry.
+     * 
+     * @param pEntry the remote entry
+     * @return the record
+     */
+    private Object[] createRecord(DbxEntry pEntry)
+    {
+        boolean bFile = pEntry.isFile();
+
+        String sDirectory = bFile ? getFolder(pEntry.path) : folders.intern(pEntry.path);
+        
+        Object[] oRecord = new Object[bThumbnailColumn ? 7 : 6];
+        oRecord[0] = pEntry.path;
+        oRecord[1] = getParentFolder(sDirectory);
+        oRecord[2] = sDirectory;
+        oRecord[3] = bFile ? pEntry.name : getFolderDisplayName(pEntry.name);
+        oRecord[4] = bFile ? FileType.File.toString() : FileType.Folder.toString();
+        
+        if (bFile)
+        {
+            oRecord[5] = createFileHandle(pEntry.asFile());
+            
+            if (bThumbnailColumn)
             {
-                if (!((String)pDataRow[2]).endsWith("/" + pDataRow[3]))
-                {
-                    sPath = sPath.substring(0, sPath.lastIndexOf('/')) + pDataRow[3]; 
-                }
+                oRecord[6] = createThumbnailHandle(pEntry.asFile());
             }
         }
         
-        return sPath;
+        return oRecord;
     }
-
+    
     /**
-     * Saves a file.
+     * Creates a record with the given values and the thumbnail, if the thumbnail column is available.
      * 
-     * @param pPath the path
-     * @param pContent the new content
-     * @return the saved file
-     * @throws Exception if saving failed
+     * @param pValues the values of all columns except the thumbnail
+     * @param pFile the file for the thumbnail or <code>null</code> for no thumbnail
+     * @return the record
      */
-    private DbxEntry.File save(String pPath, Object pContent) throws Exception
+    private Object[] createRecord(Object[] pValues, DbxEntry.File pFile)
     {
-        if (pContent == null)
+        if (!bThumbnailColumn)
         {
-            return client.uploadFile(pPath, DbxWriteMode.force(), 0, new ByteArrayInputStream(new byte[0]));
+            return pValues;
         }
-        else if (pContent instanceof byte[])
+        
+        Object[] oRecord = new Object[7];
+        
+        System.arraycopy(pValues, 0, oRecord, 0, 6);
+        
+        if (pFile != null)
         {
-            return client.uploadFile(pPath, DbxWriteMode.force(), ((byte[])pContent).length, new ByteArrayInputStream((byte[])pContent));
+            oRecord[6] = createThumbnailHandle(pFile);
         }
-        else if (pContent instanceof IFileHandle)
+        
+        return oRecord;
+    }
+    
+    /**
+     * Removes the handle of a refetched record from the cache, if the refetched record has a handle with
+     * another key. The key of a handle depends on path and revision, so the handle of an unchanged file 
+     * will be kept with its downloaded content.
+     * 
+     * @param pOldHandle the handle of the record before refetch
+     * @param pNewHandle the handle of the refetched record
+     */
+    private void refetchHandle(Object pOldHandle, Object pNewHandle)
+    {
+        if (pOldHandle instanceof RemoteFileHandle)
         {
-            return client.uploadFile(pPath, DbxWriteMode.force(), ((IFileHandle)pContent).getLength(), ((IFileHandle)pContent).getInputStream());
+            Object oKey = ((RemoteFileHandle)pOldHandle).getObjectCacheKey();
+            
+            if (!(pNewHandle instanceof RemoteFileHandle) 
+                || !CommonUtil.equals(oKey, ((RemoteFileHandle)pNewHandle).getObjectCacheKey()))
+            {
+                removeHandle(pOldHandle);
+            }
         }
-        else if (pContent instanceof File)
+    }
+    
+    /**
+     * Downloads the content of all small files of the given records into memory, and the thumbnails into
+     * the thumbnail cache if enabled. The downloads run in parallel with a separate, bounded executor, 
+     * because the fetch could run on the executor for asynchronous operations and waits for the downloads.
+     * A failed download will be ignored, because the handle downloads the content again when it will be read.
+     * 
+     * @param pRecords the fetched records
+     * @throws DataSourceException if the downloads couldn't be executed
+     * @see #setPrefetchSize(long)
+     * @see #setThumbnailPrefetch(boolean)
+     */
+    private void prefetchContent(List<Object[]> pRecords) throws DataSourceException
+    {
+        boolean bThumbnails = bThumbnailColumn && bThumbnailPrefetch;
+        
+        if (lPrefetchSize <= 0 && !bThumbnails)
+        {
+            return;
+        }
+        
+        final List<Object> liHandles = new ArrayUtil<Object>();
+        
+        for (int i = 0, cnt = pRecords.size(); i < cnt; i++)
         {
-            FileInputStream fis = new FileInputStream((File)pContent);
+            Object[] oRecord = pRecords.get(i);
             
-            try
+            if (oRecord != null)
             {
-                return client.uploadFile(pPath, DbxWriteMode.force(), ((File)pContent).length(), fis);
+                if (lPrefetchSize > 0 && oRecord[5] instanceof DropboxRemoteFileHandle)
+                {
+                    DropboxRemoteFileHandle rfh = (DropboxRemoteFileHandle)oRecord[5];
+                    
+                    try
+                    {
+                        //the length is known without registration
+                        if (rfh.getLength() <= lPrefetchSize)
+                        {
+                            IFileHandle handle = rfh.getHandle();
+                            
+                            if (handle instanceof DropboxFileHandle && !((DropboxFileHandle)handle).isPrefetched())
+                            {
+                                liHandles.add(handle);
+                            }
+                        }
+                    }
+                    catch (IOException ioe)
+                    {
+                        debug(ioe);
+                    }
+                }
+                
+                if (bThumbnails && oRecord[6] instanceof DropboxRemoteFileHandle)
+                {
+                    IFileHandle handle = ((DropboxRemoteFileHandle)oRecord[6]).getHandle();
+                    
+                    if (handle instanceof DropboxThumbnailHandle)
+                    {
+                        liHandles.add(handle);
+                    }
+                }
             }
-            finally
+        }
+        
+        if (liHandles.isEmpty())
+        {
+            return;
+        }
+        
+        final AtomicInteger iNext = new AtomicInteger();
+        
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[Math.min(PREFETCH_PARALLELISM, liHandles.size())];
+        
+        for (int i = 0; i < futures.length; i++)
+        {
+            futures[i] = execute(getPrefetchExecutor(), new AsyncTask<Void>()
             {
-                CommonUtil.close(fis);
-            }
+                @Override
+                protected Void call() throws Exception
+                {
+                    for (int j = iNext.getAndIncrement(); j < liHandles.size(); j = iNext.getAndIncrement())
+                    {
+                        Object oHandle = liHandles.get(j);
+                        
+                        try
+                        {
+                            if (oHandle instanceof DropboxFileHandle)
+                            {
+                                ((DropboxFileHandle)oHandle).prefetch();
+                            }
+                            else
+                            {
+                                ((DropboxThumbnailHandle)oHandle).prefetch();
+                            }
+                        }
+                        catch (IOException ioe)
+                        {
+                            debug(ioe);
+                        }
+                    }
+                    
+                    return null;
+                }
+            });
         }
-        else if (pContent instanceof InputStream)
+        
+        try
         {
-            return client.uploadFile(pPath, DbxWriteMode.force(), -1, (InputStream)pContent);
+            CompletableFuture.allOf(futures).join();
         }
-        else
+        catch (CompletionException ce)
         {
-            throw new DataSourceException("Unsupportet content type: " + pContent.getClass().getName());
+            throw new DataSourceException("Can't prefetch content!", ce.getCause());
         }
     }
     
     /**
-     * Sets the access token.
-     * 
-     * @param pAccessToken the access token
-     */
-    public void setAccessToken(String pAccessToken)
-    {
-        sAccessToken = pAccessToken;
-    }
-    
-    /**
-     * Gets the access token.
+     * Creates a file handle for lazy loading. The handle will be registered in the object cache when the
+     * content will be read or the record will be returned. All handles for the same path and revision 
+     * share one cache key.
      * 
-     * @return the access token
+     * @param pFile the file
+     * @return the {@link RemoteFileHandle}
      */
-    public String getAccessToken()
+    private RemoteFileHandle createFileHandle(final DbxEntry.File pFile)
     {
-        return sAccessToken;
+        return new DropboxRemoteFileHandle(pFile.name, createKey(pFile.path, pFile.rev))
+        {
+            @Override
+            protected IValidatable createHandle()
+            {
+                DropboxFileHandle handle = new DropboxFileHandle(client, pFile);
+                handle.setStreaming(bStreamingDownload);
+                handle.setMetrics(metrics);
+                
+                metrics.fileHandleCreated();
+                
+                return handle;
+            }
+            
+            @Override
+            protected long getUnregisteredLength()
+            {
+                return pFile.numBytes;
+            }
+        };
     }
 
     /**
-     * Sets the file type. The file type will be used for listing dropbox records.
+     * Creates a file handle for lazy loading. The revision is unknown, so the handle gets its own cache key.
      * 
-     * @param pType the {@link FileType}
+     * @param pPath the file path
+     * @param pName the file name
+     * @return the {@link RemoteFileHandle}
      */
-    public void setFileType(FileType pType)
+    private RemoteFileHandle createFileHandle(final String pPath, String pName)
     {
-        fileType = pType;
+        return new DropboxRemoteFileHandle(pName, RemoteFileHandle.createObjectCacheKey())
+        {
+            @Override
+            protected IValidatable createHandle()
+            {
+                DropboxFileHandle handle = new DropboxFileHandle(client, pPath);
+                handle.setStreaming(bStreamingDownload);
+                handle.setMetrics(metrics);
+                
+                metrics.fileHandleCreated();
+                
+                return handle;
+            }
+        };
     }
     
     /**
-     * Gets the file type.
+     * Creates a thumbnail handle for lazy loading. The handle will be registered in the object cache when the
+     * thumbnail will be read or the record will be returned.
      * 
-     * @return the {@link FileType}
-     * @see #setFileType(FileType)
+     * @param pFile the file
+     * @return the {@link RemoteFileHandle} or <code>null</code> if the file has no thumbnail
      */
-    public FileType getFileType()
+    private RemoteFileHandle createThumbnailHandle(final DbxEntry.File pFile)
     {
-        return fileType;
+        if (!pFile.mightHaveThumbnail)
+        {
+            return null;
+        }
+        
+        DbxThumbnailFormat format = thumbnailFormat;
+        
+        if (format == null)
+        {
+            format = DbxThumbnailFormat.bestForFileName(pFile.name, DbxThumbnailFormat.JPEG);
+        }
+        
+        final DbxThumbnailSize size = thumbnailSize;
+        final DbxThumbnailFormat fmt = format;
+        
+        return new DropboxRemoteFileHandle(DropboxThumbnailHandle.getFileName(pFile.name, format), 
+                                           createKey(pFile.path, pFile.rev) + "|" + size.ident + "|" + format.ident)
+        {
+            @Override
+            protected IValidatable createHandle()
+            {
+                DropboxThumbnailHandle handle = new DropboxThumbnailHandle(client, pFile, size, fmt);
+                handle.setMetrics(metrics);
+                
+                metrics.fileHandleCreated();
+                
+                return handle;
+            }
+        };
     }
     
-    /** 
-     * Sets the root folder.
+    /**
+     * Registers the lazy handles of a record and replaces them with plain {@link RemoteFileHandle}s. The
+     * records leave the storage and will be sent to the client, and the client resolves the content with
+     * the cache key.
      * 
-     * @param pPath the (absolute) folder name/path
+     * @param pRecord the record or <code>null</code>
+     * @return the record
      */
-    public void setRootFolder(String pPath)
+    private Object[] publishHandles(Object[] pRecord)
     {
-        sRootPath = pPath;
+        if (pRecord != null)
+        {
+            for (int i = 5; i < pRecord.length; i++)
+            {
+                if (pRecord[i] instanceof DropboxRemoteFileHandle)
+                {
+                    pRecord[i] = ((DropboxRemoteFileHandle)pRecord[i]).register();
+                }
+            }
+        }
+        
+        return pRecord;
     }
     
     /**
-     * Gets the root folder.
+     * Creates the object cache key for a file revision.
      * 
-     * @return the folder name/path
+     * @param pPath the file path
+     * @param pRev the file revision
+     * @return the key
      */
-    public String getRootFolder()
+    private String createKey(String pPath, String pRev)
     {
-        return sRootPath;
+        return sKeyPrefix + pPath.toLowerCase(Locale.ROOT) + "|" + pRev;
     }
-
+    
     /**
-     * Gets a value from the given filter.
+     * Gets the object cache key prefix for an access token. The prefix is random, so that keys can't be
+     * guessed, but it's the same for all storages with the same access token. The prefixes are weakly
+     * referenced and every storage keeps its prefix, so the prefix will be removed when no storage uses
+     * the access token anymore.
      * 
-     * @param pFilter the filter
-     * @param pColumn the column name 
-     * @return the value or <code>null</code> if the column was not found
+     * @param pAccessToken the access token
+     * @return the prefix
      */
-    private Object getEqualsValue(ICondition pFilter, String pColumn)
+    private static String getKeyPrefix(String pAccessToken)
     {
-        if (pFilter instanceof OperatorCondition)
+        String sTokenId = DropboxContentHashes.getTokenId(pAccessToken);
+        
+        synchronized (hmpKeyPrefixes)
         {
-            for (ICondition cond : ((OperatorCondition)pFilter).getConditions())
+            WeakReference<String> wref = hmpKeyPrefixes.get(sTokenId);
+            
+            String sPrefix = wref != null ? wref.get() : null;
+            
+            if (sPrefix == null)
             {
-                if (cond instanceof Equals)
+                for (Iterator<WeakReference<String>> it = hmpKeyPrefixes.values().iterator(); it.hasNext();)
                 {
-                    if (pColumn.equals(((Equals)cond).getColumnName()))
+                    if (it.next().get() == null)
                     {
-                        Object oValue = ((Equals)cond).getValue();
-                        
-                        return oValue == null ? NULL : oValue;
+                        it.remove();
                     }
                 }
+                
+                sPrefix = UUID.randomUUID().toString() + "|";
+                
+                hmpKeyPrefixes.put(sTokenId, new WeakReference<String>(sPrefix));
             }
+            
+            return sPrefix;
         }
-        else if (pFilter instanceof Equals)
+    }
+    
+    /**
+     * Removes a file handle and the thumbnail handle from the cache.
+     * 
+     * @param pRecord the record information. The [5] element should be an instance of {@link RemoteFileHandle} in
+     *                order to remove the object from the cache.
+     */
+    private void removeFileHandle(Object[] pRecord)
+    {
+        removeHandle(pRecord[5]);
+        
+        if (pRecord.length > 6)
         {
-            if (pColumn.equals(((Equals)pFilter).getColumnName()))
+            removeHandle(pRecord[6]);
+        }
+    }
+    
+    /**
+     * Removes a handle from the cache.
+     * 
+     * @param pHandle the {@link RemoteFileHandle}
+     */
+    private void removeHandle(Object pHandle)
+    {
+        if (pHandle instanceof RemoteFileHandle)
+        {
+            Object oKey = ((RemoteFileHandle)pHandle).getObjectCacheKey();
+            
+            if (oKey != null && ObjectCache.remove(oKey) != null)
             {
-                Object oValue = ((Equals)pFilter).getValue();
-                
-                return oValue == null ? NULL : oValue;
+                metrics.fileHandleRemoved();
             }
         }
-        
-        return null;
-    }    
+    }
     
     /**
-     * Sets whether fetching should act recursive. The search results will be recursive if no specific path was
-     * configured via fetch condition.
+     * Gets the folder name from the given path.
      * 
-     * @param pRecursive <code>true</code> to search directories recursive, <code>false</code> to search
-     *                   only the given directory
+     * @param pPath the path
+     * @return the directory name
      */
-    public void setRecursive(boolean pRecursive)
+    private String getFolder(String pPath)
     {
-        bRecursive = pRecursive;
+        return folders.getFolder(pPath);
     }
     
     /**
-     * Gets whether fetching should act recursive.
+     * Gets the display name of the given folder.
      * 
-     * @return <code>true</code> if directories will be iterated recursively, <code>false</code> otherwise
+     * @param pName the folder name (root node is empty)
+     * @return the display name of the given folder (/ for root folder)
      */
-    public boolean isRecursive()
+    private String getFolderDisplayName(String pName)
     {
-        return bRecursive;
+        if (StringUtil.isEmpty(pName))
+        {
+            return "/";
+        }
+        
+        return pName;
     }
     
+    /**
+     * Gets the parent folder name for the given directory.
+     * 
+     * @param pPath the directory
+     * @return the parent directory
+     */
+    private String getParentFolder(String pPath)
+    {
+        return folders.getParentFolder(pPath);
+    }
+    
+    /**
+     * Creates a path with given record.
+     * 
+     * @param pDataRow the record
+     * @return the path
+     */
+    String buildPath(Object[] pDataRow)
+    {
+        String sPath = getFolderDisplayName((String)pDataRow[2]);
+        
+        if (pDataRow[5] != null || FileType.File.toString().equals(pDataRow[4]))
+        {
+            String sName = (String)pDataRow[3];
+            
+            if (!StringUtil.isEmpty(sName))
+            {
+                if (sPath.endsWith("/"))
+                {
+                    sPath += sName;
+                }
+                else
+                {
+                    sPath += "/" + sName;
+                }
+            }
+        }
+        else
+        {
+            if ("/".equals(pDataRow[3]))
+            {
+                if (!((String)pDataRow[2]).endsWith("/" + pDataRow[3]))
+                {
+                    sPath = sPath.substring(0, sPath.lastIndexOf('/')) + pDataRow[3]; 
+                }
+            }
+        }
+        
+        return sPath;
+    }
+
+    /**
+     * Saves a file.
+     * 
+     * @param pPath the path
+     * @param pContent the new content
+     * @return the saved file
+     * @throws Exception if saving failed
+     */
+    private DbxEntry.File save(String pPath, Object pContent) throws Exception
+    {
+        if (pContent instanceof InputStream)
+        {
+            return upload(pPath, (InputStream)pContent, -1);
+        }
+        
+        InputStream stream = openContent(pContent);
+        
+        try
+        {
+            return upload(pPath, stream, getContentLength(pContent));
+        }
+        finally
+        {
+            CommonUtil.close(stream);
+        }
+    }
+    
+    /**
+     * Gets the current remote revision of a file, if it has the same content as the given content. The 
+     * content will be hashed only if a revision with the same length is known and the content is in 
+     * memory or small, and the metadata will be read only if the hash is equal to the hash of this revision.
+     * 
+     * @param pPath the path
+     * @param pContent the new content
+     * @return the remote file or <code>null</code> if the content has changed or the remote content is unknown
+     * @throws Exception if reading the content or the metadata failed
+     */
+    private DbxEntry.File getUnchangedFile(String pPath, Object pContent) throws Exception
+    {
+        long lLength = getContentLength(pContent);
+        
+        if (lLength < 0)
+        {
+            //not repeatable or unknown
+            return null;
+        }
+        
+        if (lLength > PREHASH_SIZE && !(pContent instanceof byte[]))
+        {
+            //reading twice is more expensive than an upload of the same content
+            return null;
+        }
+        
+        DropboxContentHashes hashes = DropboxContentHashes.getInstance();
+        
+        byte[] byKnown = hashes.get(client, pPath, lLength);
+        
+        if (byKnown == null)
+        {
+            return null;
+        }
+        
+        byte[] byHash = DropboxContentHashes.hash(openContent(pContent));
+        
+        if (!MessageDigest.isEqual(byKnown, byHash))
+        {
+            return null;
+        }
+        
+        //the known revision could be outdated
+        DbxEntry entry = client.getMetadata(pPath);
+        
+        if (entry != null && entry.isFile() && hashes.isKnown(client, entry.asFile(), byHash))
+        {
+            return entry.asFile();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Gets whether the new content is the same as the old content, without reading the content. File handles
+     * with the same cache key have the same content.
+     * 
+     * @param pOldContent the old content
+     * @param pNewContent the new content
+     * @return <code>true</code> if the content is the same, <code>false</code> if the content may have changed
+     */
+    private static boolean isSameContent(Object pOldContent, Object pNewContent)
+    {
+        if (CommonUtil.equals(pOldContent, pNewContent))
+        {
+            return true;
+        }
+        
+        if (pOldContent instanceof RemoteFileHandle && pNewContent instanceof RemoteFileHandle)
+        {
+            Object oKey = ((RemoteFileHandle)pOldContent).getObjectCacheKey();
+            
+            return oKey != null && oKey.equals(((RemoteFileHandle)pNewContent).getObjectCacheKey());
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Opens the stream of a content.
+     * 
+     * @param pContent the content
+     * @return the stream
+     * @throws Exception if the content type isn't supported or opening the stream failed
+     */
+    private InputStream openContent(Object pContent) throws Exception
+    {
+        if (pContent == null)
+        {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        else if (pContent instanceof byte[])
+        {
+            return new ByteArrayInputStream((byte[])pContent);
+        }
+        else if (pContent instanceof IFileHandle)
+        {
+            return ((IFileHandle)pContent).getInputStream();
+        }
+        else if (pContent instanceof File)
+        {
+            return new FileInputStream((File)pContent);
+        }
+        else if (pContent instanceof InputStream)
+        {
+            return (InputStream)pContent;
+        }
+        else
+        {
+            throw new DataSourceException("Unsupportet content type: " + pContent.getClass().getName());
+        }
+    }
+    
+    /**
+     * Gets the length of a content.
+     * 
+     * @param pContent the content
+     * @return the length or <code>-1</code> if the length is unknown or the content can be read only once
+     * @throws IOException if reading the length failed
+     */
+    private long getContentLength(Object pContent) throws IOException
+    {
+        if (pContent == null)
+        {
+            return 0;
+        }
+        else if (pContent instanceof byte[])
+        {
+            return ((byte[])pContent).length;
+        }
+        else if (pContent instanceof IFileHandle)
+        {
+            return ((IFileHandle)pContent).getLength();
+        }
+        else if (pContent instanceof File)
+        {
+            return ((File)pContent).length();
+        }
+        else
+        {
+            return -1;
+        }
+    }
+    
+    /**
+     * Uploads a file. Large content or content with unknown length will be uploaded in chunks, if 
+     * chunked upload is enabled.
+     * 
+     * @param pPath the path
+     * @param pStream the content
+     * @param pLength the content length or <code>-1</code> if the length is unknown
+     * @return the saved file
+     * @throws Exception if uploading failed
+     */
+    private DbxEntry.File upload(String pPath, InputStream pStream, long pLength) throws Exception
+    {
+        long lStart = System.nanoTime();
+        
+        MessageDigest digest = DropboxContentHashes.createDigest();
+        
+        DropboxMetrics.CountingInputStream stream = new DropboxMetrics.CountingInputStream(new DigestInputStream(pStream, digest));
+        
+        DbxEntry.File file = null;
+        
+        try
+        {
+            if (iUploadChunkSize > 0 && (pLength < 0 || pLength > iUploadChunkSize))
+            {
+                file = new DropboxChunkedUploader(client, iUploadChunkSize, iUploadRetries).upload(pPath, stream);
+            }
+            else
+            {
+                file = client.uploadFile(pPath, DbxWriteMode.force(), pLength, stream);
+            }
+            
+            DropboxContentHashes.getInstance().put(client, file, digest, stream.getCount());
+            
+            return file;
+        }
+        finally
+        {
+            metrics.record(Operation.Upload, lStart, stream.getCount(), file != null);
+        }
+    }
+    
+    /**
+     * Sets the size of the shared content cache. The cache is used by all storages of this process. 
+     * Downloaded file content will be cached per path and revision, and the least recently used content 
+     * will be removed if the cache is larger than the given size. If the cache is disabled, every file 
+     * handle downloads its content to a separate temp file.
+     * 
+     * @param pBytes the maximum cache size in bytes, <code>0</code> to disable the cache
+     */
+    public static void setContentCacheSize(long pBytes)
+    {
+        DropboxContentCache.getInstance().setMaxSize(pBytes);
+    }
+    
+    /**
+     * Gets the size of the shared content cache.
+     * 
+     * @return the maximum cache size in bytes
+     * @see #setContentCacheSize(long)
+     */
+    public static long getContentCacheSize()
+    {
+        return DropboxContentCache.getInstance().getMaxSize();
+    }
+    
+    /**
+     * Sets the size of the shared thumbnail cache. The cache is used by all storages of this process and
+     * keeps the downloaded thumbnails in memory, per path, revision, size and format. The least recently 
+     * used thumbnails will be removed if the cache is larger than the given size.
+     * 
+     * @param pBytes the maximum cache size in bytes, <code>0</code> to disable the cache
+     */
+    public static void setThumbnailCacheSize(long pBytes)
+    {
+        DropboxThumbnailCache.getInstance().setMaxSize(pBytes);
+    }
+    
+    /**
+     * Gets the size of the shared thumbnail cache.
+     * 
+     * @return the maximum cache size in bytes
+     * @see #setThumbnailCacheSize(long)
+     */
+    public static long getThumbnailCacheSize()
+    {
+        return DropboxThumbnailCache.getInstance().getMaxSize();
+    }
+    
+    /**
+     * Sets the access token.
+     * 
+     * @param pAccessToken the access token
+     */
+    public void setAccessToken(String pAccessToken)
+    {
+        sAccessToken = pAccessToken;
+    }
+    
+    /**
+     * Gets the access token.
+     * 
+     * @return the access token
+     */
+    public String getAccessToken()
+    {
+        return sAccessToken;
+    }
+
+    /**
+     * Sets the file type. The file type will be used for listing dropbox records.
+     * 
+     * @param pType the {@link FileType}
+     */
+    public void setFileType(FileType pType)
+    {
+        fileType = pType;
+    }
+    
+    /**
+     * Gets the file type.
+     * 
+     * @return the {@link FileType}
+     * @see #setFileType(FileType)
+     */
+    public FileType getFileType()
+    {
+        return fileType;
+    }
+    
+    /** 
+     * Sets the root folder.
+     * 
+     * @param pPath the (absolute) folder name/path
+     */
+    public void setRootFolder(String pPath)
+    {
+        sRootPath = pPath;
+    }
+    
+    /**
+     * Gets the root folder.
+     * 
+     * @return the folder name/path
+     */
+    public String getRootFolder()
+    {
+        return sRootPath;
+    }
+
+    /**
+     * Gets a value from the given filter.
+     * 
+     * @param pFilter the filter
+     * @param pColumn the column name 
+     * @return the value or <code>null</code> if the column was not found
+     */
+    private Object getEqualsValue(ICondition pFilter, String pColumn)
+    {
+        if (pFilter instanceof OperatorCondition)
+        {
+            for (ICondition cond : ((OperatorCondition)pFilter).getConditions())
+            {
+                if (cond instanceof Equals)
+                {
+                    if (pColumn.equals(((Equals)cond).getColumnName()))
+                    {
+                        Object oValue = ((Equals)cond).getValue();
+                        
+                        return oValue == null ? NULL : oValue;
+                    }
+                }
+            }
+        }
+        else if (pFilter instanceof Equals)
+        {
+            if (pColumn.equals(((Equals)pFilter).getColumnName()))
+            {
+                Object oValue = ((Equals)pFilter).getValue();
+                
+                return oValue == null ? NULL : oValue;
+            }
+        }
+        
+        return null;
+    }    
+    
+    /**
+     * Gets the query for a server-side search from the given filter. The query is the longest literal part
+     * of a <code>Like</code>, <code>LikeIgnoreCase</code> or <code>Equals</code> condition for the NAME or PATH 
+     * column. Conditions combined with <code>And</code> will be checked as well.
+     * 
+     * @param pFilter the filter
+     * @return the search query or <code>null</code> if the filter can't be used for a server-side search
+     */
+    private String getSearchQuery(ICondition pFilter)
+    {
+        if (pFilter instanceof And)
+        {
+            String sQuery = null;
+            
+            for (ICondition cond : ((And)pFilter).getConditions())
+            {
+                String sCondQuery = getSearchQuery(cond);
+                
+                if (sCondQuery != null && (sQuery == null || sCondQuery.length() > sQuery.length()))
+                {
+                    sQuery = sCondQuery;
+                }
+            }
+            
+            return sQuery;
+        }
+        else if (pFilter instanceof Like || pFilter instanceof LikeIgnoreCase || pFilter instanceof Equals)
+        {
+            CompareCondition cond = (CompareCondition)pFilter;
+            
+            if (!(cond.getValue() instanceof String))
+            {
+                return null;
+            }
+            
+            String sValue = (String)cond.getValue();
+            
+            boolean bPattern = !(pFilter instanceof Equals);
+            
+            if ("PATH".equals(cond.getColumnName()))
+            {
+                //a wildcard can match '/', so only the part after the last wildcard and the last '/' is
+                //part of the name
+                if (bPattern)
+                {
+                    sValue = sValue.substring(Math.max(sValue.lastIndexOf('*'), sValue.lastIndexOf('?')) + 1);
+                }
+                
+                sValue = sValue.substring(sValue.lastIndexOf('/') + 1);
+            }
+            else if (!"NAME".equals(cond.getColumnName()))
+            {
+                return null;
+            }
+            
+            String sQuery = null;
+            
+            if (bPattern)
+            {
+                for (String sPart : sValue.split("[*?]"))
+                {
+                    if (sQuery == null || sPart.trim().length() > sQuery.length())
+                    {
+                        sQuery = sPart.trim();
+                    }
+                }
+            }
+            else
+            {
+                sQuery = sValue.trim();
+            }
+            
+            if (sQuery != null && sQuery.length() >= SEARCH_MIN_LENGTH)
+            {
+                return sQuery;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Gets the path prefix of all records which can match the given filter. The prefix is the literal start of
+     * a <code>Like</code>, <code>LikeIgnoreCase</code> or <code>Equals</code> condition for the PATH, FOLDER
+     * or PARENT_FOLDER column, because the path of a record always starts with its folder and parent folder.
+     * Conditions combined with <code>And</code> will be checked as well.
+     * 
+     * @param pFilter the filter
+     * @return the longest path prefix or <code>null</code> if the filter doesn't limit the path
+     */
+    private String getPathPrefix(ICondition pFilter)
+    {
+        if (pFilter instanceof And)
+        {
+            String sPrefix = null;
+            
+            for (ICondition cond : ((And)pFilter).getConditions())
+            {
+                String sCondPrefix = getPathPrefix(cond);
+                
+                if (sCondPrefix != null && (sPrefix == null || sCondPrefix.length() > sPrefix.length()))
+                {
+                    sPrefix = sCondPrefix;
+                }
+            }
+            
+            return sPrefix;
+        }
+        else if (pFilter instanceof Like || pFilter instanceof LikeIgnoreCase || pFilter instanceof Equals)
+        {
+            CompareCondition cond = (CompareCondition)pFilter;
+            
+            String sColumn = cond.getColumnName();
+            
+            if (!(cond.getValue() instanceof String)
+                || !("PATH".equals(sColumn) || "FOLDER".equals(sColumn) || "PARENT_FOLDER".equals(sColumn)))
+            {
+                return null;
+            }
+            
+            String sValue = (String)cond.getValue();
+            
+            if (!(pFilter instanceof Equals))
+            {
+                for (int i = 0; i < sValue.length(); i++)
+                {
+                    char ch = sValue.charAt(i);
+                    
+                    if (ch == '*' || ch == '?')
+                    {
+                        sValue = sValue.substring(0, i);
+                        
+                        break;
+                    }
+                }
+            }
+            
+            if (sValue.length() > 0)
+            {
+                return sValue;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Sets whether filters for the NAME or PATH column should be sent to the server-side search, instead of
+     * searching all folders. The search returns all names which contain the longest literal part of the
+     * filter, and the whole filter will be checked for every found entry.
+     * <p>
+     * The server-side search is eventually consistent: the search index doesn't contain the latest changes
+     * immediately, so files which were just inserted, renamed or deleted may be missing in, or still be part
+     * of, a filtered fetch. The search is disabled by default, because filtered fetches should return the 
+     * current state of the folders.
+     * </p>
+     * 
+     * @param pPushdown <code>true</code> to use the server-side search, <code>false</code> to search all folders
+     */
+    public void setSearchPushdown(boolean pPushdown)
+    {
+        bSearchPushdown = pPushdown;
+    }
+    
+    /**
+     * Gets whether filters for the NAME or PATH column will be sent to the server-side search.
+     * 
+     * @return <code>true</code> if the server-side search will be used, <code>false</code> otherwise
+     * @see #setSearchPushdown(boolean)
+     */
+    public boolean isSearchPushdown()
+    {
+        return bSearchPushdown;
+    }
+    
+    /**
+     * Sets whether fetching should act recursive. The search results will be recursive if no specific path was
+     * configured via fetch condition.
+     * 
+     * @param pRecursive <code>true</code> to search directories recursive, <code>false</code> to search
+     *                   only the given directory
+     */
+    public void setRecursive(boolean pRecursive)
+    {
+        bRecursive = pRecursive;
+    }
+    
+    /**
+     * Gets whether fetching should act recursive.
+     * 
+     * @return <code>true</code> if directories will be iterated recursively, <code>false</code> otherwise
+     */
+    public boolean isRecursive()
+    {
+        return bRecursive;
+    }
+    
+    /**
+     * Sets whether the metadata index should be used. The index will be built with the first fetch and
+     * will be updated with the pending changes (delta) before every fetch. All listings will be answered 
+     * from the index.
+     * 
+     * @param pIndex <code>true</code> to use the metadata index, <code>false</code> to list folders 
+     *               on every fetch
+     */
+    public void setIndexEnabled(boolean pIndex)
+    {
+        bIndex = pIndex;
+        
+        if (!pIndex)
+        {
+            index = null;
+        }
+    }
+    
+    /**
+     * Gets whether the metadata index will be used.
+     * 
+     * @return <code>true</code> if the metadata index will be used, <code>false</code> otherwise
+     * @see #setIndexEnabled(boolean)
+     */
+    public boolean isIndexEnabled()
+    {
+        return bIndex;
+    }
+    
+    /**
+     * Sets the maximum number of cached folder listings. A cached listing will be validated with its hash, 
+     * and the children will only be transferred again if the folder was changed. The least recently used 
+     * listings will be removed if the cache is full.
+     * 
+     * @param pSize the maximum number of cached listings, <code>0</code> to disable the cache
+     */
+    public void setListingCacheSize(int pSize)
+    {
+        synchronized (this)
+        {
+            if (pSize <= 0)
+            {
+                listingCache = null;
+            }
+            else if (listingCache == null)
+            {
+                listingCache = new DropboxListingCache(pSize);
+            }
+            else
+            {
+                listingCache.setMaxSize(pSize);
+            }
+            
+            metrics.setListingCache(listingCache);
+        }
+    }
+    
+    /**
+     * Gets the maximum number of cached folder listings.
+     * 
+     * @return the maximum number of cached listings, <code>0</code> if the cache is disabled
+     * @see #setListingCacheSize(int)
+     */
+    public int getListingCacheSize()
+    {
+        DropboxListingCache cache = listingCache;
+        
+        if (cache == null)
+        {
+            return 0;
+        }
+        
+        return cache.getMaxSize();
+    }
+    
+    /**
+     * Sets the chunk size for uploads. Content which is larger than the chunk size, or content with unknown
+     * length, will be uploaded chunk by chunk. Failed chunks will be sent again and the next chunk will be 
+     * read while the current chunk is sent.
+     * 
+     * @param pChunkSize the chunk size in bytes, <code>0</code> to upload every file with one request
+     */
+    public void setUploadChunkSize(int pChunkSize)
+    {
+        iUploadChunkSize = Math.max(0, pChunkSize);
+    }
+    
+    /**
+     * Gets the chunk size for uploads.
+     * 
+     * @return the chunk size in bytes
+     * @see #setUploadChunkSize(int)
+     */
+    public int getUploadChunkSize()
+    {
+        return iUploadChunkSize;
+    }
+    
+    /**
+     * Sets the maximum number of retries for a failed upload request (chunk). Only network and server 
+     * errors will be retried.
+     * 
+     * @param pRetries the maximum number of retries
+     */
+    public void setUploadRetries(int pRetries)
+    {
+        iUploadRetries = Math.max(0, pRetries);
+    }
+    
+    /**
+     * Gets the maximum number of retries for a failed upload request (chunk).
+     * 
+     * @return the maximum number of retries
+     * @see #setUploadRetries(int)
+     */
+    public int getUploadRetries()
+    {
+        return iUploadRetries;
+    }
+    
+    /**
+     * Sets whether file content should be streamed directly from the download response. The first bytes 
+     * will be available while the download is still running, but the content won't be cached in a temp
+     * file and every read downloads the content again.
+     * 
+     * @param pStreaming <code>true</code> to stream file content, <code>false</code> to download file content
+     *                   to a temp file before reading
+     */
+    public void setStreamingDownload(boolean pStreaming)
+    {
+        bStreamingDownload = pStreaming;
+    }
+    
+    /**
+     * Gets whether file content will be streamed directly from the download response.
+     * 
+     * @return <code>true</code> if file content will be streamed, <code>false</code> otherwise
+     * @see #setStreamingDownload(boolean)
+     */
+    public boolean isStreamingDownload()
+    {
+        return bStreamingDownload;
+    }
+    
+    /**
+     * Sets whether records should be fetched page by page. If enabled, the records will be produced by a 
+     * background traversal and a fetch returns as soon as the requested minimum row count is available. The
+     * next page request continues the traversal.
+     * 
+     * @param pStreamingFetch <code>true</code> to fetch page by page, <code>false</code> to fetch all records
+     *                        with the first request
+     */
+    public void setStreamingFetch(boolean pStreamingFetch)
+    {
+        bStreamingFetch = pStreamingFetch;
+        
+        if (!pStreamingFetch)
+        {
+            cancelCursor();
+        }
+    }
+    
+    /**
+     * Gets whether records will be fetched page by page.
+     * 
+     * @return <code>true</code> if records will be fetched page by page, <code>false</code> otherwise
+     * @see #setStreamingFetch(boolean)
+     */
+    public boolean isStreamingFetch()
+    {
+        return bStreamingFetch;
+    }
+    
+    /**
+     * Sets the number of concurrent folder listings for recursive fetches. If the parallelism is greater
+     * than <code>1</code>, sub folders will be listed in parallel but the records will be returned in the 
+     * same order as with sequential traversal.
+     * <p>
+     * The value is the target parallelism of the traversal pool and not a hard limit. The listings block 
+     * while waiting for the server, and the pool may start compensating threads while tasks wait for their
+     * sub folders. Use {@link #setMaxConnectionsPerHost(int)} to strictly limit the concurrent requests.
+     * </p>
+     * 
+     * @param pParallelism the number of concurrent listings, <code>1</code> for sequential traversal
+     */
+    public void setParallelism(int pParallelism)
+    {
+        synchronized (this)
+        {
+            if (fjpTraversal != null && fjpTraversal.getParallelism() != pParallelism)
+            {
+                fjpTraversal.shutdown();
+                fjpTraversal = null;
+            }
+        }
+        
+        iParallelism = Math.max(1, pParallelism);
+    }
+    
+    /**
+     * Gets the number of concurrent folder listings for recursive fetches.
+     * 
+     * @return the number of concurrent listings
+     * @see #setParallelism(int)
+     */
+    public int getParallelism()
+    {
+        return iParallelism;
+    }
+    
+    /**
+     * Sets the http requestor for all requests. If no requestor is set, a {@link DropboxHttpRequestor} with
+     * the configured connection limit, timeouts and the detected proxy will be used. The requestor will be
+     * used with the next {@link #open()}.
+     * 
+     * @param pRequestor the requestor or <code>null</code> to use the default requestor
+     */
+    public void setHttpRequestor(HttpRequestor pRequestor)
+    {
+        httpRequestor = pRequestor;
+    }
+    
+    /**
+     * Gets the custom http requestor.
+     * 
+     * @return the requestor or <code>null</code> if the default requestor is used
+     * @see #setHttpRequestor(HttpRequestor)
+     */
+    public HttpRequestor getHttpRequestor()
+    {
+        return httpRequestor;
+    }
+    
+    /**
+     * Sets the maximum number of concurrent connections per host. A request waits for a free connection,
+     * but not longer than the read timeout.
+     * <p>
+     * The connections will be reused by the keep-alive cache of the JVM, which keeps 
+     * <code>http.maxConnections</code> connections per host (default: 5). The default requestor doesn't use
+     * more connections than the keep-alive cache keeps. The system property has to be set at startup of the JVM.
+     * </p>
+     * 
+     * @param pMaxConnections the maximum number of connections, <code>0</code> for no limit
+     */
+    public void setMaxConnectionsPerHost(int pMaxConnections)
+    {
+        iMaxConnectionsPerHost = Math.max(0, pMaxConnections);
+    }
+    
+    /**
+     * Gets the maximum number of concurrent connections per host.
+     * 
+     * @return the maximum number of connections, <code>0</code> for no limit
+     * @see #setMaxConnectionsPerHost(int)
+     */
+    public int getMaxConnectionsPerHost()
+    {
+        return iMaxConnectionsPerHost;
+    }
+    
+    /**
+     * Sets the connect timeout.
+     * 
+     * @param pTimeout the timeout (ms)
+     */
+    public void setConnectTimeout(int pTimeout)
+    {
+        iConnectTimeout = pTimeout;
+    }
+    
+    /**
+     * Gets the connect timeout.
+     * 
+     * @return the timeout (ms)
+     * @see #setConnectTimeout(int)
+     */
+    public int getConnectTimeout()
+    {
+        return iConnectTimeout;
+    }
+    
+    /**
+     * Sets the read (socket) timeout.
+     * 
+     * @param pTimeout the timeout (ms)
+     */
+    public void setReadTimeout(int pTimeout)
+    {
+        iReadTimeout = pTimeout;
+    }
+    
+    /**
+     * Gets the read (socket) timeout.
+     * 
+     * @return the timeout (ms)
+     * @see #setReadTimeout(int)
+     */
+    public int getReadTimeout()
+    {
+        return iReadTimeout;
+    }
+    
+    /**
+     * Sets the maximum number of requests per second. The rate is shared by all storages with the same access
+     * token, and the lowest configured rate of all open storages will be used. If the server throttles the 
+     * requests, the rate will be reduced and increased again with every successful request.
+     * 
+     * @param pRate the maximum number of requests per second, <code>0</code> for no limit
+     */
+    public void setRequestRate(double pRate)
+    {
+        dRequestRate = pRate;
+        
+        DropboxRateLimiter rlCurrent = limiter;
+        
+        if (rlCurrent != null)
+        {
+            rlCurrent.setMaxRate(this, pRate);
+        }
+    }
+    
+    /**
+     * Gets the maximum number of requests per second.
+     * 
+     * @return the maximum number of requests per second, <code>0</code> for no limit
+     * @see #setRequestRate(double)
+     */
+    public double getRequestRate()
+    {
+        return dRequestRate;
+    }
+    
+    /**
+     * Sets the maximum number of retries for throttled or failed requests. Throttled requests will be retried
+     * after the requested retry time, other requests after an exponential backoff delay. Only requests without
+     * side effects will be retried after server or network errors.
+     * 
+     * @param pRetries the maximum number of retries
+     */
+    public void setRequestRetries(int pRetries)
+    {
+        iRequestRetries = pRetries;
+    }
+    
+    /**
+     * Gets the maximum number of retries for throttled or failed requests.
+     * 
+     * @return the maximum number of retries
+     * @see #setRequestRetries(int)
+     */
+    public int getRequestRetries()
+    {
+        return iRequestRetries;
+    }
+    
+    /**
+     * Gets the metrics of this storage and its file handles.
+     * 
+     * @return the metrics
+     */
+    public DropboxMetrics getMetrics()
+    {
+        return metrics;
+    }
+    
+    /**
+     * Sets whether the metrics should be published as MXBean with the platform MBean server. The MXBean will
+     * be registered when the storage will be opened and unregistered when the storage will be closed.
+     * 
+     * @param pJmx <code>true</code> to publish the metrics
+     */
+    public void setJmxEnabled(boolean pJmx)
+    {
+        bJmx = pJmx;
+        
+        if (bOpen)
+        {
+            if (pJmx)
+            {
+                registerMetrics();
+            }
+            else
+            {
+                unregisterMetrics();
+            }
+        }
+    }
+    
+    /**
+     * Gets whether the metrics will be published as MXBean.
+     * 
+     * @return <code>true</code> if the metrics will be published
+     * @see #setJmxEnabled(boolean)
+     */
+    public boolean isJmxEnabled()
+    {
+        return bJmx;
+    }
+    
+    /**
+     * Registers the metrics with the platform MBean server.
+     */
+    private synchronized void registerMetrics()
+    {
+        if (onMetrics != null)
+        {
+            return;
+        }
+        
+        String sName = getName();
+        
+        try
+        {
+            ObjectName name = new ObjectName("com.sibvisions.apps.persist:type=DropboxStorage,name=" 
+                                             + ObjectName.quote(sName != null ? sName : "DropboxStorage")
+                                             + ",id=" + Integer.toHexString(System.identityHashCode(this)));
+            
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            
+            onMetrics = name;
+        }
+        catch (Exception ex)
+        {
+            error("Can't register metrics!", ex);
+        }
+    }
+    
+    /**
+     * Unregisters the metrics from the platform MBean server.
+     */
+    private synchronized void unregisterMetrics()
+    {
+        if (onMetrics != null)
+        {
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(onMetrics);
+            }
+            catch (Exception ex)
+            {
+                debug(ex);
+            }
+            
+            onMetrics = null;
+        }
+    }
+    
+    /**
+     * Creates a new batch for inserts, updates and deletes. The operations of the batch will be executed 
+     * concurrently, with the configured batch parallelism.
+     * 
+     * @return the batch
+     * @see #setBatchParallelism(int)
+     */
+    public DropboxBatch createBatch()
+    {
+        return new DropboxBatch(this, iBatchParallelism);
+    }
+    
+    /**
+     * Sets the maximum number of concurrent operations of a batch.
+     * 
+     * @param pParallelism the maximum number of concurrent operations, <code>1</code> for sequential execution
+     * @see #createBatch()
+     */
+    public void setBatchParallelism(int pParallelism)
+    {
+        iBatchParallelism = Math.max(1, pParallelism);
+    }
+    
+    /**
+     * Gets the maximum number of concurrent operations of a batch.
+     * 
+     * @return the maximum number of concurrent operations
+     * @see #setBatchParallelism(int)
+     */
+    public int getBatchParallelism()
+    {
+        return iBatchParallelism;
+    }
+    
+    /**
+     * Sets the executor for asynchronous operations.
+     * 
+     * @param pExecutor the executor or <code>null</code> to use the shared executor
+     * @see #getAsyncExecutor()
+     */
+    public void setAsyncExecutor(Executor pExecutor)
+    {
+        exAsync = pExecutor;
+    }
+    
+    /**
+     * Gets the executor for asynchronous operations. If no executor was set, the shared executor will be used.
+     * The shared executor starts a virtual thread per operation, if the JVM supports virtual threads. Otherwise
+     * it uses a bounded pool of daemon threads and queues the operations.
+     * 
+     * @return the executor
+     * @see #setAsyncExecutor(Executor)
+     */
+    public Executor getAsyncExecutor()
+    {
+        if (exAsync != null)
+        {
+            return exAsync;
+        }
+        
+        return getSharedAsyncExecutor();
+    }
+    
+    /**
+     * Sets the maximum size of files whose content will be downloaded with the fetch. The content of smaller
+     * files will be downloaded in parallel, after the folders were listed, and the file handles read the 
+     * content from memory. This avoids one download per file when all contents will be read, e.g. for 
+     * previews. The content is kept in memory, so the size is limited to 64 MB.
+     * 
+     * @param pBytes the maximum file size in bytes, <code>0</code> to download all contents when they will be read.
+     *               Greater sizes than 64 MB will be reduced to 64 MB.
+     * @throws IllegalArgumentException if the size is negative
+     * @see #getPrefetchSize()
+     */
+    public void setPrefetchSize(long pBytes)
+    {
+        if (pBytes < 0)
+        {
+            throw new IllegalArgumentException("Invalid prefetch size: " + pBytes);
+        }
+        
+        lPrefetchSize = Math.min(pBytes, MAX_PREFETCH_SIZE);
+    }
+    
+    /**
+     * Gets the maximum size of files whose content will be downloaded with the fetch.
+     * 
+     * @return the maximum file size in bytes
+     * @see #setPrefetchSize(long)
+     */
+    public long getPrefetchSize()
+    {
+        return lPrefetchSize;
+    }
+    
+    /**
+     * Sets whether the THUMBNAIL column should be available. The column contains the thumbnails of image
+     * and video files, which will be downloaded when they will be read. The column will be added when 
+     * the storage will be opened.
+     * 
+     * @param pThumbnail <code>true</code> to add the THUMBNAIL column, <code>false</code> otherwise
+     * @see #setThumbnailSize(DbxThumbnailSize)
+     * @see #setThumbnailFormat(DbxThumbnailFormat)
+     */
+    public void setThumbnailEnabled(boolean pThumbnail)
+    {
+        bThumbnail = pThumbnail;
+    }
+    
+    /**
+     * Gets whether the THUMBNAIL column should be available.
+     * 
+     * @return <code>true</code> if the THUMBNAIL column should be available, <code>false</code> otherwise
+     * @see #setThumbnailEnabled(boolean)
+     */
+    public boolean isThumbnailEnabled()
+    {
+        return bThumbnail;
+    }
+    
+    /**
+     * Sets the size of the thumbnails.
+     * 
+     * @param pSize the thumbnail size
+     * @see #setThumbnailEnabled(boolean)
+     */
+    public void setThumbnailSize(DbxThumbnailSize pSize)
+    {
+        thumbnailSize = pSize != null ? pSize : DbxThumbnailSize.w128h128;
+    }
+    
+    /**
+     * Gets the size of the thumbnails.
+     * 
+     * @return the thumbnail size
+     * @see #setThumbnailSize(DbxThumbnailSize)
+     */
+    public DbxThumbnailSize getThumbnailSize()
+    {
+        return thumbnailSize;
+    }
+    
+    /**
+     * Sets the format of the thumbnails.
+     * 
+     * @param pFormat the thumbnail format or <code>null</code> to use PNG for PNG and GIF files and JPEG
+     *                for all other files
+     * @see #setThumbnailEnabled(boolean)
+     */
+    public void setThumbnailFormat(DbxThumbnailFormat pFormat)
+    {
+        thumbnailFormat = pFormat;
+    }
+    
+    /**
+     * Gets the format of the thumbnails.
+     * 
+     * @return the thumbnail format or <code>null</code> if the format depends on the file
+     * @see #setThumbnailFormat(DbxThumbnailFormat)
+     */
+    public DbxThumbnailFormat getThumbnailFormat()
+    {
+        return thumbnailFormat;
+    }
+    
+    /**
+     * Sets whether the thumbnails should be downloaded with the fetch. The thumbnails will be downloaded
+     * in parallel, after the folders were listed, into the shared thumbnail cache.
+     * 
+     * @param pPrefetch <code>true</code> to download the thumbnails with the fetch, <code>false</code> to
+     *                  download every thumbnail when it will be read
+     * @see #setThumbnailEnabled(boolean)
+     */
+    public void setThumbnailPrefetch(boolean pPrefetch)
+    {
+        bThumbnailPrefetch = pPrefetch;
+    }
+    
+    /**
+     * Gets whether the thumbnails will be downloaded with the fetch.
+     * 
+     * @return <code>true</code> if the thumbnails will be downloaded with the fetch, <code>false</code> otherwise
+     * @see #setThumbnailPrefetch(boolean)
+     */
+    public boolean isThumbnailPrefetch()
+    {
+        return bThumbnailPrefetch;
+    }
+    
+    /**
+     * Fetches records asynchronously.
+     * 
+     * @param pFilter the filter
+     * @param pSort the sort definition
+     * @param pFromRow the start index
+     * @param pMinimumRowCount the minimum number of records
+     * @return the future of the records
+     * @see #fetch(ICondition, SortDefinition, int, int)
+     */
+    public CompletableFuture<List<Object[]>> fetchAsync(final ICondition pFilter, final SortDefinition pSort, 
+                                                        final int pFromRow, final int pMinimumRowCount)
+    {
+        return executeAsync(new AsyncTask<List<Object[]>>()
+        {
+            @Override
+            protected List<Object[]> call() throws Exception
+            {
+                return fetch(pFilter, pSort, pFromRow, pMinimumRowCount);
+            }
+        });
+    }
+    
+    /**
+     * Inserts a record asynchronously.
+     * 
+     * @param pDataRow the record
+     * @return the future of the inserted record
+     * @see #insert(Object[])
+     */
+    public CompletableFuture<Object[]> insertAsync(final Object[] pDataRow)
+    {
+        return executeAsync(new AsyncTask<Object[]>()
+        {
+            @Override
+            protected Object[] call() throws Exception
+            {
+                return insert(pDataRow);
+            }
+        });
+    }
+    
+    /**
+     * Updates a record asynchronously.
+     * 
+     * @param pOldDataRow the old record
+     * @param pNewDataRow the new record
+     * @return the future of the updated record
+     * @see #update(Object[], Object[])
+     */
+    public CompletableFuture<Object[]> updateAsync(final Object[] pOldDataRow, final Object[] pNewDataRow)
+    {
+        return executeAsync(new AsyncTask<Object[]>()
+        {
+            @Override
+            protected Object[] call() throws Exception
+            {
+                return update(pOldDataRow, pNewDataRow);
+            }
+        });
+    }
+    
+    /**
+     * Deletes a record asynchronously.
+     * 
+     * @param pDataRow the record
+     * @return the future of the deletion
+     * @see #delete(Object[])
+     */
+    public CompletableFuture<Void> deleteAsync(final Object[] pDataRow)
+    {
+        return executeAsync(new AsyncTask<Void>()
+        {
+            @Override
+            protected Void call() throws Exception
+            {
+                delete(pDataRow);
+                
+                return null;
+            }
+        });
+    }
+    
+    /**
+     * Opens the content of a file record asynchronously. The content will be downloaded or read from 
+     * the content cache, by the executor.
+     * 
+     * @param pDataRow the file record
+     * @return the future of the content stream or of <code>null</code> if the record has no content
+     */
+    public CompletableFuture<InputStream> openContentAsync(final Object[] pDataRow)
+    {
+        return executeAsync(new AsyncTask<InputStream>()
+        {
+            @Override
+            protected InputStream call() throws Exception
+            {
+                if (pDataRow[5] instanceof IFileHandle)
+                {
+                    return ((IFileHandle)pDataRow[5]).getInputStream();
+                }
+                
+                return null;
+            }
+        });
+    }
+    
+    /**
+     * Executes a task with the executor for asynchronous operations.
+     * 
+     * @param <T> the result type
+     * @param pTask the task
+     * @return the future of the task
+     */
+    private <T> CompletableFuture<T> executeAsync(AsyncTask<T> pTask)
+    {
+        return execute(getAsyncExecutor(), pTask);
+    }
+    
+    /**
+     * Executes a task with the given executor.
+     * 
+     * @param <T> the result type
+     * @param pExecutor the executor
+     * @param pTask the task
+     * @return the future of the task
+     */
+    private static <T> CompletableFuture<T> execute(Executor pExecutor, AsyncTask<T> pTask)
+    {
+        try
+        {
+            pExecutor.execute(pTask);
+        }
+        catch (RuntimeException re)
+        {
+            pTask.future.completeExceptionally(re);
+        }
+        
+        return pTask.future;
+    }
+    
+    /**
+     * Gets the shared executor for asynchronous operations.
+     * 
+     * @return the executor
+     */
+    private static synchronized Executor getSharedAsyncExecutor()
+    {
+        if (exAsyncShared == null)
+        {
+            try
+            {
+                //Java 21 and later
+                exAsyncShared = (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            }
+            catch (Exception ex)
+            {
+                exAsyncShared = createPool(ASYNC_THREADS, "DropboxStorage async");
+            }
+        }
+        
+        return exAsyncShared;
+    }
+    
+    /**
+     * Gets the shared executor for content prefetches. The prefetch tasks never wait for other tasks, so 
+     * a fetch which waits for its prefetches can't starve the executor.
+     * 
+     * @return the executor
+     */
+    private static synchronized Executor getPrefetchExecutor()
+    {
+        if (exPrefetch == null)
+        {
+            exPrefetch = createPool(PREFETCH_THREADS, "DropboxStorage prefetch");
+        }
+        
+        return exPrefetch;
+    }
+    
+    /**
+     * Creates a bounded pool of daemon threads. Idle threads will be stopped.
+     * 
+     * @param pThreads the maximum number of threads
+     * @param pName the thread name
+     * @return the pool
+     */
+    private static Executor createPool(int pThreads, final String pName)
+    {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(pThreads, pThreads, 60, TimeUnit.SECONDS, 
+                                                         new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            /**
+             * {@inheritDoc}
+             */
+            public Thread newThread(Runnable pRunnable)
+            {
+                Thread th = new Thread(pRunnable, pName);
+                th.setDaemon(true);
+                
+                return th;
+            }
+        });
+        
+        pool.allowCoreThreadTimeOut(true);
+        
+        return pool;
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Inner classes
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * The <code>SearchTask</code> lists a folder and forks the listing of all sub folders. The records
+     * will be merged in traversal order: every record is followed by the records of its sub folder.
+     * 
+     * @author René Jahn
+     */
+    private final class SearchTask extends RecursiveTask<List<Object[]>>
+    {
+        /** the serialization version. */
+        private static final long serialVersionUID = 1L;
+        
+        /** the folder to search. */
+        private String sFolder;
+        
+        /** the filter condition. */
+        private ICondition filter;
+        
+        /**
+         * Creates a new instance of <code>SearchTask</code>.
+         * 
+         * @param pFolder the folder to search
+         * @param pFilter the filter condition
+         */
+        private SearchTask(String pFolder, ICondition pFilter)
+        {
+            sFolder = pFolder;
+            filter = pFilter;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected List<Object[]> compute()
+        {
+            try
+            {
+                List<DbxEntry> liChildren = listChildren(sFolder);
+                
+                int iCount = liChildren.size();
+                
+                Object[][] oRecords = new Object[iCount][];
+                SearchTask[] tasks = new SearchTask[iCount];
+                
+                DataRow row = new DataRow(rowdef);
+                
+                DbxEntry entry;
+                
+                for (int i = 0; i < iCount; i++)
+                {
+                    entry = liChildren.get(i);
+                    
+                    oRecords[i] = matchRecord(entry, filter, row);
+                    
+                    if (entry.isFolder())
+                    {
+                        tasks[i] = new SearchTask(entry.path, filter);
+                        tasks[i].fork();
+                    }
+                }
+                
+                List<Object[]> liRecords = new ArrayUtil<Object[]>(iCount);
+                
+                for (int i = 0; i < iCount; i++)
+                {
+                    if (oRecords[i] != null)
+                    {
+                        liRecords.add(oRecords[i]);
+                    }
+                    
+                    if (tasks[i] != null)
+                    {
+                        liRecords.addAll(tasks[i].join());
+                    }
+                }
+                
+                return liRecords;
+            }
+            catch (SearchException se)
+            {
+                throw se;
+            }
+            catch (Exception ex)
+            {
+                throw new SearchException(ex);
+            }
+        }
+        
+    }   // SearchTask
+    
+    /**
+     * The <code>FetchCursor</code> produces the records of a streaming fetch in a background thread. The
+     * producer works at most one page ahead of the requested rows and waits for the next page request. 
+     * Already delivered records will be released.
+     * 
+     * @author René Jahn
+     */
+    private final class FetchCursor implements IRecordSink,
+                                               Runnable
+    {
+        /** the fetch key (folder, filter and sort). */
+        private String sKey;
+        
+        /** the folder to search. */
+        private String sFolder;
+        
+        /** the filter condition. */
+        private ICondition filter;
+        
+        /** the sort definition. */
+        private SortDefinition sort;
+        
+        /** the produced but not released records. */
+        private ArrayUtil<Object[]> liBuffer = new ArrayUtil<Object[]>();
+        
+        /** the producer thread. */
+        private Thread thProducer;
+        
+        /** the traversal error. */
+        private Exception exError;
+        
+        /** the last access time. */
+        private long lAccess = System.currentTimeMillis();
+        
+        /** the row index of the first buffered record. */
+        private int iOffset;
+        
+        /** the number of records to skip. */
+        private int iSkip;
+        
+        /** the number of produced records. */
+        private int iProduced;
+        
+        /** the number of records the producer should produce before it waits. */
+        private int iLimit;
+        
+        /** whether sub folders should be searched. */
+        private boolean bDeep;
+        
+        /** whether the traversal is finished. */
+        private boolean bFinished;
+        
+        /** whether the cursor was cancelled. */
+        private boolean bCancelled;
+        
+        /**
+         * Creates a new instance of <code>FetchCursor</code>.
+         * 
+         * @param pKey the fetch key
+         * @param pFolder the folder to search
+         * @param pDeep <code>true</code> to search in sub folders as well
+         * @param pFilter the filter condition
+         * @param pSort the sort definition
+         * @param pSkip the number of records to skip
+         */
+        private FetchCursor(String pKey, String pFolder, boolean pDeep, ICondition pFilter, SortDefinition pSort, int pSkip)
+        {
+            sKey = pKey;
+            sFolder = pFolder;
+            bDeep = pDeep;
+            filter = pFilter;
+            sort = pSort;
+            iSkip = pSkip;
+            iOffset = pSkip;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void run()
+        {
+            try
+            {
+                updateIndex();
+                
+                searchRecords(sFolder, bDeep, this, filter, sort);
+            }
+            catch (Exception ex)
+            {
+                synchronized (this)
+                {
+                    if (!bCancelled)
+                    {
+                        exError = ex;
+                    }
+                }
+            }
+            finally
+            {
+                synchronized (this)
+                {
+                    bFinished = true;
+                    
+                    notifyAll();
+                }
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public synchronized void add(Object[] pRecord)
+        {
+            while (!bCancelled && iProduced >= iLimit)
+            {
+                if (System.currentTimeMillis() - lAccess > CURSOR_TIMEOUT)
+                {
+                    bCancelled = true;
+                }
+                else
+                {
+                    try
+                    {
+                        wait(1000);
+                    }
+                    catch (InterruptedException ie)
+                    {
+                        bCancelled = true;
+                    }
+                }
+            }
+            
+            if (bCancelled)
+            {
+                throw new IllegalStateException("Fetch was cancelled!");
+            }
+            
+            if (iProduced >= iSkip)
+            {
+                liBuffer.add(pRecord);
+            }
+            
+            iProduced++;
+            
+            notifyAll();
+        }
+        
+        /**
+         * Starts the producer.
+         */
+        private void start()
+        {
+            thProducer = new Thread(this, "DropboxStorage fetch");
+            thProducer.setDaemon(true);
+            thProducer.start();
+        }
+        
+        /**
+         * Cancels the producer.
+         */
+        private synchronized void cancel()
+        {
+            bCancelled = true;
+            
+            liBuffer.clear();
+            
+            notifyAll();
+        }
+        
+        /**
+         * Gets whether the given rows are available with this cursor.
+         * 
+         * @param pKey the fetch key
+         * @param pFromRow the first row index
+         * @return <code>true</code> if the fetch key is the same and the rows weren't released
+         */
+        private synchronized boolean isAvailable(String pKey, int pFromRow)
+        {
+            return !bCancelled 
+                   && exError == null
+                   && pFromRow > 0
+                   && pFromRow >= iOffset 
+                   && sKey.equals(pKey);
+        }
+        
+        /**
+         * Gets the records, starting with the given row. This method waits until the minimum row count is 
+         * available or the traversal is finished.
+         * 
+         * @param pFromRow the first row index
+         * @param pMinimumRowCount the minimum number of rows
+         * @return the records, with <code>null</code> as last element if all records were fetched
+         * @throws Exception if the traversal failed
+         */
+        private synchronized List<Object[]> getRecords(int pFromRow, int pMinimumRowCount) throws Exception
+        {
+            int iRequested = pFromRow + Math.max(1, pMinimumRowCount);
+            
+            lAccess = System.currentTimeMillis();
+            
+            //produce the requested page and the next one
+            iLimit = iRequested + Math.max(1, pMinimumRowCount);
+            
+            notifyAll();
+            
+            while (!bFinished && iProduced < iRequested)
+            {
+                wait();
+            }
+            
+            if (exError != null)
+            {
+                throw exError;
+            }
+            
+            //release delivered records
+            liBuffer.removeRange(0, Math.min(liBuffer.size(), pFromRow - iOffset));
+            iOffset = pFromRow;
+            
+            List<Object[]> liRecords = new ArrayUtil<Object[]>(liBuffer);
+            
+            if (bFinished)
+            {
+                liRecords.add(null);
+            }
+            
+            return liRecords;
+        }
+        
+    }   // FetchCursor
+    
+    /**
+     * The <code>CSVWriter</code> writes every added record as CSV row, instead of keeping it. It's used as
+     * record sink for searching, so that the first rows will be written before the search is finished.
+     * 
+     * @author René Jahn
+     */
+    private final class CSVWriter implements IRecordSink
+    {
+        /** the output. */
+        private OutputStreamWriter writer;
+        
+        /** the column separator. */
+        private String sSeparator;
+        
+        /** the indices of the exported columns. */
+        private int[] iaColumns;
+        
+        /** the data types of the exported columns. */
+        private IDataType[] dataTypes;
+        
+        /**
+         * Creates a new instance of <code>CSVWriter</code> and writes the header.
+         * 
+         * @param pStream the output stream
+         * @param pColumnNames the exported columns or <code>null</code> to export all columns
+         * @param pLabels the column labels or <code>null</code> to use the default labels
+         * @param pSeparator the column separator or <code>null</code> to use the list separator of the locale
+         * @throws Exception if writing the header fails
+         */
+        private CSVWriter(OutputStream pStream, String[] pColumnNames, String[] pLabels, String pSeparator) throws Exception
+        {
+            writer = new OutputStreamWriter(pStream, DataBookCSVExporter.getDefaultEncoding());
+            
+            sSeparator = pSeparator != null ? pSeparator : LocaleUtil.getListSeparator();
+            
+            String[] sColumns = pColumnNames != null ? pColumnNames : rowdef.getColumnView(null).getColumnNames();
+            
+            iaColumns = new int[sColumns.length];
+            dataTypes = new IDataType[sColumns.length];
+            
+            for (int i = 0; i < sColumns.length; i++)
+            {
+                iaColumns[i] = rowdef.getColumnDefinitionIndex(sColumns[i]);
+                dataTypes[i] = rowdef.getColumnDefinition(sColumns[i]).getDataType();
+                
+                String sLabel;
+                
+                if (pLabels != null)
+                {
+                    sLabel = pLabels[i];
+                }
+                else
+                {
+                    sLabel = rowdef.getColumnDefinition(sColumns[i]).getLabel();
+                    
+                    if (sLabel == null)
+                    {
+                        sLabel = ColumnMetaData.getDefaultLabel(sColumns[i]);
+                    }
+                }
+                
+                if (i > 0)
+                {
+                    writer.write(sSeparator);
+                }
+                
+                writer.write(StringUtil.quote(sLabel, '"'));
+            }
+            
+            writer.write("\n");
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void add(Object[] pRecord)
+        {
+            try
+            {
+                for (int i = 0; i < iaColumns.length; i++)
+                {
+                    if (i > 0)
+                    {
+                        writer.write(sSeparator);
+                    }
+                    
+                    DataBookCSVExporter.writeQuoted(writer, dataTypes[i], pRecord[iaColumns[i]], sSeparator);
+                }
+                
+                writer.write("\n");
+            }
+            catch (IOException ioe)
+            {
+                throw new SearchException(ioe);
+            }
+        }
+        
+        /**
+         * Writes all buffered characters.
+         * 
+         * @throws IOException if writing fails
+         */
+        private void flush() throws IOException
+        {
+            writer.flush();
+        }
+        
+        /**
+         * Closes the output.
+         */
+        private void close()
+        {
+            CommonUtil.close(writer);
+        }
+        
+    }   // CSVWriter
+    
+    /**
+     * The <code>IRecordSink</code> receives the records found by a search, in search order.
+     * 
+     * @author René Jahn
+     */
+    private interface IRecordSink
+    {
+        /**
+         * Adds a found record.
+         * 
+         * @param pRecord the record
+         */
+        public void add(Object[] pRecord);
+        
+    }   // IRecordSink
+    
+    /**
+     * The <code>ListSink</code> adds the found records to a list.
+     * 
+     * @author René Jahn
+     */
+    private static final class ListSink implements IRecordSink
+    {
+        /** the records. */
+        private List<Object[]> liRecords;
+        
+        /**
+         * Creates a new instance of <code>ListSink</code>.
+         * 
+         * @param pRecords the list for the found records
+         */
+        private ListSink(List<Object[]> pRecords)
+        {
+            liRecords = pRecords;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void add(Object[] pRecord)
+        {
+            liRecords.add(pRecord);
+        }
+        
+    }   // ListSink
+    
+    /**
+     * The <code>SearchException</code> transports a listing error through the traversal pool.
+     * 
+     * @author René Jahn
+     */
+    private static final class SearchException extends RuntimeException
+    {
+        /** the serialization version. */
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * Creates a new instance of <code>SearchException</code>.
+         * 
+         * @param pCause the listing error
+         */
+        private SearchException(Exception pCause)
+        {
+            super(pCause);
+        }
+        
+    }   // SearchException
+    
+    /**
+     * The <code>RecordComparator</code> compares records with a sort definition. The values will be compared
+     * by the data types of the columns, like a data book does. Binary columns will be ignored.
+     * 
+     * @author René Jahn
+     */
+    private final class RecordComparator implements Comparator<Object[]>
+    {
+        /** the indices of the sort columns. */
+        private int[] iaColumns;
+        
+        /** the data types of the sort columns. */
+        private IDataType[] dataTypes;
+        
+        /** whether the sort columns are ascending. */
+        private boolean[] baAscending;
+        
+        /**
+         * Creates a new instance of <code>RecordComparator</code>.
+         * 
+         * @param pSort the sort definition
+         * @throws ModelException if a sort column doesn't exist
+         */
+        private RecordComparator(SortDefinition pSort) throws ModelException
+        {
+            String[] sColumns = pSort.getColumns();
+            boolean[] bAscending = pSort.isAscending();
+            
+            int iCount = sColumns != null ? sColumns.length : 0;
+            
+            iaColumns = new int[iCount];
+            dataTypes = new IDataType[iCount];
+            baAscending = new boolean[iCount];
+            
+            for (int i = 0; i < iCount; i++)
+            {
+                iaColumns[i] = rowdef.getColumnDefinitionIndex(sColumns[i]);
+                
+                if (iaColumns[i] < 0)
+                {
+                    throw new ModelException("Sort column '" + sColumns[i] + "' doesn't exist!");
+                }
+                
+                dataTypes[i] = rowdef.getColumnDefinition(iaColumns[i]).getDataType();
+                
+                baAscending[i] = bAscending == null || i >= bAscending.length || bAscending[i];
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public int compare(Object[] pRecord1, Object[] pRecord2)
+        {
+            for (int i = 0; i < iaColumns.length; i++)
+            {
+                if (!(dataTypes[i] instanceof BinaryDataType))
+                {
+                    int iCompare = dataTypes[i].compareTo(pRecord1[iaColumns[i]], pRecord2[iaColumns[i]]);
+                    
+                    if (iCompare != 0)
+                    {
+                        return baAscending[i] ? iCompare : -iCompare;
+                    }
+                }
+            }
+            
+            return 0;
+        }
+        
+    }   // RecordComparator
+    
+    /**
+     * The <code>EntryComparator</code> compares remote entries by path.
+     * 
+     * @author René Jahn
+     */
+    private static final class EntryComparator implements Comparator<DbxEntry>
+    {
+        /** the data type of the PATH column. */
+        private IDataType type;
+        
+        /**
+         * Creates a new instance of <code>EntryComparator</code>.
+         * 
+         * @param pType the data type of the PATH column
+         */
+        private EntryComparator(IDataType pType)
+        {
+            type = pType;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public int compare(DbxEntry pEntry1, DbxEntry pEntry2)
+        {
+            return type.compareTo(pEntry1.path, pEntry2.path);
+        }
+        
+    }   // EntryComparator
+    
+    /**
+     * The <code>AsyncTask</code> executes a blocking operation and completes its future with the result
+     * or the error of the operation. A cancelled future won't be executed.
+     * 
+     * @author René Jahn
+     * 
+     * @param <T> the result type
+     */
+    private abstract static class AsyncTask<T> implements Runnable
+    {
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        // Class members
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        
+        /** the future. */
+        private final CompletableFuture<T> future = new CompletableFuture<T>();
+        
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        // Abstract methods
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        
+        /**
+         * Executes the operation.
+         * 
+         * @return the result
+         * @throws Exception if the operation failed
+         */
+        protected abstract T call() throws Exception;
+        
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        // Interface implementation
+        //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void run()
+        {
+            if (future.isDone())
+            {
+                return;
+            }
+            
+            try
+            {
+                future.complete(call());
+            }
+            catch (Throwable th)
+            {
+                future.completeExceptionally(th);
+            }
+        }
+        
+    }   // AsyncTask
+    
 }   // DropboxStorage
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.dropbox.core.DbxClient;
+import com.dropbox.core.DbxEntry;
+import com.dropbox.core.DbxThumbnailFormat;
+import com.dropbox.core.DbxThumbnailSize;
+import com.sibvisions.apps.persist.DropboxMetrics.Operation;
+
+/**
+ * The <code>DropboxThumbnailCache</code> is a process-wide memory cache for downloaded thumbnails. The
+ * thumbnails are mapped by access token, path, revision, size and format. The cache has a byte budget
+ * and removes the least recently used thumbnails if the budget is exceeded. The access token is identified
+ * by its hash, so that the cache doesn't keep access tokens.
+ * 
+ * @author René Jahn
+ */
+final class DropboxThumbnailCache
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the shared instance. */
+    private static final DropboxThumbnailCache INSTANCE = new DropboxThumbnailCache();
+    
+    /** the cached thumbnails in LRU order. */
+    private LinkedHashMap<String, byte[]> lhmThumbnails = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    
+    /** the download locks, mapped by key. */
+    private ConcurrentHashMap<String, Object> chmLocks = new ConcurrentHashMap<String, Object>();
+    
+    /** the maximum cache size in bytes. */
+    private long lMaxSize = 16 * 1024 * 1024;
+    
+    /** the current cache size in bytes. */
+    private long lSize;
+    
+    /** the number of reads from cache. */
+    private long lHits;
+    
+    /** the number of downloads. */
+    private long lMisses;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Invisible constructor, because the <code>DropboxThumbnailCache</code> is a singleton.
+     */
+    private DropboxThumbnailCache()
+    {
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Gets the shared instance.
+     * 
+     * @return the cache
+     */
+    public static DropboxThumbnailCache getInstance()
+    {
+        return INSTANCE;
+    }
+    
+    /**
+     * Gets the thumbnail of the given file. The thumbnail will be downloaded if it's not cached. Concurrent
+     * requests for the same thumbnail share one download.
+     * 
+     * @param pClient the dropbox client
+     * @param pPath the file path
+     * @param pRev the file revision or <code>null</code> if the revision is unknown
+     * @param pSize the thumbnail size
+     * @param pFormat the thumbnail format
+     * @param pMetrics the metrics for recording the download or <code>null</code>
+     * @return the thumbnail or <code>null</code> if the file has no thumbnail
+     * @throws Exception if downloading the thumbnail fails
+     */
+    public byte[] get(DbxClient pClient, String pPath, String pRev, DbxThumbnailSize pSize, DbxThumbnailFormat pFormat,
+                      DropboxMetrics pMetrics) throws Exception
+    {
+        if (pRev == null)
+        {
+            //key is known after the download
+            return download(pClient, pPath, null, pSize, pFormat, pMetrics);
+        }
+        
+        String sKey = createKey(pClient, pPath, pRev, pSize, pFormat);
+        
+        byte[] byThumbnail = get(sKey);
+        
+        if (byThumbnail != null)
+        {
+            return byThumbnail;
+        }
+        
+        Object oLock = new Object();
+        Object oCurrent = chmLocks.putIfAbsent(sKey, oLock);
+        
+        if (oCurrent != null)
+        {
+            oLock = oCurrent;
+        }
+        
+        synchronized (oLock)
+        {
+            try
+            {
+                byThumbnail = get(sKey);
+                
+                if (byThumbnail == null)
+                {
+                    byThumbnail = download(pClient, pPath, pRev, pSize, pFormat, pMetrics);
+                }
+                
+                return byThumbnail;
+            }
+            finally
+            {
+                chmLocks.remove(sKey, oLock);
+            }
+        }
+    }
+    
+    /**
+     * Sets the maximum cache size. The least recently used thumbnails will be removed if the cache is larger
+     * than the new size.
+     * 
+     * @param pMaxSize the maximum size in bytes, <code>0</code> to disable the cache
+     */
+    public synchronized void setMaxSize(long pMaxSize)
+    {
+        lMaxSize = Math.max(0, pMaxSize);
+        
+        evict();
+    }
+    
+    /**
+     * Gets the maximum cache size.
+     * 
+     * @return the maximum size in bytes
+     */
+    public synchronized long getMaxSize()
+    {
+        return lMaxSize;
+    }
+    
+    /**
+     * Gets the current cache size.
+     * 
+     * @return the size of all cached thumbnails in bytes
+     */
+    public synchronized long getSize()
+    {
+        return lSize;
+    }
+    
+    /**
+     * Gets the number of reads which were answered from cache.
+     * 
+     * @return the number of cache hits
+     */
+    public synchronized long getHitCount()
+    {
+        return lHits;
+    }
+    
+    /**
+     * Gets the number of downloads.
+     * 
+     * @return the number of cache misses
+     */
+    public synchronized long getMissCount()
+    {
+        return lMisses;
+    }
+    
+    /**
+     * Removes all cached thumbnails.
+     */
+    public synchronized void clear()
+    {
+        lhmThumbnails.clear();
+        
+        lSize = 0;
+    }
+    
+    /**
+     * Gets a cached thumbnail.
+     * 
+     * @param pKey the key
+     * @return the thumbnail or <code>null</code> if the key isn't cached
+     */
+    private synchronized byte[] get(String pKey)
+    {
+        byte[] byThumbnail = lhmThumbnails.get(pKey);
+        
+        if (byThumbnail != null)
+        {
+            lHits++;
+        }
+        
+        return byThumbnail;
+    }
+    
+    /**
+     * Downloads the thumbnail and adds it to the cache.
+     * 
+     * @param pClient the dropbox client
+     * @param pPath the file path
+     * @param pRev the file revision or <code>null</code> for the current revision
+     * @param pSize the thumbnail size
+     * @param pFormat the thumbnail format
+     * @param pMetrics the metrics for recording the download or <code>null</code>
+     * @return the thumbnail or <code>null</code> if the file has no thumbnail
+     * @throws Exception if downloading the thumbnail fails
+     */
+    private byte[] download(DbxClient pClient, String pPath, String pRev, DbxThumbnailSize pSize, DbxThumbnailFormat pFormat,
+                            DropboxMetrics pMetrics) throws Exception
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        
+        DbxEntry.File metaData = null;
+        
+        long lStart = System.nanoTime();
+        
+        try
+        {
+            metaData = pClient.getThumbnail(pSize, pFormat, pPath, pRev, baos);
+        }
+        finally
+        {
+            if (pMetrics != null)
+            {
+                pMetrics.record(Operation.Thumbnail, lStart, baos.size(), metaData != null);
+            }
+        }
+        
+        if (metaData == null)
+        {
+            return null;
+        }
+        
+        byte[] byThumbnail = baos.toByteArray();
+        
+        put(createKey(pClient, metaData.path, metaData.rev, pSize, pFormat), byThumbnail);
+        
+        return byThumbnail;
+    }
+    
+    /**
+     * Adds a downloaded thumbnail.
+     * 
+     * @param pKey the key
+     * @param pThumbnail the thumbnail
+     */
+    private synchronized void put(String pKey, byte[] pThumbnail)
+    {
+        lMisses++;
+        
+        byte[] byOld = lhmThumbnails.put(pKey, pThumbnail);
+        
+        if (byOld != null)
+        {
+            lSize -= byOld.length;
+        }
+        
+        lSize += pThumbnail.length;
+        
+        evict();
+    }
+    
+    /**
+     * Removes the least recently used thumbnails until the cache size is within the budget.
+     */
+    private void evict()
+    {
+        Iterator<byte[]> it = lhmThumbnails.values().iterator();
+        
+        while (lSize > lMaxSize && it.hasNext())
+        {
+            lSize -= it.next().length;
+            
+            it.remove();
+        }
+    }
+    
+    /**
+     * Creates the cache key for a thumbnail.
+     * 
+     * @param pClient the dropbox client
+     * @param pPath the file path
+     * @param pRev the file revision
+     * @param pSize the thumbnail size
+     * @param pFormat the thumbnail format
+     * @return the key
+     */
+    private static String createKey(DbxClient pClient, String pPath, String pRev, DbxThumbnailSize pSize, DbxThumbnailFormat pFormat)
+    {
+        return DropboxContentHashes.getTokenId(pClient) + "|" + pPath.toLowerCase(Locale.ROOT) + "|" + pRev + "|" + pSize.ident + "|" + pFormat.ident;
+    }
+
+}   // DropboxThumbnailCache
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import jvx.rad.io.IFileHandle;
+
+import com.dropbox.core.DbxClient;
+import com.dropbox.core.DbxEntry;
+import com.dropbox.core.DbxThumbnailFormat;
+import com.dropbox.core.DbxThumbnailSize;
+import com.sibvisions.util.IValidatable;
+import com.sibvisions.util.type.FileUtil;
+
+/**
+ * The <code>DropboxThumbnailHandle</code> is an {@link IFileHandle} for the thumbnail of a file located
+ * in a dropbox container. The thumbnail will be downloaded when it will be read, and it's kept in the
+ * shared {@link DropboxThumbnailCache} instead of the handle.
+ * 
+ * @author René Jahn
+ */
+class DropboxThumbnailHandle implements IFileHandle,
+                                        IValidatable
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Class members
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /** the dropbox client. */
+    private DbxClient client;
+    
+    /** the file. */
+    private DbxEntry.File file;
+    
+    /** the thumbnail size. */
+    private DbxThumbnailSize size;
+    
+    /** the thumbnail format. */
+    private DbxThumbnailFormat format;
+    
+    /** the metrics or <code>null</code> if downloads shouldn't be recorded. */
+    private DropboxMetrics metrics;
+    
+    /** the length of the last read thumbnail. */
+    private volatile long lLength = -1;
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Initialization
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Creates a new instance of <code>DropboxThumbnailHandle</code>.
+     * 
+     * @param pClient the dropbox client
+     * @param pFile the file
+     * @param pSize the thumbnail size
+     * @param pFormat the thumbnail format
+     */
+    public DropboxThumbnailHandle(DbxClient pClient, DbxEntry.File pFile, DbxThumbnailSize pSize, DbxThumbnailFormat pFormat)
+    {
+        client = pClient;
+        file = pFile;
+        size = pSize;
+        format = pFormat;
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Interface implementation
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    // IFileHandle
+    
+    /**
+     * {@inheritDoc}
+     */
+    public String getFileName()
+    {
+        return getFileName(file.name, format);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public InputStream getInputStream() throws IOException
+    {
+        byte[] byThumbnail = load();
+        
+        if (byThumbnail == null)
+        {
+            throw new IOException("File '" + file.name + "' has no thumbnail!");
+        }
+        
+        return new ByteArrayInputStream(byThumbnail);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public long getLength() throws IOException
+    {
+        //no load because BinaryDataType checks the length and this would trigger data transfer
+        return lLength;
+    }
+    
+    // IValidatable
+    
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isValid()
+    {
+        //the handle doesn't keep the thumbnail
+        return true;
+    }
+    
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // User-defined methods
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Downloads the thumbnail into the shared cache, if it's not cached.
+     * 
+     * @throws IOException if downloading the thumbnail fails
+     */
+    public void prefetch() throws IOException
+    {
+        load();
+    }
+    
+    /**
+     * Sets the metrics for recording the downloads.
+     * 
+     * @param pMetrics the metrics or <code>null</code> if downloads shouldn't be recorded
+     */
+    public void setMetrics(DropboxMetrics pMetrics)
+    {
+        metrics = pMetrics;
+    }
+    
+    /**
+     * Gets the metrics for recording the downloads.
+     * 
+     * @return the metrics or <code>null</code> if downloads won't be recorded
+     * @see #setMetrics(DropboxMetrics)
+     */
+    public DropboxMetrics getMetrics()
+    {
+        return metrics;
+    }
+    
+    /**
+     * Gets the file name of a thumbnail.
+     * 
+     * @param pName the file name
+     * @param pFormat the thumbnail format
+     * @return the file name with the extension of the thumbnail format
+     */
+    static String getFileName(String pName, DbxThumbnailFormat pFormat)
+    {
+        return FileUtil.removeExtension(pName) + (pFormat == DbxThumbnailFormat.PNG ? ".png" : ".jpg");
+    }
+    
+    /**
+     * Gets the thumbnail from the shared cache.
+     * 
+     * @return the thumbnail or <code>null</code> if the file has no thumbnail
+     * @throws IOException if downloading the thumbnail fails
+     */
+    private byte[] load() throws IOException
+    {
+        byte[] byThumbnail;
+        
+        try
+        {
+            byThumbnail = DropboxThumbnailCache.getInstance().get(client, file.path, file.rev, size, format, metrics);
+        }
+        catch (IOException ioe)
+        {
+            throw ioe;
+        }
+        catch (Exception ex)
+        {
+            throw new IOException("Can't download thumbnail of '" + file.name + "'!", ex);
+        }
+        
+        if (byThumbnail != null)
+        {
+            lLength = byThumbnail.length;
+        }
+        
+        return byThumbnail;
+    }
+
+}   // DropboxThumbnailHandle
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 SIB Visions GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * 
+ * History
+ *
+ * 17.10.2026 - [JR] - creation
+ */
+package com.sibvisions.apps.persist;
+
+import com.sibvisions.apps.persist.DropboxMetrics.Operation;
+
+/**
+ * The <code>IDropboxMetricsListener</code> will be notified about every finished operation of a
+ * {@link DropboxStorage}, e.g. to forward the numbers to a monitoring system. The listener will be called
+ * by the thread which executed the operation, so it should return quickly.
+ * 
+ * @author René Jahn
+ * @see DropboxMetrics#addListener(IDropboxMetricsListener)
+ */
+public interface IDropboxMetricsListener
+{
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    // Method definitions
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+    
+    /**
+     * Invoked when an operation was finished.
+     * 
+     * @param pMetrics the metrics
+     * @param pOperation the operation
+     * @param pDuration the duration (ns)
+     * @param pBytes the transferred bytes, <code>0</code> for operations without content
+     * @param pSuccess <code>true</code> if the operation was successful
+     */
+    public void operationFinished(DropboxMetrics pMetrics, Operation pOperation, long pDuration, long pBytes, boolean pSuccess);
+    
+    /**
+     * Invoked when a fetch was finished.
+     * 
+     * @param pMetrics the metrics
+     * @param pFoldersVisited the number of listed folders
+     * @param pApiCalls the number of API calls
+     */
+    public void fetchFinished(DropboxMetrics pMetrics, long pFoldersVisited, long pApiCalls);
+
+}   // IDropboxMetricsListener
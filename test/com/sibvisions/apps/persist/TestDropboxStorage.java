@@ -20,21 +20,40 @@
  */
 package com.sibvisions.apps.persist;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import jvx.rad.io.IFileHandle;
+import jvx.rad.io.RemoteFileHandle;
+import jvx.rad.model.SortDefinition;
 import jvx.rad.model.condition.Equals;
 import jvx.rad.model.condition.Like;
 import jvx.rad.model.condition.LikeIgnoreCase;
 import jvx.rad.model.reference.ReferenceDefinition;
+import jvx.rad.persist.DataSourceException;
 
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.dropbox.core.DbxThumbnailSize;
 import com.sibvisions.apps.persist.DropboxStorage.FileType;
 import com.sibvisions.rad.persist.StorageDataBook;
+import com.sibvisions.rad.remote.UniversalSerializer;
+import com.sibvisions.util.ObjectCache;
 import com.sibvisions.util.type.CommonUtil;
 import com.sibvisions.util.type.FileUtil;
 import com.sibvisions.util.type.ResourceUtil;
@@ -44,7 +63,7 @@ import com.sibvisions.util.xml.XmlWorker;
 /**
  * Tests functionality of {@link DropboxStorage}.
  * 
- * @author Ren Jahn
+ * @author René Jahn
  */
 public class TestDropboxStorage
 {
@@ -150,6 +169,499 @@ public class TestDropboxStorage
         Assert.assertArrayEquals(FileUtil.getContent(new File(new File("").getAbsolutePath(), "/dropbox/Erste Schritte.pdf")), FileUtil.getContent(fiTemp));
     }
 
+    /**
+     * Tests reading streamed file content.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFetchStreamingDownload() throws Exception
+    {
+        storage.setRecursive(true);
+        storage.setStreamingDownload(true);
+        
+        book.fetchAll();
+        
+        book.setSelectedRow(book.searchNext(new Like("NAME", "Erste Schritte.pdf")));
+        
+        Assert.assertTrue("PDF document wasn't found!", book.getSelectedRow() >= 0);
+
+        File fiTemp = getTempOutputFile((IFileHandle)book.getValue("CONTENT"));
+        
+        Assert.assertArrayEquals(FileUtil.getContent(new File(new File("").getAbsolutePath(), "/dropbox/Erste Schritte.pdf")), FileUtil.getContent(fiTemp));
+    }
+    
+    /**
+     * Tests reading file content via shared content cache.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFetchContentCache() throws Exception
+    {
+        DropboxStorage.setContentCacheSize(10 * 1024 * 1024);
+        
+        try
+        {
+            storage.setRecursive(true);
+            
+            book.fetchAll();
+            
+            book.setSelectedRow(book.searchNext(new Like("NAME", "Erste Schritte.pdf")));
+            
+            byte[] byExpected = FileUtil.getContent(new File(new File("").getAbsolutePath(), "/dropbox/Erste Schritte.pdf"));
+            
+            //first read downloads, second read uses the cache
+            Assert.assertArrayEquals(byExpected, FileUtil.getContent(getTempOutputFile((IFileHandle)book.getValue("CONTENT"))));
+            Assert.assertArrayEquals(byExpected, FileUtil.getContent(getTempOutputFile((IFileHandle)book.getValue("CONTENT"))));
+        }
+        finally
+        {
+            DropboxStorage.setContentCacheSize(0);
+        }
+    }
+    
+    /**
+     * Tests parallel fetching. The result should be the same as with sequential fetching.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFetchParallel() throws Exception
+    {
+        storage.setRecursive(true);
+        
+        List<Object[]> liSequential = storage.fetch(null, null, 0, -1);
+        
+        storage.setParallelism(4);
+        
+        List<Object[]> liParallel = storage.fetch(null, null, 0, -1);
+        
+        Assert.assertEquals(liSequential.size(), liParallel.size());
+        
+        for (int i = 0, cnt = liSequential.size() - 1; i < cnt; i++)
+        {
+            Assert.assertEquals(liSequential.get(i)[0], liParallel.get(i)[0]);
+        }
+    }
+    
+    /**
+     * Tests parallel fetching with limited connections. The result should be the same as without limit.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFetchWithConnectionLimit() throws Exception
+    {
+        storage.setRecursive(true);
+        
+        List<Object[]> liUnlimited = storage.fetch(null, null, 0, -1);
+        
+        DropboxStorage dsLimited = new DropboxStorage();
+        dsLimited.setAccessToken(getAccessToken());
+        dsLimited.setFileType(FileType.All);
+        dsLimited.setRecursive(true);
+        dsLimited.setParallelism(4);
+        dsLimited.setMaxConnectionsPerHost(2);
+        dsLimited.open();
+        
+        try
+        {
+            Assert.assertEquals(liUnlimited.size(), dsLimited.fetch(null, null, 0, -1).size());
+        }
+        finally
+        {
+            dsLimited.close();
+        }
+    }
+    
+    /**
+     * Tests the thumbnail column. Files with thumbnail should have a thumbnail handle, and reading a thumbnail
+     * again should use the thumbnail cache.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testThumbnail() throws Exception
+    {
+        DropboxStorage dsThumbnail = new DropboxStorage();
+        dsThumbnail.setAccessToken(getAccessToken());
+        dsThumbnail.setRecursive(true);
+        dsThumbnail.setThumbnailEnabled(true);
+        dsThumbnail.setThumbnailSize(DbxThumbnailSize.w64h64);
+        dsThumbnail.open();
+        
+        try
+        {
+            Assert.assertTrue(dsThumbnail.getMetaData().getColumnMetaDataIndex("THUMBNAIL") >= 0);
+            
+            DropboxMetrics metrics = dsThumbnail.getMetrics();
+            
+            for (Object[] oRecord : dsThumbnail.fetch(null, null, 0, -1))
+            {
+                if (oRecord != null && oRecord[6] != null)
+                {
+                    byte[] byThumbnail = FileUtil.getContent(((IFileHandle)oRecord[6]).getInputStream());
+                    
+                    long lDownloads = metrics.getCount(DropboxMetrics.Operation.Thumbnail);
+                    
+                    Assert.assertArrayEquals(byThumbnail, FileUtil.getContent(((IFileHandle)oRecord[6]).getInputStream()));
+                    Assert.assertEquals(lDownloads, metrics.getCount(DropboxMetrics.Operation.Thumbnail));
+                }
+            }
+        }
+        finally
+        {
+            dsThumbnail.close();
+        }
+    }
+    
+    /**
+     * Tests fetching with a limited request rate. The result should be the same as without limit.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFetchWithRequestRate() throws Exception
+    {
+        storage.setRecursive(true);
+        
+        List<Object[]> liUnlimited = storage.fetch(null, null, 0, -1);
+        
+        storage.setRequestRate(5);
+        
+        try
+        {
+            Assert.assertEquals(liUnlimited.size(), storage.fetch(null, null, 0, -1).size());
+        }
+        finally
+        {
+            storage.setRequestRate(0);
+        }
+    }
+    
+    /**
+     * Tests the shared folder paths. All records of the same folder should have the same folder instance.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testSharedFolders() throws Exception
+    {
+        storage.setRecursive(true);
+        
+        HashMap<String, Object> hmpFolders = new HashMap<String, Object>();
+        
+        for (Object[] oRecord : storage.fetch(null, null, 0, -1))
+        {
+            if (oRecord != null)
+            {
+                Object oFolder = hmpFolders.get(oRecord[2]);
+                
+                if (oFolder == null)
+                {
+                    hmpFolders.put((String)oRecord[2], oRecord[2]);
+                }
+                else
+                {
+                    Assert.assertSame(oFolder, oRecord[2]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Tests the metrics of a fetch.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testMetrics() throws Exception
+    {
+        DropboxMetrics metrics = storage.getMetrics();
+        metrics.reset();
+        
+        storage.fetch(null, null, 0, -1);
+        
+        Assert.assertEquals(1, metrics.getCount(DropboxMetrics.Operation.Fetch));
+        Assert.assertTrue(metrics.getApiCalls() > 0);
+        Assert.assertTrue(metrics.getFoldersVisitedPerFetch() >= 1);
+        Assert.assertEquals(metrics.getFileHandlesCreated(), metrics.getFileHandles());
+    }
+    
+    /**
+     * Tests closing and opening the storage again. The metrics should be registered again.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testReopen() throws Exception
+    {
+        ObjectName name = new ObjectName("com.sibvisions.apps.persist:type=DropboxStorage,*");
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        
+        storage.setJmxEnabled(true);
+        
+        int iRegistered = server.queryNames(name, null).size();
+        
+        storage.close();
+        
+        Assert.assertFalse(storage.isOpen());
+        Assert.assertEquals(iRegistered - 1, server.queryNames(name, null).size());
+        
+        storage.open();
+        
+        Assert.assertTrue(storage.isOpen());
+        Assert.assertEquals(iRegistered, server.queryNames(name, null).size());
+        
+        Assert.assertTrue(storage.fetch(null, null, 0, -1).size() > 0);
+    }
+    
+    /**
+     * Tests the content prefetch. The content of small files should be downloaded with the fetch, and reading
+     * the content shouldn't download it again.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testPrefetch() throws Exception
+    {
+        DropboxMetrics metrics = storage.getMetrics();
+        metrics.reset();
+        
+        storage.setPrefetchSize(Long.MAX_VALUE);
+        
+        //the content is kept in memory
+        Assert.assertTrue(storage.getPrefetchSize() < Integer.MAX_VALUE);
+        
+        List<Object[]> liRecords = storage.fetch(null, null, 0, -1);
+        
+        long lDownloads = metrics.getCount(DropboxMetrics.Operation.Download);
+        
+        Assert.assertTrue(lDownloads > 0);
+        
+        for (Object[] oRecord : liRecords)
+        {
+            if (oRecord != null && oRecord[5] != null)
+            {
+                CommonUtil.close(((IFileHandle)oRecord[5]).getInputStream());
+            }
+        }
+        
+        Assert.assertEquals(lDownloads, metrics.getCount(DropboxMetrics.Operation.Download));
+    }
+    
+    /**
+     * Tests the registration of file handles. The same file revision should have the same cache key, and
+     * a second fetch shouldn't create handles.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFileHandleKeys() throws Exception
+    {
+        DropboxMetrics metrics = storage.getMetrics();
+        metrics.reset();
+        
+        storage.setFileType(FileType.File);
+        
+        List<Object[]> liFirst = storage.fetch(null, null, 0, -1);
+        
+        long lCreated = metrics.getFileHandlesCreated();
+        
+        List<Object[]> liSecond = storage.fetch(null, null, 0, -1);
+        
+        Assert.assertEquals(lCreated, metrics.getFileHandlesCreated());
+        
+        RemoteFileHandle rfhFirst = (RemoteFileHandle)liFirst.get(0)[5];
+        RemoteFileHandle rfhSecond = (RemoteFileHandle)liSecond.get(0)[5];
+        
+        Assert.assertEquals(RemoteFileHandle.class, rfhFirst.getClass());
+        Assert.assertEquals(rfhFirst.getObjectCacheKey(), rfhSecond.getObjectCacheKey());
+        Assert.assertNotNull(ObjectCache.get(rfhFirst.getObjectCacheKey()));
+    }
+    
+    /**
+     * Tests sending a fetched record to the client. The content should be available with the cache key
+     * of the transferred file handle.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testSerializeRecord() throws Exception
+    {
+        storage.setFileType(FileType.File);
+        
+        Object[] oRecord = storage.fetch(null, null, 0, -1).get(0);
+        
+        UniversalSerializer serializer = new UniversalSerializer();
+        
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        
+        serializer.write(new DataOutputStream(baos), oRecord);
+        
+        Object[] oTransferred = (Object[])serializer.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+        
+        RemoteFileHandle rfh = (RemoteFileHandle)oTransferred[5];
+        
+        Assert.assertEquals(((RemoteFileHandle)oRecord[5]).getObjectCacheKey(), rfh.getObjectCacheKey());
+        Assert.assertTrue(ObjectCache.get(rfh.getObjectCacheKey()) instanceof IFileHandle);
+        
+        CommonUtil.close(rfh.getInputStream());
+    }
+    
+    /**
+     * Tests fetching with metadata index. The result should contain the same records as without index.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFetchWithIndex() throws Exception
+    {
+        storage.setRecursive(true);
+        
+        List<Object[]> liNetwork = storage.fetch(null, null, 0, -1);
+        
+        storage.setIndexEnabled(true);
+        
+        List<Object[]> liIndex = storage.fetch(null, null, 0, -1);
+        
+        Assert.assertEquals(liNetwork.size(), liIndex.size());
+        
+        //second fetch only applies the delta
+        Assert.assertEquals(liIndex.size(), storage.fetch(null, null, 0, -1).size());
+    }
+    
+    /**
+     * Tests a path prefix filter with metadata index. The result should contain the same records as without
+     * index.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFetchPathPrefixWithIndex() throws Exception
+    {
+        storage.setRecursive(true);
+        
+        LikeIgnoreCase filter = new LikeIgnoreCase("PATH", "/SubFolder*");
+        
+        List<Object[]> liNetwork = storage.fetch(filter, null, 0, -1);
+        
+        storage.setIndexEnabled(true);
+        
+        List<Object[]> liIndex = storage.fetch(filter, null, 0, -1);
+        
+        Assert.assertTrue("Sub folder is empty!", liIndex.size() > 1);
+        Assert.assertEquals(liNetwork.size(), liIndex.size());
+    }
+    
+    /**
+     * Tests sorted fetching. The records should be sorted by the storage, also page by page.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFetchSorted() throws Exception
+    {
+        storage.setRecursive(true);
+        
+        SortDefinition sort = new SortDefinition(false, "NAME");
+        
+        List<Object[]> liSorted = storage.fetch(null, sort, 0, -1);
+        
+        for (int i = 1; i < liSorted.size() - 1; i++)
+        {
+            Assert.assertTrue(((String)liSorted.get(i - 1)[3]).compareTo((String)liSorted.get(i)[3]) >= 0);
+        }
+        
+        storage.setStreamingFetch(true);
+        
+        List<Object[]> liPage = storage.fetch(null, new SortDefinition("PATH"), 0, 2);
+        
+        Assert.assertTrue(((String)liPage.get(0)[0]).compareTo((String)liPage.get(1)[0]) < 0);
+        
+        book.setSort(sort);
+        
+        Assert.assertEquals(liSorted.get(0)[0], book.getValue("PATH"));
+    }
+    
+    /**
+     * Tests the asynchronous operations. Concurrent fetches should return the same records as a blocking
+     * fetch, and errors should complete the future exceptionally.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testAsync() throws Exception
+    {
+        storage.setRecursive(true);
+        
+        List<Object[]> liAll = storage.fetch(null, null, 0, -1);
+        
+        List<CompletableFuture<List<Object[]>>> liFutures = new ArrayList<CompletableFuture<List<Object[]>>>();
+        
+        for (int i = 0; i < 20; i++)
+        {
+            liFutures.add(storage.fetchAsync(null, null, 0, -1));
+        }
+        
+        for (CompletableFuture<List<Object[]>> future : liFutures)
+        {
+            Assert.assertEquals(liAll.size(), future.get().size());
+        }
+        
+        Object[] oFile = storage.insertAsync(new Object[] {null, null, "/", "async.txt", FileType.File.toString(), "async".getBytes()}).get();
+        
+        Assert.assertEquals("/async.txt", oFile[0]);
+        Assert.assertEquals("async", new String(FileUtil.getContent(storage.openContentAsync(oFile).get())));
+        
+        storage.deleteAsync(oFile).get();
+        
+        try
+        {
+            storage.deleteAsync(oFile).get();
+            
+            Assert.fail("File wasn't deleted!");
+        }
+        catch (ExecutionException ee)
+        {
+            Assert.assertTrue(ee.getCause() instanceof DataSourceException);
+        }
+    }
+    
+    /**
+     * Tests page by page fetching. All pages together should contain the same records as a complete fetch.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFetchStreaming() throws Exception
+    {
+        storage.setRecursive(true);
+        
+        List<Object[]> liAll = storage.fetch(null, null, 0, -1);
+        
+        storage.setStreamingFetch(true);
+        
+        List<Object[]> liPage = storage.fetch(null, null, 0, 2);
+        
+        Assert.assertTrue(liPage.size() >= 2);
+
+        int iCount = 0;
+        
+        while (liPage.get(liPage.size() - 1) != null)
+        {
+            iCount += liPage.size();
+            
+            liPage = storage.fetch(null, null, iCount, 2);
+        }
+        
+        iCount += liPage.size() - 1;
+        
+        Assert.assertEquals(liAll.size() - 1, iCount);
+    }
+    
     /**
      * Tests fetching with filter condition.
      * 
@@ -164,6 +676,29 @@ public class TestDropboxStorage
         Assert.assertEquals(2, book.getRowCount());
     }
     
+    /**
+     * Tests fetching with server-side search. The result should contain the same records as a search
+     * of all folders.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFetchWithSearchPushdown() throws Exception
+    {
+        //opt-in, because the search is eventually consistent
+        Assert.assertFalse(storage.isSearchPushdown());
+        
+        storage.setRecursive(true);
+        
+        List<Object[]> liTraversal = storage.fetch(new LikeIgnoreCase("NAME", "*Contacts.*"), null, 0, -1);
+        
+        storage.setSearchPushdown(true);
+        
+        List<Object[]> liSearch = storage.fetch(new LikeIgnoreCase("NAME", "*Contacts.*"), null, 0, -1);
+        
+        Assert.assertEquals(liTraversal.size(), liSearch.size());
+    }
+    
     /**
      * Tests fetching.
      * 
@@ -194,6 +729,54 @@ public class TestDropboxStorage
         Assert.assertEquals("1_Contacts.xls", bookDetail.getValueAsString("NAME"));
     }
     
+    /**
+     * Tests the estimated row count. Before fetching all folders, the recursive row count is unknown. After 
+     * fetching, the estimation should be the number of fetched records.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testEstimatedRowCount() throws Exception
+    {
+        storage.setRecursive(true);
+        
+        Assert.assertEquals(-1, storage.getEstimatedRowCount(null));
+        
+        //only the root folder
+        storage.setRecursive(false);
+        storage.fetch(null, null, 0, -1);
+        storage.setRecursive(true);
+        
+        Assert.assertEquals(-1, storage.getEstimatedRowCount(null));
+        
+        List<Object[]> liRecords = storage.fetch(null, null, 0, -1);
+        
+        //without the "all fetched" marker
+        Assert.assertEquals(liRecords.size() - 1, storage.getEstimatedRowCount(null));
+    }
+    
+    /**
+     * Tests fetching with listing cache. The second fetch should return the validated listings.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testFetchWithListingCache() throws Exception
+    {
+        storage.setListingCacheSize(100);
+        storage.setRecursive(true);
+        
+        List<Object[]> liFirst = storage.fetch(null, null, 0, -1);
+        List<Object[]> liSecond = storage.fetch(null, null, 0, -1);
+        
+        Assert.assertEquals(liFirst.size(), liSecond.size());
+        
+        for (int i = 0, cnt = liFirst.size() - 1; i < cnt; i++)
+        {
+            Assert.assertEquals(liFirst.get(i)[0], liSecond.get(i)[0]);
+        }
+    }
+    
     /**
      * Tests inserting.
      * 
@@ -214,6 +797,63 @@ public class TestDropboxStorage
         book.saveAllRows();
     }
 
+    /**
+     * Tests chunked upload.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testInsertChunked() throws Exception
+    {
+        storage.setUploadChunkSize(1024);
+        
+        byte[] byContent = FileUtil.getContent(ResourceUtil.getResourceAsStream("/com/sibvisions/apps/persist/eclipse.png"));
+        
+        book.insert(false);
+        book.setValue("FOLDER", "/");
+        book.setValue("NAME", "eclipse_chunked.png");
+        book.setValue("CONTENT", byContent);
+        book.saveSelectedRow();
+        
+        Assert.assertArrayEquals(byContent, FileUtil.getContent(getTempOutputFile((IFileHandle)book.getValue("CONTENT"))));
+        
+        book.delete();
+        book.saveAllRows();
+    }
+    
+    /**
+     * Tests batch insert and delete. The results should be the same as with single operations.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testBatchInsertDelete() throws Exception
+    {
+        byte[] byContent = FileUtil.getContent(ResourceUtil.getResourceAsStream("/com/sibvisions/apps/persist/app_small.png"));
+        
+        DropboxBatch batch = storage.createBatch();
+        
+        for (int i = 0; i < 5; i++)
+        {
+            batch.insert(new Object[] {null, null, "/", "app_small_batch" + i + ".png", null, byContent});
+        }
+        
+        batch.execute();
+        
+        DropboxBatch batchDelete = storage.createBatch();
+        
+        for (int i = 0; i < 5; i++)
+        {
+            Object[] oResult = batch.getResult(i);
+            
+            Assert.assertEquals("/app_small_batch" + i + ".png", oResult[0]);
+            
+            batchDelete.delete(oResult);
+        }
+        
+        batchDelete.execute();
+    }
+    
     /**
      * Tests inserting.
      * 
@@ -241,6 +881,37 @@ public class TestDropboxStorage
         book.delete();
     }
 
+    /**
+     * Tests saving unchanged content. The content shouldn't be uploaded again.
+     * 
+     * @throws Exception if test fails
+     */
+    @Test
+    public void testUpdateUnchangedContent() throws Exception
+    {
+        DropboxMetrics metrics = storage.getMetrics();
+        
+        book.insert(false);
+        book.setValue("FOLDER", "/");
+        book.setValue("NAME", "app_small_unchanged.png");
+        book.setValue("CONTENT", FileUtil.getContent(ResourceUtil.getResourceAsStream("/com/sibvisions/apps/persist/app_small.png")));
+        book.saveSelectedRow();
+        
+        long lUploads = metrics.getCount(DropboxMetrics.Operation.Upload);
+        
+        book.setValue("CONTENT", FileUtil.getContent(ResourceUtil.getResourceAsStream("/com/sibvisions/apps/persist/app_small.png")));
+        book.saveSelectedRow();
+        
+        Assert.assertEquals(lUploads, metrics.getCount(DropboxMetrics.Operation.Upload));
+        
+        book.setValue("CONTENT", FileUtil.getContent(ResourceUtil.getResourceAsStream("/com/sibvisions/apps/persist/eclipse.png")));
+        book.saveSelectedRow();
+        
+        Assert.assertEquals(lUploads + 1, metrics.getCount(DropboxMetrics.Operation.Upload));
+        
+        book.delete();
+    }
+    
     /**
      * Tests CSV creation.
      * 